@@ -1,12 +1,12 @@
 package net.liwuest.luyviewer;
 
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.collections.FXCollections;
 import javafx.geometry.Insets;
-import javafx.scene.Node;
 import javafx.scene.control.Button;
-import javafx.scene.control.CheckBox;
 import javafx.scene.control.ComboBox;
-import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.layout.Pane;
@@ -16,16 +16,15 @@ import net.liwuest.luyviewer.model.CDatamodel;
 import net.liwuest.luyviewer.model.CFilteredAndSortedDatamodel;
 import net.liwuest.luyviewer.model.CMetamodel;
 import net.liwuest.luyviewer.rule.CFilter;
+import net.liwuest.luyviewer.rule.JFXFilterStatisticsDialog;
 import net.liwuest.luyviewer.rule.JFXRuleBuilderDialog;
+import net.liwuest.luyviewer.util.CConfigService;
 import net.liwuest.luyviewer.util.CTranslations;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
-import java.time.Instant;
-import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
 
 public class JFXBuildingBlockList extends Pane {
@@ -33,7 +32,19 @@ public class JFXBuildingBlockList extends Pane {
     private final ComboBox<CMetamodel.TypeExpression> typeComboBox;
     private final TableView<CDatamodel.Element> tableView;
     private final Map<CMetamodel.Feature, CFilteredAndSortedDatamodel.SortOrder> sortings = new HashMap<>();
+    private final JFXColumnWidths columnWidths = new JFXColumnWidths();
     private CMetamodel.TypeExpression currentSelectedType;
+    private final JFXTableRows rows = new JFXTableRows();
+    /**
+     * Columns of a type, reused as long as the type shows the same features.
+     *
+     * @param Features The shown features of the type.
+     * @param Columns The columns showing them.
+     */
+    private record TypeColumns(Set<CMetamodel.Feature> Features, List<TableColumn<CDatamodel.Element, ?>> Columns) {}
+    private final Map<CMetamodel.TypeExpression, TypeColumns> columnsByType = new HashMap<>();
+    /** The latest request for the rows of the table. Results of older requests are never shown. Only accessed on the JavaFX thread. */
+    private CompletableFuture<LinkedHashSet<? extends CDatamodel.Element>> pendingRows;
 
     public JFXBuildingBlockList(CFilteredAndSortedDatamodel Data) {
         assert null != Data;
@@ -65,19 +76,47 @@ public class JFXBuildingBlockList extends Pane {
             }
         });
         typeAndFilterBox.getChildren().add(filterButton);
+        // Filter statistics (debug view)
+        try {
+            if (CConfigService.getConfig().show_filter_statistics) {
+                Button statisticsButton = new Button(CTranslations.INSTANCE.Button_FilterStatistics);
+                statisticsButton.setOnAction(e -> {
+                    CFilter filter = (null == currentSelectedType) ? null : Data.getFilter(currentSelectedType);
+                    if (null != filter) new JFXFilterStatisticsDialog(filter).show();
+                });
+                typeAndFilterBox.getChildren().add(statisticsButton);
+            }
+        } catch (IOException Ignore) { LUYViewer.LOGGER.log(Level.WARNING, "Failed to read configuration", Ignore); }
         // Export-Button
         Button exportButton = new Button(CTranslations.INSTANCE.Button_Export2Excel);
+        // Fortschritt und Abbruch des Exports, nur während eines Exports sichtbar
+        ProgressBar exportProgress = new ProgressBar();
+        Button cancelExportButton = new Button(CTranslations.INSTANCE.Button_Cancel);
+        exportProgress.managedProperty().bind(exportProgress.visibleProperty());
+        cancelExportButton.managedProperty().bind(cancelExportButton.visibleProperty());
+        cancelExportButton.visibleProperty().bind(exportProgress.visibleProperty());
+        exportProgress.setVisible(false);
         exportButton.setOnAction(e -> {
             javafx.stage.FileChooser fileChooser = new javafx.stage.FileChooser();
             fileChooser.setTitle(CTranslations.INSTANCE.Title_Export2Excel);
             fileChooser.getExtensionFilters().add(new javafx.stage.FileChooser.ExtensionFilter("Excel (*.xlsx)", "*.xlsx"));
             java.io.File file = fileChooser.showSaveDialog(this.getScene().getWindow());
-            if (file != null) {
-                try { exportTableToExcel(file); }
-                catch (Exception ex) { LUYViewer.LOGGER.log(Level.SEVERE, "Failed to export to Excel", ex); }
+            if ((file != null) && (null != currentSelectedType)) {
+                // Exportiert die angezeigten Zeilen
+                JFXExcelExport exportTask = new JFXExcelExport(file, currentSelectedType.name, Data.getOrderedFeatures(currentSelectedType), rows);
+                exportProgress.progressProperty().bind(exportTask.progressProperty());
+                exportProgress.visibleProperty().bind(exportTask.runningProperty());
+                exportButton.disableProperty().bind(exportTask.runningProperty());
+                cancelExportButton.setOnAction(c -> exportTask.cancel());
+                exportTask.setOnSucceeded(s -> LUYViewer.LOGGER.info("Exported " + exportTask.getValue() + " rows to Excel"));
+                exportTask.setOnFailed(f -> LUYViewer.LOGGER.log(Level.SEVERE, "Failed to export to Excel", exportTask.getException()));
+                exportTask.setOnCancelled(c -> LUYViewer.LOGGER.info("Export to Excel cancelled"));
+                Thread exportThread = new Thread(exportTask, "Excel export");
+                exportThread.setDaemon(true);
+                exportThread.start();
             }
         });
-        typeAndFilterBox.getChildren().add(exportButton);
+        typeAndFilterBox.getChildren().addAll(exportButton, exportProgress, cancelExportButton);
         vbox.getChildren().add(typeAndFilterBox);
         // TableView in eine horizontale ScrollPane einbetten, aber vertikales Scrollen der TableView überlassen
         javafx.scene.control.ScrollPane scrollPane = new javafx.scene.control.ScrollPane();
@@ -94,6 +133,9 @@ public class JFXBuildingBlockList extends Pane {
         VBox.setVgrow(scrollPane, javafx.scene.layout.Priority.ALWAYS);
         this.getChildren().add(vbox);
         tableView.setColumnResizePolicy(TableView.UNCONSTRAINED_RESIZE_POLICY);
+        tableView.setItems(rows);
+        // The rows are sorted by the data model, see the sort handling below
+        tableView.setSortPolicy(table -> true);
         // TableView: horizontalen Scrollbar per CSS ausblenden
         tableView.getStylesheets().add(getClass().getResource("/style.css").toExternalForm());
 
@@ -106,8 +148,7 @@ public class JFXBuildingBlockList extends Pane {
                     if (userData instanceof CMetamodel.Feature feature && feature.isSortable) {
                         CFilteredAndSortedDatamodel.SortOrder nextOrder = getNextSortorder(feature);
                         Data.sort(currentSelectedType, feature, nextOrder);
-                        Set<? extends CDatamodel.Element> elements = Data.getFilteredAndSortedData(typeComboBox.getSelectionModel().getSelectedItem());
-                        if (elements != null) tableView.setItems(FXCollections.observableArrayList(elements));
+                        fillRows(typeComboBox.getSelectionModel().getSelectedItem());
                         col.setText(feature.name + switch (nextOrder) {
                             case ASCENDING -> "  \u25B2"; // ▲
                             case DESCENDING -> "  \u25BC"; // ▼
@@ -150,230 +191,107 @@ public class JFXBuildingBlockList extends Pane {
 
     private void updateTable(CMetamodel.TypeExpression SelectedType) {
         LUYViewer.LOGGER.info("Updating table for type " + SelectedType.name);
-        tableView.getColumns().clear();
-        tableView.getItems().clear();
-        if (SelectedType == null) return;
+        // Do not wait for the rows of the previous type or filter
+        Data.cancelDataview();
+        if (SelectedType == null) { tableView.getColumns().clear(); rows.show(List.of()); return; }
 
         LinkedHashSet<CMetamodel.Feature> features = Data.getOrderedFeatures(SelectedType);
         if (features == null) return;
         LUYViewer.LOGGER.info("Number of features of type: " + features.size());
 
         try {
-            // Create columns
-            int colIdx = 0;
-            for (CMetamodel.Feature feature : features) {
-                final int columnIndex = colIdx;
-                if ((CMetamodel.FeatureType.RELATION == feature.featureType) && !(CMetamodel.FeatureType.SELF_RELATION == feature.featureType) && !feature.referencesBuildingblock()) {
-                    Set<CMetamodel.Feature> relFeatures = Data.getFeaturesOfRelation(feature);
-                    if (null != relFeatures) {
-                        javafx.scene.control.TableColumn<CDatamodel.Element, Node> parentCol = new TableColumn<>(feature.name);
-                        int relColIdx = 0;
-                        for (CMetamodel.Feature relFeature : relFeatures) {
-                            final int relColumnIndex = relColIdx;
-                            TableColumn<CDatamodel.Element, Node> subCol = new TableColumn<>(relFeature.name);
-                            subCol.setUserData(relFeature);
-                            subCol.setCellValueFactory(cellData -> {
-                                CDatamodel.Element element = cellData.getValue();
-                                int rowIndex = tableView.getItems().indexOf(element);
-                                return new javafx.beans.property.SimpleObjectProperty<>(renderRelationshipCell(SelectedType, element, feature, relFeature, rowIndex, columnIndex, relColumnIndex));
-                            });
-                            subCol.setResizable(true);
-                            // Dynamische Breite für Subspalten
-                            double headerWidth = computeTextWidth(subCol.getText());
-                            double cellWidth = computeMaxCellWidth(subCol, tableView, 10); // 10 Zeilen prüfen
-                            subCol.setPrefWidth(Math.max(120, Math.max(headerWidth, cellWidth) + 24));
-                            // Disable sorting if not sortable
-                            subCol.setSortable(relFeature.isSortable);
-                            parentCol.getColumns().add(subCol);
-                            relColIdx++;
-                        }
-                        parentCol.setResizable(true);
-                        parentCol.setMinWidth(120 * Math.max(1, relFeatures.size())); // Mindestbreite für Parent
-                        parentCol.setSortable(false); // Parent columns are not directly sortable
-                        tableView.getColumns().add(parentCol);
-                    } else LUYViewer.LOGGER.warning("No features for relation " + feature.name);
-                } else {
-                    TableColumn<CDatamodel.Element, Node> col = new TableColumn<>(feature.name);
-                    col.setUserData(feature);
-                    col.setCellValueFactory(cellData -> {
-                        CDatamodel.Element element = cellData.getValue();
-                        int rowIndex = tableView.getItems().indexOf(element);
-                        return new javafx.beans.property.SimpleObjectProperty<>(renderCell(SelectedType, element, feature, rowIndex, columnIndex));
-                    });
-                    col.setResizable(true);
-                    // Dynamische Breite für normale Spalten
-                    double headerWidth = computeTextWidth(col.getText());
-                    double cellWidth = computeMaxCellWidth(col, tableView, 10); // 10 Zeilen prüfen
-                    col.setPrefWidth(Math.max(120, Math.max(headerWidth, cellWidth) + 24));
-                    // Disable sorting if not sortable
-                    col.setSortable(feature.isSortable);
-                    tableView.getColumns().add(col);
-                }
-                colIdx++;
+            TypeColumns columns = columnsByType.get(SelectedType);
+            if ((null == columns) || !columns.Features().equals(features)) {
+                columns = new TypeColumns(features, createColumns(SelectedType, features));
+                columnsByType.put(SelectedType, columns);
             }
-
-            // Fill rows
-            LUYViewer.LOGGER.info("Filling rows for type " + SelectedType.name);
-            Set<? extends CDatamodel.Element> elements = Data.getFilteredAndSortedData(SelectedType);
-            LUYViewer.LOGGER.info("Filling rows for type " + SelectedType.name + " - got " + elements.size() + " data items.");
-            if (elements != null) tableView.setItems(FXCollections.observableArrayList(elements));
+            if (!tableView.getColumns().equals(columns.Columns())) {
+                // Rows of another type do not fit the columns
+                rows.show(List.of());
+                tableView.getColumns().setAll(columns.Columns());
+            }
+            fillRows(SelectedType);
         } catch (Exception Ex) { LUYViewer.LOGGER.log(Level.SEVERE, "Error while filling table", Ex); }
     }
 
-    Node renderCell(CMetamodel.TypeExpression Type, CDatamodel.Element Element, CMetamodel.Feature Feature, int Row, int Column) {
-        switch (Feature.type) {
-            case "boolean": {
-                Object value = Element.AdditionalData.getOrDefault(Feature.persistentName, null);
-                if (value instanceof List valueList) value = valueList.isEmpty() ? null : valueList.get(0);
-                CheckBox checkBox = new CheckBox();
-                checkBox.setDisable(true);
-                if (value instanceof Boolean booleanValue) {
-                    checkBox.setSelected(booleanValue);
-                    checkBox.setIndeterminate(false);
-                    return checkBox;
-                } else {
-                    checkBox.setIndeterminate(true);
-                    checkBox.setStyle("-fx-opacity: 1; -fx-background-color: lightgray;");
-                    return checkBox;
-                }
-            }
-            case "date": {
-                Object value = Element.AdditionalData.getOrDefault(Feature.persistentName, null);
-                if (value instanceof List valueList) value = valueList.isEmpty() ? null : valueList.get(0);
-                if ((null != value) && (value instanceof Instant inst)) value = DateTimeFormatter.ofPattern("yyyy-MM-dd").withZone(ZoneId.systemDefault()).format(inst); else value = "";
-                return new Label(value.toString());
-            }
-            case "date_time": {
-                Object value = Element.AdditionalData.getOrDefault(Feature.persistentName, null);
-                if (value instanceof List valueList) value = valueList.isEmpty() ? null : valueList.get(0);
-                if ((null != value) && (value instanceof Instant inst)) value = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault()).format(inst); else value = "";
-                return new Label(value.toString());
-            }
-            case "decimal":
-            case "integer":
-            case "richtext":
-            case "string": {
-                Object value = Element.AdditionalData.getOrDefault(Feature.persistentName, "");
-                if (value instanceof List valueList) value = valueList.isEmpty() ? "" : valueList.get(0);
-                return new Label(value.toString());
-            }
-            case "io.luy.model.Direction": {
-                Object value = Element.AdditionalData.getOrDefault(Feature.persistentName, CMetamodel.INTERFACE_DIRECTIONS.NO_DIRECTION);
-                if (value instanceof List valueList) value = valueList.isEmpty() ? CMetamodel.INTERFACE_DIRECTIONS.NO_DIRECTION : valueList.get(0);
-                if (!(value instanceof CMetamodel.INTERFACE_DIRECTIONS)) value = CMetamodel.INTERFACE_DIRECTIONS.valueOf(value.toString());
-                if (value instanceof CMetamodel.INTERFACE_DIRECTIONS dirValue) {
-                    Label label = switch (dirValue) {
-                        case FIRST_TO_SECOND -> new Label("\u2192"); // →
-                        case SECOND_TO_FIRST -> new Label("\u2190"); // ←
-                        case BOTH_DIRECTIONS -> new Label("\u2194"); // ↔
-                        default -> new Label("-");
-                    };
-                    label.setStyle("-fx-font-size: 16px; -fx-alignment: center;");
-                    return label;
-                }
-                return new Label("-");
-            }
-            default: {
-                if ((CMetamodel.FeatureType.SELF_RELATION == Feature.featureType) || Feature.referencesBuildingblock()) {
-                    java.util.List<CDatamodel.BuildingBlock> blocks = (java.util.List<CDatamodel.BuildingBlock>) Element.AdditionalData.getOrDefault(Feature.persistentName, new java.util.ArrayList<CDatamodel.BuildingBlock>());
-                    java.util.List<CDatamodel.BuildingBlock> sortedBlocks = new java.util.ArrayList<>(blocks);
-                    sortedBlocks.sort(java.util.Comparator.comparing(block -> block.name != null ? block.name : ""));
-                    javafx.scene.layout.VBox vbox = new javafx.scene.layout.VBox();
-                    vbox.setSpacing(2);
-                    vbox.setFillWidth(true);
-                    java.util.List<javafx.scene.control.Button> buttons = new java.util.ArrayList<>();
-                    for (CDatamodel.BuildingBlock block : sortedBlocks) {
-                        String label = block.name + " (" + block.id + ")";
-                        javafx.scene.control.Button btn = new javafx.scene.control.Button(label);
-                        btn.setMaxWidth(Double.MAX_VALUE);
-                        buttons.add(btn);
-                    }
-                    vbox.getChildren().addAll(buttons);
-                    return vbox;
-                }
-                if (CMetamodel.FeatureType.ENUMERATION == Feature.featureType) {
-                    Object value = Element.AdditionalData.getOrDefault(Feature.persistentName, new java.util.ArrayList<CMetamodel.Literal>());
-                    if (value instanceof List valueList) {
-                        if (valueList.isEmpty()) return new Label("");
-                        javafx.scene.layout.VBox vbox = new javafx.scene.layout.VBox();
-                        vbox.setSpacing(2);
-                        vbox.setFillWidth(true);
-                        valueList.stream().sorted(Comparator.comparing(l -> ((CMetamodel.Literal) l).name)).forEach(l -> {
-                            CMetamodel.Literal literal = (CMetamodel.Literal)l;
-                            javafx.scene.layout.HBox hbox = new javafx.scene.layout.HBox();
-                            hbox.setSpacing(5);
-                            javafx.scene.control.Label nameLabel = new javafx.scene.control.Label(literal.name);
-                            nameLabel.setMaxWidth(Double.MAX_VALUE);
-                            javafx.scene.layout.HBox.setHgrow(nameLabel, javafx.scene.layout.Priority.ALWAYS);
-                            javafx.scene.control.Label colorLabel = new javafx.scene.control.Label();
-                            colorLabel.setMinWidth(24);
-                            colorLabel.setMaxWidth(24);
-                            colorLabel.setPrefWidth(24);
-                            colorLabel.setStyle("-fx-background-color: " + (null != literal.color ? String.format("#%06X", literal.color.getRGB() & 0xFFFFFF) : "#cccccc") + "; -fx-border-color: #888; -fx-border-radius: 3; -fx-background-radius: 3;");
-                            hbox.getChildren().addAll(nameLabel, colorLabel);
-                            vbox.getChildren().add(hbox);
-                        });
-                        return vbox;
+    private List<TableColumn<CDatamodel.Element, ?>> createColumns(CMetamodel.TypeExpression SelectedType, Set<CMetamodel.Feature> Features) {
+        List<TableColumn<CDatamodel.Element, ?>> result = new ArrayList<>();
+        for (CMetamodel.Feature feature : Features) {
+            if ((CMetamodel.FeatureType.RELATION == feature.featureType) && !(CMetamodel.FeatureType.SELF_RELATION == feature.featureType) && !feature.referencesBuildingblock()) {
+                Set<CMetamodel.Feature> relFeatures = Data.getFeaturesOfRelation(feature);
+                if (null != relFeatures) {
+                    javafx.scene.control.TableColumn<CDatamodel.Element, Object> parentCol = new TableColumn<>(feature.name);
+                    parentCol.setUserData(feature);
+                    for (CMetamodel.Feature relFeature : relFeatures) {
+                        TableColumn<CDatamodel.Element, Object> subCol = new TableColumn<>(relFeature.name);
+                        subCol.setUserData(relFeature);
+                        subCol.setCellValueFactory(cellData -> new ReadOnlyObjectWrapper<>(cellData.getValue().AdditionalData.get(feature.persistentName)));
+                        subCol.setCellFactory(column -> new JFXElementCells.RelationshipCell(relFeature));
+                        subCol.setResizable(true);
+                        // Dynamische Breite für Subspalten, geschätzt sobald die Zeilen vorliegen
+                        subCol.setPrefWidth(getColumnWidth(SelectedType, feature, relFeature, subCol.getText()));
+                        // Disable sorting if not sortable
+                        subCol.setSortable(relFeature.isSortable);
+                        parentCol.getColumns().add(subCol);
                     }
-                }
-                LUYViewer.LOGGER.info("Unhandled feature: Cell " + Row + "/" + Column + " - Feature type: " + Feature.type + " (ref. BB: " + Feature.referencesBuildingblock() + ") - Element: " + Element.elementURI);
-                return new Label("todo");
+                    parentCol.setResizable(true);
+                    parentCol.setMinWidth(120 * Math.max(1, relFeatures.size())); // Mindestbreite für Parent
+                    parentCol.setSortable(false); // Parent columns are not directly sortable
+                    result.add(parentCol);
+                } else LUYViewer.LOGGER.warning("No features for relation " + feature.name);
+            } else {
+                TableColumn<CDatamodel.Element, Object> col = new TableColumn<>(feature.name);
+                col.setUserData(feature);
+                col.setCellValueFactory(cellData -> new ReadOnlyObjectWrapper<>(cellData.getValue().AdditionalData.get(feature.persistentName)));
+                col.setCellFactory(column -> new JFXElementCells.FeatureCell(feature));
+                col.setResizable(true);
+                // Dynamische Breite für normale Spalten, geschätzt sobald die Zeilen vorliegen
+                col.setPrefWidth(getColumnWidth(SelectedType, feature, null, col.getText()));
+                // Disable sorting if not sortable
+                col.setSortable(feature.isSortable);
+                result.add(col);
             }
         }
+        return result;
     }
 
     /**
-     * Renders a cell for a relationship feature's sub-feature (nested table cell).
+     * Requests the filtered and sorted rows of a type in the background and shows them once they are available, unless they have been requested again in the meantime.
      */
-    Node renderRelationshipCell(CMetamodel.TypeExpression Type, CDatamodel.Element Element, CMetamodel.Feature RelationshipFeature, CMetamodel.Feature SubFeature, int Row, int Column, int SubColumn) {
-        final double ROW_HEIGHT = 24.0; // Feste Höhe für jede Zeile/Node
-        javafx.scene.layout.VBox vbox = new javafx.scene.layout.VBox();
-        vbox.setSpacing(2);
-        vbox.setFillWidth(true);
-        int maxRows = 0;
-        if (Element.AdditionalData.getOrDefault(RelationshipFeature.persistentName, new ArrayList<>()) instanceof List elements) {
-            for (Object elem : elements) {
-                if (elem instanceof CDatamodel.Element e) {
-                    maxRows += e.getMaxValues();
-                    Node node = renderCell(Type, (CDatamodel.Element)e, SubFeature, Row, SubColumn);
-                    if (node instanceof javafx.scene.control.Label label) {
-                        label.setMinHeight(ROW_HEIGHT);
-                        label.setPrefHeight(ROW_HEIGHT);
-                        label.setMaxHeight(ROW_HEIGHT);
-                    } else if (node instanceof javafx.scene.layout.Region region) {
-                        region.setMinHeight(ROW_HEIGHT);
-                        region.setPrefHeight(ROW_HEIGHT);
-                        region.setMaxHeight(ROW_HEIGHT);
-                    }
-                    vbox.getChildren().add(node);
-                }
-            }
-        }
-        vbox.setMinHeight((ROW_HEIGHT+2) * Math.max(1, maxRows));
-        vbox.setPrefHeight((ROW_HEIGHT+2) * Math.max(1, maxRows));
-        vbox.setMaxHeight((ROW_HEIGHT+2) * Math.max(1, maxRows));
-        return vbox;
+    private void fillRows(CMetamodel.TypeExpression SelectedType) {
+        LUYViewer.LOGGER.info("Filling rows for type " + SelectedType.name);
+        CompletableFuture<LinkedHashSet<? extends CDatamodel.Element>> request = Data.getFilteredAndSortedDataAsync(SelectedType);
+        pendingRows = request;
+        request.whenComplete((elements, exception) -> Platform.runLater(() -> {
+            if (request != pendingRows) return;
+            pendingRows = null;
+            if (exception instanceof CancellationException) return;
+            if (null != exception) { LUYViewer.LOGGER.log(Level.SEVERE, "Error while filling table", exception); return; }
+            LUYViewer.LOGGER.info("Filling rows for type " + SelectedType.name + " - got " + ((null == elements) ? 0 : elements.size()) + " data items.");
+            if (null == elements) return;
+            estimateColumnWidths(SelectedType, elements);
+            // A new order of the same rows keeps the scroll position and the selection
+            if (rows.show(elements)) LUYViewer.LOGGER.info("Reordered rows for type " + SelectedType.name);
+        }));
     }
 
     // Hilfsmethoden für dynamische Spaltenbreite
-    private double computeTextWidth(String text) {
-        javafx.scene.text.Text helper = new javafx.scene.text.Text(text);
-        helper.setFont(javafx.scene.text.Font.getDefault());
-        return helper.getLayoutBounds().getWidth();
+    private double getColumnWidth(CMetamodel.TypeExpression Type, CMetamodel.Feature Feature, CMetamodel.Feature SubFeature, String Header) {
+        Double width = columnWidths.getWidth(Type, Feature, SubFeature);
+        return (null == width) ? columnWidths.getHeaderWidth(Header) : width;
     }
 
-    private double computeMaxCellWidth(TableColumn<CDatamodel.Element, Node> col, TableView<CDatamodel.Element> table, int maxRows) {
-        double max = 0;
-        int count = 0;
-        for (CDatamodel.Element elem : table.getItems()) {
-            if (count++ > maxRows) break;
-            Node node = col.getCellObservableValue(elem) != null ? (Node) col.getCellObservableValue(elem).getValue() : null;
-            if (node instanceof Label label) {
-                double w = computeTextWidth(label.getText());
-                if (w > max) max = w;
+    /** Sets the widths of the columns that have not been estimated yet from the rows of the view. Columns already estimated keep the width the user may have changed. */
+    private void estimateColumnWidths(CMetamodel.TypeExpression Type, Collection<? extends CDatamodel.Element> Elements) {
+        List<CDatamodel.Element> sample = JFXColumnWidths.sample(Elements);
+        for (TableColumn<CDatamodel.Element, ?> col : tableView.getColumns()) {
+            if (!(col.getUserData() instanceof CMetamodel.Feature feature)) continue;
+            if (col.getColumns().isEmpty()) {
+                if (null == columnWidths.getWidth(Type, feature, null)) col.setPrefWidth(columnWidths.estimateWidth(Type, feature, null, col.getText(), sample));
+            } else for (TableColumn<CDatamodel.Element, ?> subCol : col.getColumns()) {
+                if ((subCol.getUserData() instanceof CMetamodel.Feature relFeature) && (null == columnWidths.getWidth(Type, feature, relFeature))) subCol.setPrefWidth(columnWidths.estimateWidth(Type, feature, relFeature, subCol.getText(), sample));
             }
         }
-        return max;
     }
 
     private void updateFilterButtonIcon(Button filterButton) {
@@ -384,39 +302,4 @@ public class JFXBuildingBlockList extends Pane {
         filterButton.setText(CTranslations.INSTANCE.Button_Filter + checkIcon); // Übersetzung
         filterButton.setTooltip(new javafx.scene.control.Tooltip(valid ? CTranslations.INSTANCE.Tooltip_FilterValid : CTranslations.INSTANCE.Tooltip_FilterInvalid)); // Übersetzung
     }
-
-    /**
-     * Exportiert die aktuelle TableView als Excel-Datei (XLSX).
-     */
-    private void exportTableToExcel(java.io.File file) throws Exception {
-        // Falls die Dateiendung fehlt, automatisch .xlsx anhängen
-        String filePath = file.getAbsolutePath();
-        if (!filePath.toLowerCase().endsWith(".xlsx")) {
-            file = new java.io.File(filePath + ".xlsx");
-        }
-        // Apache POI verwenden
-        XSSFWorkbook workbook = new XSSFWorkbook();
-        Sheet sheet = workbook.createSheet(currentSelectedType.name);
-        // Spaltennamen
-        Set<CMetamodel.Feature> features = Data.getOrderedFeatures(currentSelectedType);
-        org.apache.poi.ss.usermodel.Row headerRow = sheet.createRow(0);
-        int colIdx = 0;
-        for (CMetamodel.Feature f : features) { if (null != f) headerRow.createCell(colIdx++).setCellValue(f.name); }
-
-        int rowIdx = 1;
-        for (CDatamodel.Element elem : Data.getFilteredAndSortedData(currentSelectedType)) {
-            System.out.println(elem);
-            Row row = sheet.createRow(rowIdx++);
-            colIdx = 0;
-            for (CMetamodel.Feature f : features) {
-                row.createCell(colIdx++).setCellValue(elem.AdditionalData.get(f.persistentName) != null ? elem.AdditionalData.get(f.persistentName).toString() : "");
-            }
-        }
-
-        // Autosize columns
-        for (int i = 0; i < features.size(); i++) { sheet.autoSizeColumn(i); }
-        // Datei speichern
-        try (java.io.FileOutputStream fos = new java.io.FileOutputStream(file)) { workbook.write(fos); }
-        workbook.close();
-    }
 }
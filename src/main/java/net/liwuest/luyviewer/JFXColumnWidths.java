@@ -0,0 +1,143 @@
+package net.liwuest.luyviewer;
+
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
+import net.liwuest.luyviewer.model.CDatamodel;
+import net.liwuest.luyviewer.model.CMetamodel;
+
+import java.util.*;
+
+/**
+ * Estimates the preferred widths of the columns of {@link JFXBuildingBlockList} from a sample of the shown elements, without building cells.
+ * Texts are measured by adding the advances of their characters in the default font, each measured once. The estimate of a column is cached per
+ * type and feature, so showing a type again only measures its headers. Only to be used on the JavaFX thread.
+ */
+final class JFXColumnWidths {
+    private final static int SAMPLE_SIZE = 100;
+    private final static double MIN_WIDTH = 120;
+    /** Widest estimate, longer texts are cut off in the cells. */
+    private final static double MAX_WIDTH = 480;
+    /** Space of a cell around its content. */
+    private final static double CELL_PADDING = 24;
+    /** Space of a button around its text. */
+    private final static double BUTTON_PADDING = 16;
+    /** Width of the color of an enumeration literal, including the gap to its name. */
+    private final static double COLOR_WIDTH = 29;
+    private final static double CHECKBOX_WIDTH = 20;
+
+    /** A column of a type: a feature, or a feature of the relationships referenced by a feature. */
+    private record Column(CMetamodel.TypeExpression Type, CMetamodel.Feature Feature, CMetamodel.Feature SubFeature) {}
+
+    private final Map<Column, Double> m_Widths = new HashMap<>();
+    private final Text m_Helper = new Text();
+    /** Advances of the characters measured so far, {@code 0} if not measured yet. Latin-1 characters are kept in an array. */
+    private final double[] m_Latin1Advances = new double[256];
+    private final Map<Integer, Double> m_Advances = new HashMap<>();
+
+    JFXColumnWidths() { m_Helper.setFont(Font.getDefault()); }
+
+    /** Gets the width of a text in the default font, i.e. of its longest line. */
+    double getTextWidth(String Text) {
+        double max = 0;
+        double width = 0;
+        for (int i = 0; i < Text.length(); ) {
+            int codePoint = Text.codePointAt(i);
+            if ('\n' == codePoint) width = 0;
+            else max = Math.max(max, width += getAdvance(codePoint));
+            i += Character.charCount(codePoint);
+        }
+        return max;
+    }
+
+    private double getAdvance(int CodePoint) {
+        if (CodePoint < m_Latin1Advances.length) {
+            if (0 == m_Latin1Advances[CodePoint]) m_Latin1Advances[CodePoint] = measure(CodePoint);
+            return m_Latin1Advances[CodePoint];
+        }
+        return m_Advances.computeIfAbsent(CodePoint, this::measure);
+    }
+
+    private double measure(int CodePoint) {
+        m_Helper.setText(Character.toString(CodePoint));
+        // Characters without advance are stored as a tiny width, so they are not measured again
+        return Math.max(Double.MIN_VALUE, m_Helper.getLayoutBounds().getWidth());
+    }
+
+    /** Gets the width of a column that has no estimate of its values yet. */
+    double getHeaderWidth(String Header) { return Math.max(MIN_WIDTH, getTextWidth(Header) + CELL_PADDING); }
+
+    /**
+     * Gets the cached width of a column.
+     *
+     * @param SubFeature The feature of the referenced relationships, {@code null} for a column of a feature of the type.
+     * @return The width, {@code null} if it has not been estimated yet.
+     */
+    Double getWidth(CMetamodel.TypeExpression Type, CMetamodel.Feature Feature, CMetamodel.Feature SubFeature) { return m_Widths.get(new Column(Type, Feature, SubFeature)); }
+
+    /** Gets up to {@value #SAMPLE_SIZE} evenly distributed elements of a view, to estimate the widths of its columns from. */
+    static List<CDatamodel.Element> sample(Collection<? extends CDatamodel.Element> Elements) {
+        List<CDatamodel.Element> result = new ArrayList<>(Math.min(SAMPLE_SIZE, Elements.size()));
+        int step = Math.max(1, Elements.size() / SAMPLE_SIZE);
+        int index = 0;
+        for (CDatamodel.Element element : Elements) {
+            if (result.size() == SAMPLE_SIZE) break;
+            if (0 == (index++ % step)) result.add(element);
+        }
+        return result;
+    }
+
+    /**
+     * Estimates the width of a column from a sample of a view (see {@link #sample(Collection)}) and caches it. Without elements, the estimate is not cached.
+     *
+     * @param SubFeature The feature of the referenced relationships, {@code null} for a column of a feature of the type.
+     * @param Header The header of the column.
+     * @param Sample The sampled elements of the view.
+     * @return The width.
+     */
+    double estimateWidth(CMetamodel.TypeExpression Type, CMetamodel.Feature Feature, CMetamodel.Feature SubFeature, String Header, List<CDatamodel.Element> Sample) {
+        Column column = new Column(Type, Feature, SubFeature);
+        Double cached = m_Widths.get(column);
+        if (null != cached) return cached;
+        if (Sample.isEmpty()) return getHeaderWidth(Header);
+
+        double max = getTextWidth(Header);
+        for (CDatamodel.Element element : Sample) {
+            Object value = element.AdditionalData.get(Feature.persistentName);
+            if (null == SubFeature) max = Math.max(max, getValueWidth(Feature, value));
+            else if (value instanceof List<?> relationships) for (Object relationship : relationships) {
+                if (relationship instanceof CDatamodel.Element e) max = Math.max(max, getValueWidth(SubFeature, e.AdditionalData.get(SubFeature.persistentName)));
+            }
+        }
+        double width = Math.max(MIN_WIDTH, Math.min(MAX_WIDTH, max + CELL_PADDING));
+        m_Widths.put(column, width);
+        return width;
+    }
+
+    /** Gets the width of the nodes showing a value (see {@link JFXElementCells}). */
+    private double getValueWidth(CMetamodel.Feature Feature, Object Value) {
+        switch (Feature.featureType) {
+            case BOOLEAN:
+            case INTERFACE_DIRECTION: return CHECKBOX_WIDTH;
+            case DATE:
+            case DATE_TIME:
+            case DECIMAL:
+            case INTEGER:
+            case RICHTEXT:
+            case STRING: return getTextWidth(JFXElementCells.getText(Feature, Value));
+            case ENUMERATION: {
+                double max = 0;
+                if (Value instanceof List<?> literals) for (Object literal : literals) {
+                    if (literal instanceof CMetamodel.Literal l) max = Math.max(max, getTextWidth(l.name) + COLOR_WIDTH);
+                }
+                return max;
+            }
+            default: {
+                double max = 0;
+                if (Value instanceof List<?> blocks) for (Object block : blocks) {
+                    if (block instanceof CDatamodel.BuildingBlock b) max = Math.max(max, getTextWidth(b.name + " (" + b.id + ")") + BUTTON_PADDING);
+                }
+                return max;
+            }
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package net.liwuest.luyviewer;
+
+import javafx.collections.ObservableList;
+import javafx.scene.Node;
+import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableCell;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.Region;
+import javafx.scene.layout.VBox;
+import net.liwuest.luyviewer.model.CDatamodel;
+import net.liwuest.luyviewer.model.CMetamodel;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Table cells of {@link JFXBuildingBlockList}. The value of a cell is the raw value of a feature of the row's element. Every cell keeps the
+ * nodes showing it and only updates their text and state when it is reused for another row, so scrolling does not build node trees.
+ */
+final class JFXElementCells {
+    private final static DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd").withZone(ZoneId.systemDefault());
+    private final static DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+    /** Height of a value within a relationship cell, so the values of the sub columns of a relationship line up. */
+    private final static double ROW_HEIGHT = 24.0;
+
+    private JFXElementCells() {}
+
+    /** Nodes showing a value of a feature, updated in place for every value shown. */
+    private abstract static class ValueView {
+        abstract Node getNode();
+        abstract void show(Object Value);
+    }
+
+    /** Shows the values of a list, one reused view per value. */
+    private final static class ValueListView<V extends ValueView> extends ValueView {
+        private final VBox m_Box = new VBox(2);
+        private final List<V> m_Views = new ArrayList<>();
+        private final Supplier<V> m_Factory;
+
+        ValueListView(Supplier<V> Factory) { m_Factory = Factory; m_Box.setFillWidth(true); }
+
+        @Override Node getNode() { return m_Box; }
+        @Override void show(Object Value) { show((Value instanceof List<?> list) ? list : List.of()); }
+        void show(List<?> Values) {
+            while (m_Views.size() < Values.size()) m_Views.add(m_Factory.get());
+            for (int i = 0; i < Values.size(); i++) m_Views.get(i).show(Values.get(i));
+            ObservableList<Node> children = m_Box.getChildren();
+            if (children.size() > Values.size()) children.remove(Values.size(), children.size());
+            for (int i = children.size(); i < Values.size(); i++) children.add(m_Views.get(i).getNode());
+        }
+    }
+
+    private final static class TextView extends ValueView {
+        private final Label m_Label = new Label();
+        private final CMetamodel.Feature m_Feature;
+
+        TextView(CMetamodel.Feature Feature) { m_Feature = Feature; }
+
+        @Override Node getNode() { return m_Label; }
+        @Override void show(Object Value) { m_Label.setText(getText(m_Feature, Value)); }
+    }
+
+    private final static class BooleanView extends ValueView {
+        private final CheckBox m_CheckBox = new CheckBox();
+
+        BooleanView() { m_CheckBox.setDisable(true); }
+
+        @Override Node getNode() { return m_CheckBox; }
+        @Override void show(Object Value) {
+            if (first(Value) instanceof Boolean value) {
+                m_CheckBox.setSelected(value);
+                m_CheckBox.setIndeterminate(false);
+                m_CheckBox.setStyle("");
+            } else {
+                m_CheckBox.setIndeterminate(true);
+                m_CheckBox.setStyle("-fx-opacity: 1; -fx-background-color: lightgray;");
+            }
+        }
+    }
+
+    private final static class DirectionView extends ValueView {
+        private final Label m_Label = new Label();
+
+        DirectionView() { m_Label.setStyle("-fx-font-size: 16px; -fx-alignment: center;"); }
+
+        @Override Node getNode() { return m_Label; }
+        @Override void show(Object Value) {
+            Object value = first(Value);
+            CMetamodel.INTERFACE_DIRECTIONS direction = (value instanceof CMetamodel.INTERFACE_DIRECTIONS d) ? d : (null == value) ? CMetamodel.INTERFACE_DIRECTIONS.NO_DIRECTION : CMetamodel.INTERFACE_DIRECTIONS.valueOf(value.toString());
+            m_Label.setText(switch (direction) {
+                case FIRST_TO_SECOND -> "\u2192"; // →
+                case SECOND_TO_FIRST -> "\u2190"; // ←
+                case BOTH_DIRECTIONS -> "\u2194"; // ↔
+                default -> "-";
+            });
+        }
+    }
+
+    private final static class BuildingBlockView extends ValueView {
+        private final Button m_Button = new Button();
+
+        BuildingBlockView() { m_Button.setMaxWidth(Double.MAX_VALUE); }
+
+        @Override Node getNode() { return m_Button; }
+        @Override void show(Object Value) {
+            CDatamodel.BuildingBlock block = (CDatamodel.BuildingBlock)Value;
+            m_Button.setText(block.name + " (" + block.id + ")");
+        }
+    }
+
+    private final static class LiteralView extends ValueView {
+        private final HBox m_Box = new HBox(5);
+        private final Label m_Name = new Label();
+        private final Label m_Color = new Label();
+        private CMetamodel.Literal m_Literal;
+
+        LiteralView() {
+            m_Name.setMaxWidth(Double.MAX_VALUE);
+            HBox.setHgrow(m_Name, Priority.ALWAYS);
+            m_Color.setMinWidth(24);
+            m_Color.setMaxWidth(24);
+            m_Color.setPrefWidth(24);
+            m_Box.getChildren().addAll(m_Name, m_Color);
+        }
+
+        @Override Node getNode() { return m_Box; }
+        @Override void show(Object Value) {
+            CMetamodel.Literal literal = (CMetamodel.Literal)Value;
+            if (literal == m_Literal) return;
+            m_Literal = literal;
+            m_Name.setText(literal.name);
+            m_Color.setStyle("-fx-background-color: " + (null != literal.color ? String.format("#%06X", literal.color.getRGB() & 0xFFFFFF) : "#cccccc") + "; -fx-border-color: #888; -fx-border-radius: 3; -fx-background-radius: 3;");
+        }
+    }
+
+    /** Shows the building blocks referenced by an element, sorted by name. */
+    private final static class BuildingBlocksView extends ValueView {
+        private final ValueListView<BuildingBlockView> m_List = new ValueListView<>(BuildingBlockView::new);
+
+        @Override Node getNode() { return m_List.getNode(); }
+        @Override void show(Object Value) {
+            List<CDatamodel.BuildingBlock> blocks = (Value instanceof List<?> list) ? new ArrayList<>((List<CDatamodel.BuildingBlock>)list) : new ArrayList<>();
+            blocks.sort(Comparator.comparing(block -> block.name != null ? block.name : ""));
+            m_List.show(blocks);
+        }
+    }
+
+    /** Shows the literals of an enumeration value, sorted by name. */
+    private final static class LiteralsView extends ValueView {
+        private final ValueListView<LiteralView> m_List = new ValueListView<>(LiteralView::new);
+
+        @Override Node getNode() { return m_List.getNode(); }
+        @Override void show(Object Value) {
+            List<CMetamodel.Literal> literals = (Value instanceof List<?> list) ? new ArrayList<>((List<CMetamodel.Literal>)list) : new ArrayList<>();
+            literals.sort(Comparator.comparing(literal -> literal.name));
+            m_List.show(literals);
+        }
+    }
+
+    private final static class UnhandledView extends ValueView {
+        private final Label m_Label = new Label("todo");
+
+        @Override Node getNode() { return m_Label; }
+        @Override void show(Object Value) {}
+    }
+
+    /** Gets the first value of a multi-valued feature, or the value itself. */
+    static Object first(Object Value) {
+        if (Value instanceof List<?> list) return list.isEmpty() ? null : list.getFirst();
+        return Value;
+    }
+
+    /**
+     * Gets the text shown for a value of a text, number or date feature.
+     *
+     * @return The text, empty for a missing value.
+     */
+    static String getText(CMetamodel.Feature Feature, Object Value) {
+        Object value = first(Value);
+        return switch (Feature.featureType) {
+            case DATE -> (value instanceof Instant instant) ? DATE_FORMAT.format(instant) : "";
+            case DATE_TIME -> (value instanceof Instant instant) ? DATE_TIME_FORMAT.format(instant) : "";
+            default -> (null == value) ? "" : value.toString();
+        };
+    }
+
+    private static ValueView createView(CMetamodel.Feature Feature) {
+        switch (Feature.featureType) {
+            case BOOLEAN: return new BooleanView();
+            case DATE:
+            case DATE_TIME:
+            case DECIMAL:
+            case INTEGER:
+            case RICHTEXT:
+            case STRING: return new TextView(Feature);
+            case INTERFACE_DIRECTION: return new DirectionView();
+            case ENUMERATION: return new LiteralsView();
+            default: {
+                if ((CMetamodel.FeatureType.SELF_RELATION == Feature.featureType) || Feature.referencesBuildingblock()) return new BuildingBlocksView();
+                LUYViewer.LOGGER.info("Unhandled feature: Feature type: " + Feature.type + " (ref. BB: " + Feature.referencesBuildingblock() + ")");
+                return new UnhandledView();
+            }
+        }
+    }
+
+    /** Cell showing the value of a feature of the row's element. */
+    static final class FeatureCell extends TableCell<CDatamodel.Element, Object> {
+        private final ValueView m_View;
+
+        FeatureCell(CMetamodel.Feature Feature) { m_View = createView(Feature); }
+
+        @Override protected void updateItem(Object Item, boolean Empty) {
+            super.updateItem(Item, Empty);
+            setText(null);
+            if (Empty) { setGraphic(null); return; }
+            m_View.show(Item);
+            setGraphic(m_View.getNode());
+        }
+    }
+
+    /**
+     * Cell showing the value of a feature of the relationships of the row's element, one line per relationship.
+     * The value of the cell is the list of relationships.
+     */
+    static final class RelationshipCell extends TableCell<CDatamodel.Element, Object> {
+        private final CMetamodel.Feature m_SubFeature;
+        private final ValueListView<ValueView> m_List;
+        private final List<Object> m_Values = new ArrayList<>();
+
+        RelationshipCell(CMetamodel.Feature SubFeature) {
+            m_SubFeature = SubFeature;
+            m_List = new ValueListView<>(() -> {
+                ValueView view = createView(SubFeature);
+                if (view.getNode() instanceof Region region) {
+                    region.setMinHeight(ROW_HEIGHT);
+                    region.setPrefHeight(ROW_HEIGHT);
+                    region.setMaxHeight(ROW_HEIGHT);
+                }
+                return view;
+            });
+        }
+
+        @Override protected void updateItem(Object Item, boolean Empty) {
+            super.updateItem(Item, Empty);
+            setText(null);
+            if (Empty) { setGraphic(null); return; }
+            m_Values.clear();
+            int maxRows = 0;
+            if (Item instanceof List<?> list) for (Object relationship : list) {
+                if (relationship instanceof CDatamodel.Element element) {
+                    m_Values.add(element.AdditionalData.get(m_SubFeature.persistentName));
+                    maxRows += element.getMaxValues();
+                }
+            }
+            m_List.show(m_Values);
+            VBox box = (VBox)m_List.getNode();
+            double height = (ROW_HEIGHT + 2) * Math.max(1, maxRows);
+            box.setMinHeight(height);
+            box.setPrefHeight(height);
+            box.setMaxHeight(height);
+            setGraphic(box);
+        }
+    }
+}
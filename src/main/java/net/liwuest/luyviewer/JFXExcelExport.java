@@ -0,0 +1,106 @@
+package net.liwuest.luyviewer;
+
+import javafx.concurrent.Task;
+import net.liwuest.luyviewer.model.CDatamodel;
+import net.liwuest.luyviewer.model.CMetamodel;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+/**
+ * Exports rows of {@link JFXBuildingBlockList} to an Excel file (XLSX) in the background. The rows are written through a streaming workbook that
+ * keeps only a window of rows in memory, while the values of the next chunk of rows are formatted in parallel. Column widths are estimated from
+ * a sample of the rows. If the task is cancelled, no file is written.
+ */
+final class JFXExcelExport extends Task<Integer> {
+    /** Rows kept in memory by the workbook, older ones are flushed to a temporary file. */
+    private final static int ROW_WINDOW = 100;
+    /** Rows formatted ahead at once. */
+    private final static int CHUNK_SIZE = 1000;
+    private final static int SAMPLE_SIZE = 100;
+    /** Widest column in characters, up to the maximum of Excel. */
+    private final static int MAX_COLUMN_CHARACTERS = 80;
+    private final static int MAX_TEXT_LENGTH = SpreadsheetVersion.EXCEL2007.getMaxTextLength();
+
+    private final File m_File;
+    private final String m_SheetName;
+    private final List<CMetamodel.Feature> m_Features;
+    private final List<CDatamodel.Element> m_Rows;
+
+    /**
+     * @param File The file to write. The extension {@code .xlsx} is added if missing.
+     * @param SheetName The name of the sheet.
+     * @param Features The features to export, one per column.
+     * @param Rows The elements to export, one per row. Copied, so the table may change meanwhile.
+     */
+    JFXExcelExport(File File, String SheetName, Collection<CMetamodel.Feature> Features, Collection<? extends CDatamodel.Element> Rows) {
+        m_File = File.getAbsolutePath().toLowerCase().endsWith(".xlsx") ? File : new File(File.getAbsolutePath() + ".xlsx");
+        m_SheetName = SheetName;
+        m_Features = Features.stream().filter(Objects::nonNull).toList();
+        m_Rows = List.copyOf(Rows);
+    }
+
+    private String format(CDatamodel.Element Element, CMetamodel.Feature Feature) {
+        Object value = Element.AdditionalData.get(Feature.persistentName);
+        String text = (null != value) ? value.toString() : "";
+        return (MAX_TEXT_LENGTH < text.length()) ? text.substring(0, MAX_TEXT_LENGTH) : text;
+    }
+
+    /** Formats the values of rows {@code From} to {@code To} (exclusive) in parallel. */
+    private String[][] format(int From, int To) {
+        return IntStream.range(From, To).parallel().mapToObj(row -> {
+            String[] values = new String[m_Features.size()];
+            for (int column = 0; column < values.length; column++) values[column] = format(m_Rows.get(row), m_Features.get(column));
+            return values;
+        }).toArray(String[][]::new);
+    }
+    private CompletableFuture<String[][]> formatAhead(int From) { return CompletableFuture.supplyAsync(() -> format(From, Math.min(m_Rows.size(), From + CHUNK_SIZE))); }
+
+    /** Sets the width of every column to the longest of its header and its values in evenly distributed rows. */
+    private void estimateColumnWidths(Sheet Sheet) {
+        int step = Math.max(1, m_Rows.size() / SAMPLE_SIZE);
+        for (int column = 0; column < m_Features.size(); column++) {
+            int characters = m_Features.get(column).name.length();
+            for (int row = 0; row < m_Rows.size(); row += step) characters = Math.max(characters, format(m_Rows.get(row), m_Features.get(column)).length());
+            Sheet.setColumnWidth(column, (Math.min(MAX_COLUMN_CHARACTERS, characters) + 2) * 256);
+        }
+    }
+
+    @Override protected Integer call() throws Exception {
+        updateProgress(0, m_Rows.size());
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_WINDOW);
+        try {
+            workbook.setCompressTempFiles(true);
+            Sheet sheet = workbook.createSheet(m_SheetName);
+            Row headerRow = sheet.createRow(0);
+            for (int column = 0; column < m_Features.size(); column++) headerRow.createCell(column).setCellValue(m_Features.get(column).name);
+            estimateColumnWidths(sheet);
+
+            CompletableFuture<String[][]> next = formatAhead(0);
+            for (int from = 0; from < m_Rows.size(); from += CHUNK_SIZE) {
+                String[][] chunk = next.join();
+                // Format the next chunk while this one is written
+                if (from + CHUNK_SIZE < m_Rows.size()) next = formatAhead(from + CHUNK_SIZE);
+                for (int i = 0; i < chunk.length; i++) {
+                    Row row = sheet.createRow(from + i + 1);
+                    for (int column = 0; column < chunk[i].length; column++) row.createCell(column).setCellValue(chunk[i][column]);
+                }
+                if (isCancelled()) { next.cancel(false); return null; }
+                updateProgress(from + chunk.length, m_Rows.size());
+            }
+            if (isCancelled()) { next.cancel(false); return null; }
+            try (FileOutputStream fos = new FileOutputStream(m_File)) { workbook.write(fos); }
+            return m_Rows.size();
+        } finally {
+            // Also deletes the temporary files
+            workbook.close();
+        }
+    }
+}
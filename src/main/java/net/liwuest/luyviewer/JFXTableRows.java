@@ -0,0 +1,53 @@
+package net.liwuest.luyviewer;
+
+import javafx.collections.ObservableListBase;
+import net.liwuest.luyviewer.model.CDatamodel;
+
+import java.util.*;
+
+/**
+ * Rows of the table of {@link JFXBuildingBlockList}. The table stays bound to the same list: a new order of the same elements is applied as a
+ * permutation, so the table keeps its scroll position and selection, and only other elements replace the rows. Read-only for the table, which
+ * therefore does not sort it itself.
+ */
+final class JFXTableRows extends ObservableListBase<CDatamodel.Element> {
+    private List<CDatamodel.Element> m_Rows = List.of();
+
+    @Override public CDatamodel.Element get(int Index) { return m_Rows.get(Index); }
+    @Override public int size() { return m_Rows.size(); }
+
+    /**
+     * Shows elements as rows.
+     *
+     * @param Elements The elements in the order to show.
+     * @return {@code true} if only the order of the rows changed.
+     */
+    boolean show(Collection<? extends CDatamodel.Element> Elements) {
+        List<CDatamodel.Element> rows = new ArrayList<>(Elements);
+        if (rows.isEmpty() && m_Rows.isEmpty()) return true;
+        int[] permutation = getPermutation(rows);
+        beginChange();
+        if (null != permutation) nextPermutation(0, rows.size(), permutation);
+        else {
+            if (!m_Rows.isEmpty()) nextRemove(0, m_Rows);
+            if (!rows.isEmpty()) nextAdd(0, rows.size());
+        }
+        m_Rows = rows;
+        endChange();
+        return null != permutation;
+    }
+
+    /** Gets the new position of every current row, {@code null} if the rows are not a reordering of the current ones. */
+    private int[] getPermutation(List<CDatamodel.Element> Rows) {
+        if (Rows.size() != m_Rows.size()) return null;
+        Map<CDatamodel.Element, Integer> positions = new IdentityHashMap<>(Rows.size());
+        for (int i = 0; i < Rows.size(); i++) positions.put(Rows.get(i), i);
+        int[] result = new int[m_Rows.size()];
+        for (int i = 0; i < m_Rows.size(); i++) {
+            Integer position = positions.get(m_Rows.get(i));
+            if (null == position) return null;
+            result[i] = position;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,120 @@
+package net.liwuest.luyviewer.model;
+
+import java.util.*;
+
+/**
+ * The attribute map of an element ({@link CDatamodel.Element#AdditionalData}).
+ * Until the element is attached to a {@link CColumnStore}, this is a plain wrapper of the element's data map.
+ * Afterwards the values held by the store's columns are removed from the map and read from the columns on access,
+ * so existing code keeps working unchanged. Entries are then iterated in key order, like the data map read from LUY.
+ */
+final class CAttributeMap extends AbstractMap<String, Object> {
+  private Map<String, Object> m_Values;
+  private CColumnStore m_Store = null;
+  private int m_Row = -1;
+
+  CAttributeMap(Map<String, Object> Values) { m_Values = Values; }
+
+  /**
+   * Moves the values held by the given store out of this map. Must be called only once, before the element is shared with other threads.
+   *
+   * @param Store The column store of the element's type expression.
+   * @param Row The row of the element in the store.
+   */
+  void attach(CColumnStore Store, int Row) {
+    if (!(m_Values instanceof SortedMap)) m_Values = new TreeMap<>(m_Values);
+    for (int i = 0; i < Store.getColumnCount(); i++) {
+      if (Store.getColumn(i).isPresent(Row)) m_Values.remove(Store.getColumnName(i));
+    }
+    m_Store = Store;
+    m_Row = Row;
+  }
+
+  /** Gets a value kept in the map itself, ignoring the columns. */
+  Object getOwnValue(String Key) { return m_Values.get(Key); }
+  CColumnStore getColumnStore() { return m_Store; }
+  int getRow() { return m_Row; }
+
+  /**
+   * Gets the column holding the value of the given key for this element.
+   *
+   * @param PersistentName The key, i.e. the persistent name of a feature.
+   * @return The column, or {@code null} if the value is kept in the map itself.
+   */
+  CColumnStore.Column getColumn(String PersistentName) {
+    if (null == m_Store) return null;
+    CColumnStore.Column result = m_Store.getColumn(PersistentName);
+    return ((null != result) && result.isPresent(m_Row)) ? result : null;
+  }
+
+  private Object releaseColumnValue(Object Key) {
+    CColumnStore.Column column = (Key instanceof String key) ? getColumn(key) : null;
+    if (null == column) return null;
+    List<Object> result = List.copyOf(column.getValues(m_Row));
+    column.release(m_Row);
+    return result;
+  }
+
+  @Override public Object get(Object Key) {
+    Object result = m_Values.get(Key);
+    if ((null != result) || (null == m_Store) || !(Key instanceof String key)) return result;
+    CColumnStore.Column column = getColumn(key);
+    return (null == column) ? null : column.getValues(m_Row);
+  }
+
+  @Override public boolean containsKey(Object Key) { return m_Values.containsKey(Key) || ((Key instanceof String key) && (null != getColumn(key))); }
+
+  @Override public Object put(String Key, Object Value) {
+    Object columnValue = releaseColumnValue(Key);
+    Object previous = m_Values.put(Key, Value);
+    return (null != columnValue) ? columnValue : previous;
+  }
+
+  @Override public Object remove(Object Key) {
+    Object columnValue = releaseColumnValue(Key);
+    Object previous = m_Values.remove(Key);
+    return (null != columnValue) ? columnValue : previous;
+  }
+
+  @Override public int size() {
+    int result = m_Values.size();
+    if (null != m_Store) for (int i = 0; i < m_Store.getColumnCount(); i++) if (m_Store.getColumn(i).isPresent(m_Row)) result++;
+    return result;
+  }
+
+  @Override public Set<Entry<String, Object>> entrySet() {
+    if (null == m_Store) return m_Values.entrySet();
+    return new AbstractSet<>() {
+      @Override public Iterator<Entry<String, Object>> iterator() { return new EntryIterator(); }
+      @Override public int size() { return CAttributeMap.this.size(); }
+    };
+  }
+
+  /** Merges the entries of the map with the column values of this element, both in key order. */
+  private final class EntryIterator implements Iterator<Entry<String, Object>> {
+    private final Iterator<Entry<String, Object>> m_Own = m_Values.entrySet().iterator();
+    private Entry<String, Object> m_NextOwn = m_Own.hasNext() ? m_Own.next() : null;
+    private int m_NextColumn = nextColumn(0);
+
+    private int nextColumn(int From) {
+      int result = From;
+      while ((result < m_Store.getColumnCount()) && !m_Store.getColumn(result).isPresent(m_Row)) result++;
+      return result;
+    }
+
+    @Override public boolean hasNext() { return (null != m_NextOwn) || (m_NextColumn < m_Store.getColumnCount()); }
+
+    @Override public Entry<String, Object> next() {
+      if (!hasNext()) throw new NoSuchElementException();
+      boolean takeColumn = (m_NextColumn < m_Store.getColumnCount()) && ((null == m_NextOwn) || (0 > m_Store.getColumnName(m_NextColumn).compareTo(m_NextOwn.getKey())));
+      if (takeColumn) {
+        Entry<String, Object> result = new SimpleImmutableEntry<>(m_Store.getColumnName(m_NextColumn), m_Store.getColumn(m_NextColumn).getValues(m_Row));
+        m_NextColumn = nextColumn(m_NextColumn + 1);
+        return result;
+      }
+      Entry<String, Object> result = m_NextOwn;
+      m_NextOwn = m_Own.hasNext() ? m_Own.next() : null;
+      return result;
+    }
+  }
+}
@@ -0,0 +1,115 @@
+package net.liwuest.luyviewer.model;
+
+import java.util.*;
+
+/**
+ * Bitmap index of a feature with few distinct values (enumerations, booleans and interface directions).
+ * Maps each value to the set of ordinals (see {@link CFeatureIndexes#getElements(CMetamodel.TypeExpression)}) of the elements having it,
+ * so rules on the feature are answered by combining bit sets instead of visiting elements.
+ * <p>
+ * Enumerations are indexed by all their literals; booleans and interface directions by their first value only, as the operators compare the first value.
+ * All returned bit sets are copies, which the caller may modify.
+ */
+public final class CBitmapIndex {
+  private final Map<Object, BitSet> m_Bitmaps = new HashMap<>();
+  private final BitSet m_WithValue = new BitSet();
+  private final int m_Size;
+
+  private CBitmapIndex(int Size) { m_Size = Size; }
+
+  /**
+   * Checks whether a feature can be indexed by a bitmap index.
+   *
+   * @param Feature The feature.
+   * @return {@code true} for enumeration, boolean and interface direction features.
+   */
+  public static boolean supports(CMetamodel.Feature Feature) {
+    return switch (Feature.featureType) {
+      case ENUMERATION, BOOLEAN, INTERFACE_DIRECTION -> true;
+      default -> false;
+    };
+  }
+
+  static CBitmapIndex build(List<? extends CDatamodel.Element> Elements, CMetamodel.Feature Feature) {
+    CBitmapIndex result = new CBitmapIndex(Elements.size());
+    for (int ordinal = 0; ordinal < Elements.size(); ordinal++) {
+      Object value = Elements.get(ordinal).AdditionalData.get(Feature.persistentName);
+      if (CMetamodel.FeatureType.ENUMERATION == Feature.featureType) {
+        if (value instanceof Collection<?> values) for (Object v : values) result.add(v, ordinal);
+        else result.add(value, ordinal);
+      } else {
+        Object first = (value instanceof Collection<?> values) ? (values.isEmpty() ? null : values.iterator().next()) : value;
+        result.add(first, ordinal);
+      }
+    }
+    return result;
+  }
+
+  private void add(Object Value, int Ordinal) {
+    if (!(Value instanceof CMetamodel.Literal) && !(Value instanceof Boolean) && !(Value instanceof CMetamodel.INTERFACE_DIRECTIONS)) return;
+    m_Bitmaps.computeIfAbsent(Value, v -> new BitSet(m_Size)).set(Ordinal);
+    m_WithValue.set(Ordinal);
+  }
+
+  /** Gets the number of indexed elements. */
+  public int size() { return m_Size; }
+
+  /** Gets the indexed values. */
+  public Set<Object> getValues() { return Collections.unmodifiableSet(m_Bitmaps.keySet()); }
+
+  /**
+   * Gets the elements having the given value.
+   *
+   * @param Value The value.
+   * @return The ordinals of the elements.
+   */
+  public BitSet get(Object Value) {
+    BitSet result = m_Bitmaps.get(Value);
+    return (null == result) ? new BitSet() : (BitSet)result.clone();
+  }
+
+  /**
+   * Gets the elements having at least one of the given values.
+   *
+   * @param Values The values.
+   * @return The ordinals of the elements.
+   */
+  public BitSet getAny(Collection<?> Values) {
+    BitSet result = new BitSet();
+    for (Object value : Values) {
+      BitSet bitmap = m_Bitmaps.get(value);
+      if (null != bitmap) result.or(bitmap);
+    }
+    return result;
+  }
+
+  /**
+   * Gets the elements having exactly the given values (and no others).
+   *
+   * @param Values The values, not empty.
+   * @return The ordinals of the elements.
+   */
+  public BitSet getExactly(Collection<?> Values) {
+    BitSet result = null;
+    for (Object value : Values) {
+      BitSet bitmap = m_Bitmaps.get(value);
+      if (null == bitmap) return new BitSet();
+      if (null == result) result = (BitSet)bitmap.clone();
+      else result.and(bitmap);
+    }
+    if (null == result) return new BitSet();
+    for (Map.Entry<Object, BitSet> e : m_Bitmaps.entrySet()) if (!Values.contains(e.getKey())) result.andNot(e.getValue());
+    return result;
+  }
+
+  /** Gets the elements having any value. */
+  public BitSet getWithValue() { return (BitSet)m_WithValue.clone(); }
+
+  /** Gets the elements having no value. */
+  public BitSet getWithoutValue() {
+    BitSet result = new BitSet(m_Size);
+    result.set(0, m_Size);
+    result.andNot(m_WithValue);
+    return result;
+  }
+}
@@ -0,0 +1,234 @@
+package net.liwuest.luyviewer.model;
+
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Column-oriented storage of the scalar attributes of all elements of one type expression.
+ * Each feature of a scalar type (boolean, number, date, text, interface direction) gets a column holding the values of all elements
+ * in a primitive array. An offset array maps an element's row to its values, which supports multi-valued features, and bitmaps
+ * record which rows have a value at all and which values are null.
+ * <p>
+ * Columns are built once after loading (see {@link CDatamodel#load(String)}) and are read-only afterwards, so they may be shared between threads.
+ * Elements keep access through {@link CDatamodel.Element#AdditionalData}, which reads the columns for the features stored here,
+ * and offer typed access through {@link CDatamodel.Element#getColumn(CMetamodel.Feature)}.
+ */
+public final class CColumnStore {
+  /**
+   * The values of a single feature of all elements of a type expression.
+   * The values of the element in row {@code Row} are at the positions {@code offset(Row)} up to {@code offset(Row + 1)} of the typed value array.
+   */
+  public abstract static class Column {
+    public final CMetamodel.Feature feature;
+    private final BitSet m_Rows = new BitSet();
+    private final BitSet m_NullValues = new BitSet();
+    private final int[] m_Offsets;
+
+    private Column(CMetamodel.Feature Feature, int[] Offsets) { feature = Feature; m_Offsets = Offsets; }
+
+    /** Returns {@code true} if the value of the element in the given row is held by this column. */
+    public final boolean isPresent(int Row) { return m_Rows.get(Row); }
+    /** Returns the number of values of the element in the given row. */
+    public final int size(int Row) { return m_Offsets[Row + 1] - m_Offsets[Row]; }
+    /** Returns {@code true} if the value with the given index of the element in the given row is null. */
+    public final boolean isNull(int Row, int Index) { return m_NullValues.get(position(Row, Index)); }
+    final int position(int Row, int Index) { return m_Offsets[Row] + Index; }
+    final boolean isNullAt(int Position) { return m_NullValues.get(Position); }
+    /** Stops holding the value of the element in the given row, as it has been replaced in its attribute map. */
+    final void release(int Row) { m_Rows.clear(Row); }
+
+    abstract Object box(int Position);
+    abstract void set(int Position, Object Value);
+    abstract boolean accepts(Object Value);
+
+    /** Gets the values of the element in the given row as (boxed) immutable list, the way they were kept in the attribute map. */
+    List<Object> getValues(int Row) { return new ValueList(Row); }
+
+    /** Immutable list view of the values of one row. */
+    class ValueList extends AbstractList<Object> {
+      final int m_Offset, m_Size;
+      ValueList(int Row) { m_Offset = m_Offsets[Row]; m_Size = Column.this.size(Row); }
+      @Override public Object get(int Index) {
+        Objects.checkIndex(Index, m_Size);
+        return isNullAt(m_Offset + Index) ? null : box(m_Offset + Index);
+      }
+      @Override public int size() { return m_Size; }
+    }
+  }
+
+  public final static class BooleanColumn extends Column {
+    private final BitSet m_Values = new BitSet();
+    private BooleanColumn(CMetamodel.Feature Feature, int[] Offsets) { super(Feature, Offsets); }
+    public boolean getBoolean(int Row, int Index) { return m_Values.get(position(Row, Index)); }
+    @Override Object box(int Position) { return m_Values.get(Position); }
+    @Override void set(int Position, Object Value) { m_Values.set(Position, (Boolean)Value); }
+    @Override boolean accepts(Object Value) { return Value instanceof Boolean; }
+  }
+
+  public final static class IntegerColumn extends Column {
+    private final int[] m_Values;
+    private IntegerColumn(CMetamodel.Feature Feature, int[] Offsets, int ValueCount) { super(Feature, Offsets); m_Values = new int[ValueCount]; }
+    public int getInt(int Row, int Index) { return m_Values[position(Row, Index)]; }
+    @Override Object box(int Position) { return m_Values[Position]; }
+    @Override void set(int Position, Object Value) { m_Values[Position] = (Integer)Value; }
+    @Override boolean accepts(Object Value) { return Value instanceof Integer; }
+  }
+
+  public final static class DecimalColumn extends Column {
+    private final double[] m_Values;
+    private DecimalColumn(CMetamodel.Feature Feature, int[] Offsets, int ValueCount) { super(Feature, Offsets); m_Values = new double[ValueCount]; }
+    public double getDouble(int Row, int Index) { return m_Values[position(Row, Index)]; }
+    @Override Object box(int Position) { return m_Values[Position]; }
+    @Override void set(int Position, Object Value) { m_Values[Position] = (Double)Value; }
+    @Override boolean accepts(Object Value) { return Value instanceof Double; }
+  }
+
+  /** Dates and date times as seconds since the epoch. Nanoseconds are kept only if any value has some. */
+  public final static class InstantColumn extends Column {
+    private final long[] m_EpochSeconds;
+    private int[] m_Nanos = null;
+    private InstantColumn(CMetamodel.Feature Feature, int[] Offsets, int ValueCount) { super(Feature, Offsets); m_EpochSeconds = new long[ValueCount]; }
+    public long getEpochSecond(int Row, int Index) { return m_EpochSeconds[position(Row, Index)]; }
+    public int getNano(int Row, int Index) { return (null == m_Nanos) ? 0 : m_Nanos[position(Row, Index)]; }
+    public Instant getInstant(int Row, int Index) { return (Instant)box(position(Row, Index)); }
+    @Override Object box(int Position) { return Instant.ofEpochSecond(m_EpochSeconds[Position], (null == m_Nanos) ? 0 : m_Nanos[Position]); }
+    @Override void set(int Position, Object Value) {
+      Instant instant = (Instant)Value;
+      m_EpochSeconds[Position] = instant.getEpochSecond();
+      if (0 != instant.getNano()) {
+        if (null == m_Nanos) m_Nanos = new int[m_EpochSeconds.length];
+        m_Nanos[Position] = instant.getNano();
+      }
+    }
+    @Override boolean accepts(Object Value) { return Value instanceof Instant; }
+  }
+
+  /** Texts as codes of the data set's {@link CStringDictionary}. */
+  public final static class StringColumn extends Column {
+    private final CStringDictionary m_Dictionary;
+    private final int[] m_Codes;
+    private StringColumn(CMetamodel.Feature Feature, int[] Offsets, int ValueCount, CStringDictionary Dictionary) { super(Feature, Offsets); m_Codes = new int[ValueCount]; m_Dictionary = Dictionary; }
+    public CStringDictionary getDictionary() { return m_Dictionary; }
+    public int getCode(int Row, int Index) { return isNull(Row, Index) ? CStringDictionary.NOT_FOUND : m_Codes[position(Row, Index)]; }
+    public String getString(int Row, int Index) { return isNull(Row, Index) ? null : m_Dictionary.decode(m_Codes[position(Row, Index)]); }
+    @Override Object box(int Position) { return m_Dictionary.decode(m_Codes[Position]); }
+    @Override void set(int Position, Object Value) { m_Codes[Position] = m_Dictionary.encode((String)Value); }
+    @Override boolean accepts(Object Value) { return Value instanceof String; }
+    @Override List<Object> getValues(int Row) { return new EncodedValueList(Row); }
+
+    private final class EncodedValueList extends ValueList implements CStringDictionary.EncodedStrings {
+      EncodedValueList(int Row) { super(Row); }
+      @Override public CStringDictionary getDictionary() { return m_Dictionary; }
+      @Override public int getCode(int Index) {
+        Objects.checkIndex(Index, m_Size);
+        return isNullAt(m_Offset + Index) ? CStringDictionary.NOT_FOUND : m_Codes[m_Offset + Index];
+      }
+    }
+  }
+
+  public final static class DirectionColumn extends Column {
+    private final static CMetamodel.INTERFACE_DIRECTIONS[] DIRECTIONS = CMetamodel.INTERFACE_DIRECTIONS.values();
+    private final byte[] m_Values;
+    private DirectionColumn(CMetamodel.Feature Feature, int[] Offsets, int ValueCount) { super(Feature, Offsets); m_Values = new byte[ValueCount]; }
+    public CMetamodel.INTERFACE_DIRECTIONS getDirection(int Row, int Index) { return DIRECTIONS[m_Values[position(Row, Index)]]; }
+    @Override Object box(int Position) { return DIRECTIONS[m_Values[Position]]; }
+    @Override void set(int Position, Object Value) { m_Values[Position] = (byte)((CMetamodel.INTERFACE_DIRECTIONS)Value).ordinal(); }
+    @Override boolean accepts(Object Value) { return Value instanceof CMetamodel.INTERFACE_DIRECTIONS; }
+  }
+
+  public final CMetamodel.TypeExpression typeExpression;
+  /** Columns sorted by the persistent name of their feature, so attribute maps can be iterated in key order. */
+  private final Column[] m_Columns;
+  private final String[] m_ColumnNames;
+  private final Map<String, Column> m_ColumnsByName = new HashMap<>();
+  private final int m_RowCount;
+
+  private CColumnStore(CMetamodel.TypeExpression TypeExpression, List<Column> Columns, int RowCount) {
+    typeExpression = TypeExpression;
+    m_Columns = Columns.stream().sorted(Comparator.comparing(c -> c.feature.persistentName)).toArray(Column[]::new);
+    m_ColumnNames = Arrays.stream(m_Columns).map(c -> c.feature.persistentName).toArray(String[]::new);
+    for (Column column : m_Columns) m_ColumnsByName.put(column.feature.persistentName, column);
+    m_RowCount = RowCount;
+  }
+
+  /** Gets the number of elements in this store. */
+  public int getRowCount() { return m_RowCount; }
+
+  /**
+   * Gets the column of a feature.
+   *
+   * @param Feature The feature.
+   * @return The column, or {@code null} if the values of this feature are not stored in columns.
+   */
+  public Column getColumn(CMetamodel.Feature Feature) { return m_ColumnsByName.get(Feature.persistentName); }
+  Column getColumn(String PersistentName) { return m_ColumnsByName.get(PersistentName); }
+  Column getColumn(int Index) { return m_Columns[Index]; }
+  String getColumnName(int Index) { return m_ColumnNames[Index]; }
+  int getColumnCount() { return m_Columns.length; }
+
+  private static boolean isColumnar(CMetamodel.FeatureType FeatureType) {
+    return switch (FeatureType) {
+      case BOOLEAN, DATE, DATE_TIME, DECIMAL, INTEGER, RICHTEXT, STRING, INTERFACE_DIRECTION -> true;
+      default -> false;
+    };
+  }
+
+  private static Column createColumn(CMetamodel.Feature Feature, int[] Offsets, int ValueCount, CStringDictionary Dictionary) {
+    return switch (Feature.featureType) {
+      case BOOLEAN -> new BooleanColumn(Feature, Offsets);
+      case DATE, DATE_TIME -> new InstantColumn(Feature, Offsets, ValueCount);
+      case DECIMAL -> new DecimalColumn(Feature, Offsets, ValueCount);
+      case INTEGER -> new IntegerColumn(Feature, Offsets, ValueCount);
+      case INTERFACE_DIRECTION -> new DirectionColumn(Feature, Offsets, ValueCount);
+      default -> new StringColumn(Feature, Offsets, ValueCount, Dictionary);
+    };
+  }
+
+  /**
+   * Moves the scalar attributes of the given elements into a new column store.
+   * Values of unexpected type (e.g. a number in a text feature) are left in the element's attribute map.
+   * Must be called once per type expression before the elements are shared with other threads.
+   *
+   * @param TypeExpression The type expression of the elements.
+   * @param Elements The elements, all of the given type expression. Their iteration order defines the rows.
+   * @param Dictionary The string dictionary of the data set, used to encode texts.
+   * @return The column store.
+   */
+  static CColumnStore build(CMetamodel.TypeExpression TypeExpression, Collection<? extends CDatamodel.Element<?>> Elements, CStringDictionary Dictionary) {
+    CAttributeMap[] rows = Elements.stream().map(e -> (CAttributeMap)e.AdditionalData).toArray(CAttributeMap[]::new);
+    List<Column> columns = new ArrayList<>();
+    for (CMetamodel.Feature feature : TypeExpression.features) {
+      if (!isColumnar(feature.featureType)) continue;
+      // Collect the value lists of all rows, so the arrays can be allocated at their final size
+      List<?>[] values = new List<?>[rows.length];
+      int[] offsets = new int[rows.length + 1];
+      Column probe = createColumn(feature, offsets, 0, Dictionary);
+      boolean anyRow = false;
+      for (int row = 0; row < rows.length; row++) {
+        if ((rows[row].getOwnValue(feature.persistentName) instanceof List<?> list) && list.stream().allMatch(v -> (null == v) || probe.accepts(v))) {
+          values[row] = list;
+          anyRow = true;
+        }
+        offsets[row + 1] = offsets[row] + ((null == values[row]) ? 0 : values[row].size());
+      }
+      if (!anyRow) continue;
+
+      Column column = createColumn(feature, offsets, offsets[rows.length], Dictionary);
+      for (int row = 0; row < rows.length; row++) {
+        if (null == values[row]) continue;
+        column.m_Rows.set(row);
+        int position = offsets[row];
+        for (Object value : values[row]) {
+          if (null == value) column.m_NullValues.set(position);
+          else column.set(position, value);
+          position++;
+        }
+      }
+      columns.add(column);
+    }
+
+    CColumnStore result = new CColumnStore(TypeExpression, columns, rows.length);
+    for (int row = 0; row < rows.length; row++) rows[row].attach(result, row);
+    return result;
+  }
+}
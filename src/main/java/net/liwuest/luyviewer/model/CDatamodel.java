@@ -1,65 +1,34 @@
 package net.liwuest.luyviewer.model;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import net.liwuest.luyviewer.LUYViewer;
+import net.liwuest.luyviewer.util.CConfigService;
 import net.liwuest.luyviewer.util.CTranslations;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.time.Instant;
-import java.time.LocalDateTime;
-import java.time.ZoneOffset;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 
 public class CDatamodel {
   /**
    * Parses a date and time string into a {@link java.time.Instant} object.
-   * This function attempts to parse the input string using several common date-time formats.
+   * The common LUY layouts are parsed directly; other values are tried against several common date-time formats (see {@link CDateTimeParser}).
    * If no format matches, an IllegalArgumentException is thrown.
    *
    * @param dateTimeString The date and time string to parse.
    * @return An {@link Instant} representing the parsed date and time.
    * @throws IllegalArgumentException If the input string cannot be parsed by any of the predefined formats.
    */
-  static Instant parseToInstant(String dateTimeString) {
-    if (dateTimeString == null || dateTimeString.trim().isEmpty()) {
-      throw new IllegalArgumentException("Input date-time string cannot be null or empty.");
-    }
-
-    // Define a list of common date-time formatters to try
-    // Note: ZoneOffset.UTC is used as a default if no timezone information is present
-    // in the string, to convert LocalDateTime to Instant.
-    DateTimeFormatter[] formatters = {
-        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneOffset.UTC), // 2023-01-15 14:30:00
-        DateTimeFormatter.ofPattern("HH:mm:ss dd-MM-yyyy").withZone(ZoneOffset.UTC), // 14:30:00 15-01-2023
-        DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm:ss").withZone(ZoneOffset.UTC), // 15.01.2023 14:30:00
-        DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss").withZone(ZoneOffset.UTC), // 2023/01/15 14:30:00
-        DateTimeFormatter.ofPattern("MM-dd-yyyy HH:mm:ss").withZone(ZoneOffset.UTC), // 01-15-2023 14:30:00
-        DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss").withZone(ZoneOffset.UTC), // ISO-like without Z or offset
-        DateTimeFormatter.ISO_INSTANT, // Handles "2023-01-15T14:30:00Z" or "2023-01-15T14:30:00+01:00"
-        DateTimeFormatter.ISO_LOCAL_DATE_TIME.withZone(ZoneOffset.UTC) // Handles "2023-01-15T14:30:00"
-    };
-
-    for (DateTimeFormatter formatter : formatters) {
-      try {
-        // Attempt to parse directly to Instant if the formatter supports it (e.g., ISO_INSTANT)
-        return Instant.from(formatter.parse(dateTimeString));
-      } catch (DateTimeParseException e) {
-        // If parsing to Instant fails, try parsing to LocalDateTime and then convert
-        try {
-          LocalDateTime localDateTime = LocalDateTime.parse(dateTimeString, formatter);
-          return localDateTime.toInstant(ZoneOffset.UTC); // Assuming UTC if no timezone is specified
-        } catch (DateTimeParseException ignored) {
-          // Continue to the next formatter if this one fails
-        }
-      }
-    }
-
-    throw new IllegalArgumentException("Could not parse date-time string: \"" + dateTimeString + "\" with any known format.");
-  }
+  static Instant parseToInstant(String dateTimeString) { return CDateTimeParser.parse(dateTimeString); }
 
   public abstract static class Element<T extends CMetamodel.TypeExpression> implements Comparable<Element<T>> {
     public final T metamodelType;
@@ -71,7 +40,7 @@ public class CDatamodel {
     public final Map<CMetamodel.Feature, List<CMetamodel.Literal>> Enumerations = new HashMap<>();
     public final Map<CMetamodel.Feature, List<Element<CMetamodel.RelationshipTypeExpression>>> Relationships = new HashMap<>();
 
-    Element(T MetamodelTypeExpression, Map<String, Object> Data, CMetamodel Metamodel) {
+    Element(T MetamodelTypeExpression, Map<String, Object> Data, CMetamodel Metamodel, CStringDictionary Strings) {
       this.metamodelType = MetamodelTypeExpression;
       List<?> idData = (List<?>)Data.getOrDefault("id", new ArrayList<>());
       id = idData.isEmpty() ? -1 : Integer.parseInt(idData.getFirst().toString()); Data.put("id", id);
@@ -79,48 +48,58 @@ public class CDatamodel {
       List<?> lmtData = (List<?>)Data.getOrDefault("lastModificationTime", new ArrayList<>());
       lastModificationTime = parseToInstant(lmtData.isEmpty() ? "1970-01-01 00:00:00" : lmtData.getFirst().toString()); Data.put("lastModificationTime", lastModificationTime);
       List<?> lmuData = (List<?>)Data.getOrDefault("lastModificationUser", new ArrayList<>());
-      lastModificationUser = lmuData.isEmpty() ? CTranslations.INSTANCE.Unknown_Placeholder : lmuData.getFirst().toString(); Data.put("lastModificationUser", lastModificationUser);
+      lastModificationUser = Strings.intern(lmuData.isEmpty() ? CTranslations.INSTANCE.Unknown_Placeholder : lmuData.getFirst().toString()); Data.put("lastModificationUser", lastModificationUser);
 
       // Process enumeration attributes
       for (Map.Entry<String, Object> dataEntry : Data.entrySet()) {
-        MetamodelTypeExpression.features.stream().filter(f -> (CMetamodel.FeatureType.ENUMERATION == f.featureType) && f.persistentName.equals(dataEntry.getKey())).findFirst().ifPresent(f -> {
+        CMetamodel.Feature f = MetamodelTypeExpression.getFeature(dataEntry.getKey());
+        if ((null != f) && (CMetamodel.FeatureType.ENUMERATION == f.featureType)) {
           Enumerations.putIfAbsent(f, new ArrayList<>());
           if ((dataEntry.getValue() instanceof List<?> valueList) && !valueList.isEmpty()) {
-            Metamodel.EnumerationExpressions.stream().filter(ee -> ee.persistentName.equals(f.type)).findFirst().ifPresent(ee ->
-              valueList.forEach(value ->
-                ee.literals.stream().filter(l -> l.persistentName.equals(value.toString())).findFirst().ifPresent(literal -> Enumerations.get(f).add(literal))
-              )
-            );
+            CMetamodel.EnumerationExpression ee = Metamodel.getEnumerationExpression(f.type);
+            if (null != ee) valueList.forEach(value -> {
+              CMetamodel.Literal literal = ee.getLiteral(value.toString());
+              if (null != literal) Enumerations.get(f).add(literal);
+            });
           }
           dataEntry.setValue(Enumerations.get(f));
-        });
+        }
       }
 
-      AdditionalData = Data;
+      AdditionalData = new CAttributeMap(Data);
       // Transform types of additional data
-      AdditionalData.forEach((k, v) ->
-        MetamodelTypeExpression.features.stream().filter(f -> f.persistentName.equals(k)).findFirst().ifPresent(feature -> {
-          if (v instanceof List<?> valueList) AdditionalData.put(k, valueList.stream().map(value -> {
-            switch (feature.featureType) {
-              case BOOLEAN: return Boolean.parseBoolean(value.toString());
-              case DATE: try { return CDatamodel.parseToInstant(value.toString()); } catch (Exception e) { return null; }
-              case DATE_TIME: try { return CDatamodel.parseToInstant(value.toString()); } catch (Exception e) { return null; }
-              case DECIMAL: return Double.parseDouble(value.toString());
-              case INTEGER: return Integer.parseInt(value.toString());
-              case RICHTEXT: return value;
-              case STRING: return value;
-              case INTERFACE_DIRECTION: return CMetamodel.INTERFACE_DIRECTIONS.valueOf(value.toString());
-              case ENUMERATION: return value;
-              case RELATION: return value;
-              case SELF_RELATION: return value;
-              default: {
-                LUYViewer.LOGGER.warning("CDatamodel -> Element -> parse additional data, unhandled feature type: " + feature.type + " with value: " + value);
-                return value;
-              }
+      for (Map.Entry<String, Object> dataEntry : AdditionalData.entrySet()) {
+        CMetamodel.Feature feature = MetamodelTypeExpression.getFeature(dataEntry.getKey());
+        if ((null != feature) && (dataEntry.getValue() instanceof List<?> valueList)) dataEntry.setValue(valueList.stream().map(value -> {
+          switch (feature.featureType) {
+            case BOOLEAN: return Boolean.parseBoolean(value.toString());
+            case DATE: try { return CDatamodel.parseToInstant(value.toString()); } catch (Exception e) { return null; }
+            case DATE_TIME: try { return CDatamodel.parseToInstant(value.toString()); } catch (Exception e) { return null; }
+            case DECIMAL: return Double.parseDouble(value.toString());
+            case INTEGER: return Integer.parseInt(value.toString());
+            case RICHTEXT: return value;
+            case STRING: return (value instanceof String s) ? Strings.intern(s) : value;
+            case INTERFACE_DIRECTION: return CMetamodel.INTERFACE_DIRECTIONS.valueOf(value.toString());
+            case ENUMERATION: return value;
+            case RELATION: return value;
+            case SELF_RELATION: return value;
+            default: {
+              LUYViewer.LOGGER.warning("CDatamodel -> Element -> parse additional data, unhandled feature type: " + feature.type + " with value: " + value);
+              return value;
             }
-          }).toList());
-        })
-      );
+          }
+        }).toList());
+      }
+    }
+
+    /** Creates an element from values that have been converted already, e.g. read from a {@link CDatamodelSnapshot}. */
+    Element(T MetamodelTypeExpression, int Id, String ElementURI, Instant LastModificationTime, String LastModificationUser, Map<String, Object> Data) {
+      this.metamodelType = MetamodelTypeExpression;
+      id = Id;
+      elementURI = ElementURI;
+      lastModificationTime = LastModificationTime;
+      lastModificationUser = LastModificationUser;
+      AdditionalData = new CAttributeMap(Data);
     }
 
     abstract Set<CMetamodel.Feature> getFeatures();
@@ -153,6 +132,18 @@ public class CDatamodel {
       }).max(Integer::compare).orElse(1);
     }
 
+    /**
+     * Gets the column holding this element's values of the given feature, for typed access without boxing.
+     *
+     * @param Feature The feature.
+     * @return The column, or {@code null} if the values of this element are not stored in a column; then use {@link #AdditionalData}.
+     */
+    public final CColumnStore.Column getColumn(CMetamodel.Feature Feature) { return ((CAttributeMap)AdditionalData).getColumn(Feature.persistentName); }
+    /** Gets the row of this element in the columns returned by {@link #getColumn(CMetamodel.Feature)}. */
+    public final int getColumnRow() { return ((CAttributeMap)AdditionalData).getRow(); }
+    /** Gets the column store holding this element's values, {@code null} if its values are not stored in columns. */
+    public final CColumnStore getColumnStore() { return ((CAttributeMap)AdditionalData).getColumnStore(); }
+
     @Override public int compareTo(Element o) { return Integer.compare(this.id, o.id); }
 
     @Override public String toString() {
@@ -166,74 +157,291 @@ public class CDatamodel {
     public final String name;
     public final String description;
     public final int position;
-    BuildingBlock(Map<String, Object> Data, CMetamodel.SubstantialTypeExpression Type, CMetamodel Metamodel) {
-      super(Type, Data, Metamodel);
+    BuildingBlock(Map<String, Object> Data, CMetamodel.SubstantialTypeExpression Type, CMetamodel Metamodel, CStringDictionary Strings) {
+      super(Type, Data, Metamodel, Strings);
       List<?> hierarchy_levelData = (List<?>)Data.getOrDefault("$$hierarchy_level$$", new ArrayList<>());
       hierarchy_level = hierarchy_levelData.isEmpty() ? -1 : Integer.parseInt(hierarchy_levelData.getFirst().toString()); Data.put("$$hierarchy_level$$", hierarchy_level);
       List<?> nameData = (List<?>)Data.getOrDefault("name", new ArrayList<>());
-      name = nameData.isEmpty() ? CTranslations.INSTANCE.Unknown_Placeholder : nameData.getFirst().toString(); Data.put("name", name);
+      name = Strings.intern(nameData.isEmpty() ? CTranslations.INSTANCE.Unknown_Placeholder : nameData.getFirst().toString()); Data.put("name", name);
       List<?> descriptionData = (List<?>)Data.getOrDefault("description", new ArrayList<>());
       description = descriptionData.isEmpty() ? "" : descriptionData.getFirst().toString(); Data.put("description", description);
       List<?> positionData = (List<?>)Data.getOrDefault("position", new ArrayList<>());
       position = positionData.isEmpty() ? -1 : Integer.parseInt(positionData.getFirst().toString()); Data.put("position", position);
     }
+    BuildingBlock(CMetamodel.SubstantialTypeExpression Type, int Id, String ElementURI, Instant LastModificationTime, String LastModificationUser, Map<String, Object> Data) {
+      super(Type, Id, ElementURI, LastModificationTime, LastModificationUser, Data);
+      hierarchy_level = (Data.get("$$hierarchy_level$$") instanceof Integer i) ? i : -1;
+      name = (Data.get("name") instanceof String s) ? s : CTranslations.INSTANCE.Unknown_Placeholder;
+      description = (Data.get("description") instanceof String s) ? s : "";
+      position = (Data.get("position") instanceof Integer i) ? i : -1;
+    }
 
     @Override Set<CMetamodel.Feature> getFeatures() { return metamodelType.features; }
   }
 
   public final static class Relationship extends Element<CMetamodel.RelationshipTypeExpression> {
-    Relationship(Map<String, Object> Data, CMetamodel.RelationshipTypeExpression Type, CMetamodel Metamodel) { super(Type, Data, Metamodel); }
+    Relationship(Map<String, Object> Data, CMetamodel.RelationshipTypeExpression Type, CMetamodel Metamodel, CStringDictionary Strings) { super(Type, Data, Metamodel, Strings); }
+    Relationship(CMetamodel.RelationshipTypeExpression Type, int Id, String ElementURI, Instant LastModificationTime, String LastModificationUser, Map<String, Object> Data) {
+      super(Type, Id, ElementURI, LastModificationTime, LastModificationUser, Data);
+    }
 
     @Override Set<CMetamodel.Feature> getFeatures() { return metamodelType.features; }
   }
 
-  Element lookupById(int Id) {
-    List<? extends Element> r = BuildingBlocks.values().stream().map(l -> l.stream().filter(e -> e.id == Id).toList()).filter(l -> !l.isEmpty()).findFirst().orElse(null);
-    if (null == r) r = Relationships.values().stream().map(l -> l.stream().filter(e -> e.id == Id).toList()).filter(l -> !l.isEmpty()).findFirst().orElse(null);
-    if (null != r) return r.getFirst(); else return null;
+  /**
+   * Gets the element with the given id in constant time.
+   *
+   * @param Id The id of the element.
+   * @return The element, or {@code null} if no element with this id has been loaded.
+   */
+  Element lookupById(int Id) { return m_ElementsById.get(Id); }
+
+  /**
+   * Adds the element to the id index. If another element with the same id is indexed already, the one that is found first
+   * when iterating {@link #BuildingBlocks} and then {@link #Relationships} is kept.
+   *
+   * @param Element The element to index.
+   */
+  private void index(Element Element) {
+    Element previous = m_ElementsById.put(Element);
+    if ((null != previous) && precedes(previous, Element)) m_ElementsById.put(previous);
+  }
+  private static boolean precedes(Element First, Element Second) {
+    if ((First instanceof BuildingBlock) != (Second instanceof BuildingBlock)) return First instanceof BuildingBlock;
+    return 0 >= First.metamodelType.compareTo(Second.metamodelType);
   }
 
   public final Map<CMetamodel.SubstantialTypeExpression, Set<BuildingBlock>> BuildingBlocks = new TreeMap<>();
   public final Map<CMetamodel.RelationshipTypeExpression, Set<Relationship>> Relationships = new TreeMap<>();
   public final CMetamodel Metamodel;
+  /** Dictionary of the attribute values of this data set, see {@link CStringDictionary}. */
+  public final CStringDictionary Strings = new CStringDictionary();
+  /** Secondary indexes of this data model, see {@link CFeatureIndexes}. */
+  public final CFeatureIndexes Indexes = new CFeatureIndexes(this);
+  private final CElementIndex m_ElementsById = new CElementIndex();
+  private final Map<CMetamodel.TypeExpression, CColumnStore> m_ColumnStores = new HashMap<>();
 
-  private CDatamodel(CMetamodel Metamodel) { this.Metamodel = Metamodel; }
+  CDatamodel(CMetamodel Metamodel) { this.Metamodel = Metamodel; }
 
-  @SuppressWarnings("unchecked")
-  public static CDatamodel load(String filename) throws IOException {
-    ObjectMapper objectMapper = new ObjectMapper();
-    CDatamodel datamodel = new CDatamodel(CMetamodel.load(filename));
-
-    // Parse the JSON file as an array of objects
-    Map<String, Object>[] items = objectMapper.readValue(new File(filename + "_data.json"), Map[].class);
-
-    // Create elements
-    for (Map<String, Object> item : items) {
-      String typeExpressionName = item.getOrDefault("query", CTranslations.INSTANCE.Unknown_Placeholder).toString();
-      CMetamodel.TypeExpression typeExpression = datamodel.Metamodel.SubstantialTypeExpressions.stream().filter(ste -> ste.persistentName.equals(typeExpressionName)).map(ste -> (CMetamodel.TypeExpression)ste).findFirst().orElseGet(() -> datamodel.Metamodel.RelationshipTypeExpressions.stream().filter(rte -> rte.persistentName.equals(typeExpressionName)).findFirst().get());
-      if (item.getOrDefault("result", new ArrayList<>()) instanceof List<?> elements) {
-        for (Object element : elements) {
-          if (element instanceof Map rawElementData) {
-            // Make copy to be able to delete "processed" data
-            Map<String, Object> elementData = new TreeMap<>(rawElementData);
-            Element e = (typeExpression instanceof CMetamodel.SubstantialTypeExpression) ? new BuildingBlock(elementData, (CMetamodel.SubstantialTypeExpression)typeExpression, datamodel.Metamodel) : new Relationship(elementData, (CMetamodel.RelationshipTypeExpression)typeExpression, datamodel.Metamodel);
-
-            if ((e instanceof BuildingBlock bb) && (typeExpression instanceof CMetamodel.SubstantialTypeExpression ste)) {
-              datamodel.BuildingBlocks.putIfAbsent(ste, new TreeSet<>());
-              datamodel.BuildingBlocks.get(ste).add(bb);
-            }
-            if ((e instanceof Relationship rel) && (typeExpression instanceof CMetamodel.RelationshipTypeExpression rte)) {
-              datamodel.Relationships.putIfAbsent(rte, new TreeSet<>());
-              datamodel.Relationships.get(rte).add(rel);
-            }
-          }
-        }
-      };
+  private final static TypeReference<TreeMap<String, Object>> ELEMENT_DATA_TYPE = new TypeReference<>() {};
+
+  @FunctionalInterface private interface ElementConsumer { void accept(TreeMap<String, Object> ElementData) throws IOException; }
+
+  /**
+   * Creates the element of the given type from its (already parsed) data. Does not modify the data model, so it may run on any thread.
+   *
+   * @param TypeExpression The type expression the element belongs to.
+   * @param ElementData The element data. The map is taken over by the element and must not be used afterwards.
+   * @return The new element, or {@code null} if the type expression is neither a substantial nor a relationship type.
+   */
+  private Element createElement(CMetamodel.TypeExpression TypeExpression, Map<String, Object> ElementData) {
+    if (TypeExpression instanceof CMetamodel.SubstantialTypeExpression ste) return new BuildingBlock(ElementData, ste, Metamodel, Strings);
+    else if (TypeExpression instanceof CMetamodel.RelationshipTypeExpression rte) return new Relationship(ElementData, rte, Metamodel, Strings);
+    else return null;
+  }
+
+  /**
+   * Gets the column store of the given type expression.
+   *
+   * @param TypeExpression The type expression.
+   * @return The column store, or {@code null} if columnar storage is disabled or there are no elements of this type expression.
+   */
+  public CColumnStore getColumnStore(CMetamodel.TypeExpression TypeExpression) { return m_ColumnStores.get(TypeExpression); }
+
+  /** Moves the scalar attributes of all elements into one column store per type expression. */
+  void buildColumnStores() {
+    BuildingBlocks.forEach((type, elements) -> m_ColumnStores.put(type, CColumnStore.build(type, elements, Strings)));
+    Relationships.forEach((type, elements) -> m_ColumnStores.put(type, CColumnStore.build(type, elements, Strings)));
+  }
+
+  /**
+   * Adds the element to the data model and its id index. Must be called from a single thread, in reading order.
+   *
+   * @param Element The element to add.
+   */
+  void addElement(Element Element) {
+    if ((Element instanceof BuildingBlock bb) && (bb.metamodelType instanceof CMetamodel.SubstantialTypeExpression ste)) {
+      BuildingBlocks.putIfAbsent(ste, new TreeSet<>());
+      if (BuildingBlocks.get(ste).add(bb)) index(bb);
+    } else if ((Element instanceof Relationship rel) && (rel.metamodelType instanceof CMetamodel.RelationshipTypeExpression rte)) {
+      Relationships.putIfAbsent(rte, new TreeSet<>());
+      if (Relationships.get(rte).add(rel)) index(rel);
     }
+  }
 
-    // Resolve all kind of relations
-    datamodel.BuildingBlocks.values().forEach(bbList -> bbList.forEach(bb -> bb.parseRelationships(datamodel)));
-    datamodel.Relationships.values().forEach(relList -> relList.forEach(rel -> rel.parseRelationships(datamodel)));
+  /**
+   * Builds elements on a fork-join pool while the data file is still being read, and resolves their relationships afterwards.
+   * Element data is collected in batches of one type expression; each batch is turned into elements by a pool task.
+   * Finished batches are added to the data model strictly in reading order, so the result is identical to a sequential load.
+   * With a parallelism of 1 no pool is used and each element is built right away.
+   */
+  private final class ElementPipeline implements AutoCloseable {
+    private final static int BATCH_SIZE = 256;
+
+    private final ForkJoinPool m_Pool;
+    private final int m_MaxPendingBatches;
+    private final ArrayDeque<Future<List<Element>>> m_PendingBatches = new ArrayDeque<>();
+    private CMetamodel.TypeExpression m_BatchType = null;
+    private List<Map<String, Object>> m_Batch = new ArrayList<>(BATCH_SIZE);
+
+    ElementPipeline(int Parallelism) {
+      m_Pool = (1 < Parallelism) ? new ForkJoinPool(Parallelism) : null;
+      // Bound the number of batches in flight, so that read but not yet built element data cannot pile up
+      m_MaxPendingBatches = 4 * Parallelism;
+    }
+
+    /**
+     * Hands over the data of an element that has just been read.
+     *
+     * @param TypeExpression The type expression of the element.
+     * @param ElementData The element data. The map is taken over and must not be used afterwards.
+     */
+    void add(CMetamodel.TypeExpression TypeExpression, Map<String, Object> ElementData) throws IOException {
+      if (null == m_Pool) { addElement(createElement(TypeExpression, ElementData)); return; }
+      if (TypeExpression != m_BatchType) flushBatch();
+      m_BatchType = TypeExpression;
+      m_Batch.add(ElementData);
+      if (BATCH_SIZE <= m_Batch.size()) flushBatch();
+    }
+
+    private void flushBatch() throws IOException {
+      if (m_Batch.isEmpty()) return;
+      final CMetamodel.TypeExpression type = m_BatchType;
+      final List<Map<String, Object>> batch = m_Batch;
+      m_PendingBatches.addLast(m_Pool.submit(() -> batch.stream().map(elementData -> createElement(type, elementData)).toList()));
+      m_Batch = new ArrayList<>(BATCH_SIZE);
+      while (m_MaxPendingBatches < m_PendingBatches.size()) addBatch(m_PendingBatches.pollFirst());
+    }
+
+    private void addBatch(Future<List<Element>> Batch) throws IOException {
+      await(Batch).forEach(CDatamodel.this::addElement);
+    }
+
+    /** Waits until all handed over elements are built and added to the data model. */
+    void finish() throws IOException {
+      if (null == m_Pool) return;
+      flushBatch();
+      while (!m_PendingBatches.isEmpty()) addBatch(m_PendingBatches.pollFirst());
+    }
+
+    /** Resolves the relationships of all elements. Elements only modify themselves and read the finished id index, so this runs in parallel. */
+    void resolveRelationships() throws IOException {
+      List<Element> elements = new ArrayList<>(m_ElementsById.size());
+      BuildingBlocks.values().forEach(elements::addAll);
+      Relationships.values().forEach(elements::addAll);
+      if (null == m_Pool) elements.forEach(e -> e.parseRelationships(CDatamodel.this));
+      else await(m_Pool.submit(() -> elements.parallelStream().forEach(e -> e.parseRelationships(CDatamodel.this))));
+    }
+
+    private static <T> T await(Future<T> Task) throws IOException {
+      try { return Task.get(); }
+      catch (InterruptedException Ex) { Thread.currentThread().interrupt(); throw new InterruptedIOException("Loading LUY data was interrupted"); }
+      catch (ExecutionException Ex) {
+        if (Ex.getCause() instanceof RuntimeException re) throw re;
+        if (Ex.getCause() instanceof Error err) throw err;
+        throw new IOException(Ex.getCause());
+      }
+    }
+
+    @Override public void close() { if (null != m_Pool) m_Pool.shutdownNow(); }
+  }
+
+  /**
+   * Gets the number of threads used to build the data model from the configuration ({@code load_parallelism}).
+   * A missing or non-positive value means one thread per available processor.
+   */
+  private static int getLoadParallelism() {
+    try {
+      int parallelism = CConfigService.getConfig().load_parallelism;
+      if (0 < parallelism) return parallelism;
+    } catch (IOException Ignore) { /* fall back to the number of processors */ }
+    return Runtime.getRuntime().availableProcessors();
+  }
+
+  /** Gets from the configuration ({@code columnar_storage}) whether element attributes are stored in a {@link CColumnStore}. */
+  private static boolean isColumnarStorageEnabled() {
+    try { return CConfigService.getConfig().columnar_storage; }
+    catch (IOException Ignore) { return false; }
+  }
+
+  /** Gets from the configuration ({@code text_index}) whether text features are indexed for substring rules (see {@link CTrigramIndex}). */
+  private static boolean isTextIndexEnabled() {
+    try { return CConfigService.getConfig().text_index; }
+    catch (IOException Ignore) { return false; }
+  }
+
+  /**
+   * Reads the elements of a {@code result} array one by one and hands them to {@code ElementConsumer}.
+   * Entries that are not JSON objects are skipped.
+   *
+   * @param Parser The parser, positioned on the {@code START_ARRAY} token of the result array.
+   * @param ObjectMapper The object mapper used to read a single element.
+   * @param ElementConsumer Receives the data of each element as soon as it has been read.
+   * @throws IOException If the JSON is malformed or cannot be read.
+   */
+  private static void readResult(JsonParser Parser, ObjectMapper ObjectMapper, ElementConsumer ElementConsumer) throws IOException {
+    JsonToken token;
+    while ((null != (token = Parser.nextToken())) && (JsonToken.END_ARRAY != token)) {
+      if (JsonToken.START_OBJECT == token) ElementConsumer.accept(ObjectMapper.readValue(Parser, ELEMENT_DATA_TYPE));
+      else Parser.skipChildren();
+    }
+  }
+
+  /**
+   * Reads a single query block (an object with {@code query} and {@code result}) and creates its elements.
+   * Elements are created while the result array is read. Only if the {@code result} array precedes the
+   * {@code query} name, the elements of this block are buffered until the type is known.
+   *
+   * @param Parser The parser, positioned on the {@code START_OBJECT} token of the query block.
+   * @param ObjectMapper The object mapper used to read a single element.
+   * @param Pipeline Builds the elements from the data read.
+   * @throws IOException If the JSON is malformed or the query references an unknown type expression.
+   */
+  private void readQuery(JsonParser Parser, ObjectMapper ObjectMapper, ElementPipeline Pipeline) throws IOException {
+    CMetamodel.TypeExpression typeExpression = null;
+    List<TreeMap<String, Object>> pendingElements = new ArrayList<>();
+    while (JsonToken.FIELD_NAME == Parser.nextToken()) {
+      String fieldName = Parser.currentName();
+      JsonToken valueToken = Parser.nextToken();
+      if ("query".equals(fieldName)) {
+        String typeExpressionName = (JsonToken.VALUE_NULL == valueToken) ? CTranslations.INSTANCE.Unknown_Placeholder : Parser.getValueAsString();
+        typeExpression = Metamodel.getSubstantialTypeExpression(typeExpressionName);
+        if (null == typeExpression) typeExpression = Metamodel.getRelationshipTypeExpression(typeExpressionName);
+        if (null == typeExpression) throw new IOException("Unknown type expression '" + typeExpressionName + "' in LUY data");
+        for (TreeMap<String, Object> elementData : pendingElements) Pipeline.add(typeExpression, elementData);
+        pendingElements.clear();
+      } else if ("result".equals(fieldName) && (JsonToken.START_ARRAY == valueToken)) {
+        final CMetamodel.TypeExpression te = typeExpression;
+        readResult(Parser, ObjectMapper, elementData -> { if (null != te) Pipeline.add(te, elementData); else pendingElements.add(elementData); });
+      } else Parser.skipChildren();
+    }
+    if (null == typeExpression) throw new IOException("Unknown type expression '" + CTranslations.INSTANCE.Unknown_Placeholder + "' in LUY data");
+  }
+
+  /**
+   * Loads the LUY data model (metamodel and data) stored with the given file name prefix.
+   * As long as the files are unchanged, the data model is read from its binary snapshot (see {@link CDatamodelSnapshot}).
+   * Otherwise it is loaded from JSON and a new snapshot is written.
+   * If enabled by {@code columnar_storage}, the scalar attributes are finally moved into column stores (see {@link CColumnStore}).
+   * If enabled by {@code text_index}, text indexes are then built in the background (see {@link CFeatureIndexes#buildTextIndexesInBackground()}).
+   *
+   * @param filename The file name prefix, i.e. without {@code _data.json} or {@code _metamodel.json}.
+   * @return The loaded data model.
+   * @throws IOException If the files cannot be read or parsed.
+   */
+  public static CDatamodel load(String filename) throws IOException {
+    // Taken before reading, so a snapshot never claims sources that have changed while loading
+    CDatamodelSnapshot.Sources sources = CDatamodelSnapshot.Sources.of(filename);
+    CMetamodel metamodel = CMetamodel.load(filename);
+    CDatamodel datamodel = CDatamodelSnapshot.read(filename, sources, metamodel);
+    if (null == datamodel) {
+      long sourceChecksum = CDatamodelSnapshot.checksum(filename);
+      datamodel = loadJson(filename, metamodel);
+      CDatamodelSnapshot.write(datamodel, filename, sources, sourceChecksum);
+    }
+    datamodel.Strings.endInterning();
+    if (isColumnarStorageEnabled()) datamodel.buildColumnStores();
+    if (isTextIndexEnabled()) datamodel.Indexes.buildTextIndexesInBackground();
 
     StringBuilder loadOutput = new StringBuilder("Loaded LUY data from file '" + filename + "'");
     loadOutput.append("\n\tBuilding blocks:");
@@ -244,4 +452,36 @@ public class CDatamodel {
 
     return datamodel;
   }
+
+  /**
+   * Loads the LUY data file with the given file name prefix.
+   * The data file is streamed: each element is built as soon as it has been read, so no tree of the whole file is held in memory.
+   * Elements are built and their relationships resolved on {@code load_parallelism} threads (see {@link ElementPipeline}).
+   *
+   * @param filename The file name prefix, i.e. without {@code _data.json}.
+   * @param Metamodel The metamodel of the data.
+   * @return The loaded data model.
+   * @throws IOException If the file cannot be read or parsed.
+   */
+  static CDatamodel loadJson(String filename, CMetamodel Metamodel) throws IOException {
+    ObjectMapper objectMapper = new ObjectMapper();
+    CDatamodel datamodel = new CDatamodel(Metamodel);
+
+    try (ElementPipeline pipeline = datamodel.new ElementPipeline(getLoadParallelism())) {
+      // Stream the JSON file, which is an array of query blocks, and create elements while reading
+      try (JsonParser parser = objectMapper.getFactory().createParser(new File(filename + "_data.json"))) {
+        if (JsonToken.START_ARRAY != parser.nextToken()) throw new IOException("LUY data file '" + filename + "_data.json' does not contain an array");
+        JsonToken token;
+        while ((null != (token = parser.nextToken())) && (JsonToken.END_ARRAY != token)) {
+          if (JsonToken.START_OBJECT == token) datamodel.readQuery(parser, objectMapper, pipeline);
+          else parser.skipChildren();
+        }
+      }
+      pipeline.finish();
+
+      // Resolve all kind of relations
+      pipeline.resolveRelationships();
+    }
+    return datamodel;
+  }
 }
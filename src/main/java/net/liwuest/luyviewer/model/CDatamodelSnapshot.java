@@ -0,0 +1,433 @@
+package net.liwuest.luyviewer.model;
+
+import net.liwuest.luyviewer.LUYViewer;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.zip.CRC32C;
+
+/**
+ * Compact binary snapshot of a loaded {@link CDatamodel}, stored next to the LUY data files as {@code <prefix>_snapshot.bin}.
+ * A snapshot holds the elements with their already converted values, so loading it needs neither JSON nor date parsing.
+ * Only the (small) metamodel is still read from JSON, as the snapshot refers to its types, features and literals by persistent name.
+ * <p>
+ * The header carries a format version, the sizes and modification times of the source files and their checksum. As long as sizes and
+ * modification times are unchanged, the snapshot is used without reading the source files. If only the modification times differ
+ * (e.g. the same data has been downloaded again), the checksum decides. A snapshot whose version does not match or whose
+ * source files have changed is ignored, and the data model is loaded from JSON and written to a new snapshot.
+ * <p>
+ * Files are read through channels only, never mapped: a mapped file stays locked until the mapping is garbage collected, which on Windows
+ * prevents replacing a stale snapshot and deleting or downloading the source files again.
+ */
+final class CDatamodelSnapshot {
+  private final static int MAGIC = 0x4C555953; // "LUYS"
+  /**
+   * Increment whenever the layout written by {@link Writer} changes, and also whenever values are converted differently while
+   * loading from JSON (see {@link CDatamodel.Element} and {@link CDateTimeParser}): a snapshot holds the converted values,
+   * so an older snapshot would otherwise keep the old conversion although its source files are unchanged.
+   */
+  private final static int FORMAT_VERSION = 2;
+  /** Magic, format version, {@link Sources} and checksum. */
+  private final static int HEADER_SIZE = 48;
+  /** Position of the {@link Sources} in the header. */
+  private final static int SOURCES_POSITION = 8;
+  private final static int CHECKSUM_CHUNK_SIZE = 1024 * 1024;
+
+  private final static byte KIND_BUILDING_BLOCK = 0;
+  private final static byte KIND_RELATIONSHIP = 1;
+
+  private final static byte VALUE_NULL = 0;
+  private final static byte VALUE_FALSE = 1;
+  private final static byte VALUE_TRUE = 2;
+  private final static byte VALUE_INTEGER = 3;
+  private final static byte VALUE_LONG = 4;
+  private final static byte VALUE_DOUBLE = 5;
+  private final static byte VALUE_STRING = 6;
+  private final static byte VALUE_INSTANT = 7;
+  private final static byte VALUE_DIRECTION = 8;
+  private final static byte VALUE_LITERAL = 9;
+  private final static byte VALUE_LIST = 10;
+  private final static byte VALUE_MAP = 11;
+  private final static byte VALUE_BIG_INTEGER = 12;
+  private final static byte VALUE_BIG_DECIMAL = 13;
+  /** Marks an additional data entry that is the element's resolved relationship list of the same feature. */
+  private final static byte VALUE_RELATIONSHIPS = 14;
+
+  private CDatamodelSnapshot() {}
+
+  static Path getPath(String Filename) { return Paths.get(Filename + "_snapshot.bin"); }
+
+  /**
+   * Sizes and modification times of the source files (metamodel and data) a snapshot is built from.
+   * They tell cheaply whether the source files may have changed since a snapshot was written.
+   */
+  record Sources(long MetamodelSize, long MetamodelModified, long DataSize, long DataModified) {
+    /**
+     * @param Filename The file name prefix of the LUY data files.
+     * @return The sizes and modification times of the source files now.
+     * @throws IOException If a source file cannot be accessed.
+     */
+    static Sources of(String Filename) throws IOException {
+      Path metamodel = Paths.get(Filename + "_metamodel.json"), data = Paths.get(Filename + "_data.json");
+      return new Sources(Files.size(metamodel), Files.getLastModifiedTime(metamodel).toMillis(), Files.size(data), Files.getLastModifiedTime(data).toMillis());
+    }
+    private static Sources read(ByteBuffer Buffer) { return new Sources(Buffer.getLong(), Buffer.getLong(), Buffer.getLong(), Buffer.getLong()); }
+    private void write(ByteBuffer Buffer) { Buffer.putLong(MetamodelSize).putLong(MetamodelModified).putLong(DataSize).putLong(DataModified); }
+    private boolean hasSameSizes(Sources Other) { return (MetamodelSize == Other.MetamodelSize) && (DataSize == Other.DataSize); }
+  }
+
+  /**
+   * Computes the checksum of the source files (metamodel and data) a snapshot is built from. This reads both files completely.
+   *
+   * @param Filename The file name prefix of the LUY data files.
+   * @return The checksum.
+   * @throws IOException If a source file cannot be read.
+   */
+  static long checksum(String Filename) throws IOException {
+    CRC32C crc = new CRC32C();
+    ByteBuffer buffer = ByteBuffer.allocateDirect(CHECKSUM_CHUNK_SIZE);
+    for (String suffix : new String[] { "_metamodel.json", "_data.json" }) {
+      try (FileChannel channel = FileChannel.open(Paths.get(Filename + suffix), StandardOpenOption.READ)) {
+        long size = 0;
+        for (int read = channel.read(buffer); 0 <= read; read = channel.read(buffer)) {
+          size += read;
+          buffer.flip();
+          crc.update(buffer);
+          buffer.clear();
+        }
+        crc.update((int)size);
+      }
+    }
+    return crc.getValue();
+  }
+
+  /**
+   * Reads the snapshot of the given LUY data files, if there is an up-to-date one.
+   *
+   * @param Filename The file name prefix of the LUY data files.
+   * @param Sources The sizes and modification times of the source files, see {@link Sources#of(String)}.
+   * @param Metamodel The metamodel loaded from the source files.
+   * @return The data model, or {@code null} if there is no snapshot or it is stale or unreadable.
+   */
+  static CDatamodel read(String Filename, Sources Sources, CMetamodel Metamodel) {
+    Path path = getPath(Filename);
+    if (!Files.isRegularFile(path)) return null;
+    CDatamodel result;
+    boolean touched;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      // Check the header before reading the whole snapshot
+      ByteBuffer header = readFully(channel, HEADER_SIZE);
+      if ((MAGIC != header.getInt()) || (FORMAT_VERSION != header.getInt())) {
+        LUYViewer.LOGGER.info("Snapshot '" + path + "' has another format and will be rebuilt");
+        return null;
+      }
+      Sources written = CDatamodelSnapshot.Sources.read(header);
+      long writtenChecksum = header.getLong();
+      // Only read the source files if they have been touched but still have the same size
+      touched = !Sources.equals(written);
+      if (touched && (!Sources.hasSameSizes(written) || (writtenChecksum != checksum(Filename)))) {
+        LUYViewer.LOGGER.info("Snapshot '" + path + "' is outdated and will be rebuilt");
+        return null;
+      }
+      long size = channel.size() - HEADER_SIZE;
+      if (Integer.MAX_VALUE < size) throw new IOException("Snapshot is too large to be read");
+      result = new Reader(readFully(channel, (int)size), Metamodel).read();
+    } catch (IOException | RuntimeException Ex) {
+      LUYViewer.LOGGER.log(Level.WARNING, "Could not read snapshot '" + path + "', it will be rebuilt", Ex);
+      return null;
+    }
+    if (touched) updateSources(path, Sources);
+    return result;
+  }
+
+  /** Stores new modification times of unchanged source files in a snapshot, so the next load does not compute their checksum again. Failures are logged only. */
+  private static void updateSources(Path Path, Sources Sources) {
+    try (FileChannel channel = FileChannel.open(Path, StandardOpenOption.WRITE)) {
+      ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE - SOURCES_POSITION - Long.BYTES);
+      Sources.write(buffer);
+      channel.write(buffer.flip(), SOURCES_POSITION);
+    } catch (IOException Ex) { LUYViewer.LOGGER.log(Level.WARNING, "Could not update snapshot '" + Path + "'", Ex); }
+  }
+
+  /** Reads the next bytes of a channel into a heap buffer, ready to be read. */
+  private static ByteBuffer readFully(FileChannel Channel, int Size) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(Size);
+    while (buffer.hasRemaining()) if (0 > Channel.read(buffer)) throw new IOException("Snapshot is truncated");
+    return buffer.flip();
+  }
+
+  /**
+   * Writes the snapshot of a data model that has just been loaded from the given LUY data files.
+   * Failures are logged only, as the snapshot is just a cache.
+   *
+   * @param Datamodel The data model to write.
+   * @param Filename The file name prefix of the LUY data files.
+   * @param Sources The sizes and modification times of the source files before they were loaded, see {@link Sources#of(String)}.
+   * @param SourceChecksum The checksum of the source files, see {@link #checksum(String)}.
+   */
+  static void write(CDatamodel Datamodel, String Filename, Sources Sources, long SourceChecksum) {
+    Path path = getPath(Filename);
+    Path temporaryPath = Paths.get(path + ".tmp");
+    try {
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryPath), 1 << 16))) {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        ByteBuffer sources = ByteBuffer.allocate(HEADER_SIZE - SOURCES_POSITION - Long.BYTES);
+        Sources.write(sources);
+        out.write(sources.array());
+        out.writeLong(SourceChecksum);
+        new Writer(out).write(Datamodel);
+      }
+      if (Integer.MAX_VALUE < Files.size(temporaryPath)) throw new IOException("Snapshot is too large to be read");
+      Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      LUYViewer.LOGGER.info("Wrote snapshot '" + path + "'");
+    } catch (IOException | RuntimeException Ex) {
+      LUYViewer.LOGGER.log(Level.WARNING, "Could not write snapshot '" + path + "'", Ex);
+      try { Files.deleteIfExists(temporaryPath); } catch (IOException Ignore) { /* nothing left to do */ }
+    }
+  }
+
+  /** Serializes a data model. Strings are written once and referred to by their number afterwards. */
+  private final static class Writer {
+    private final DataOutputStream m_Out;
+    private final Map<String, Integer> m_Strings = new HashMap<>();
+
+    Writer(DataOutputStream Out) { m_Out = Out; }
+
+    void write(CDatamodel Datamodel) throws IOException {
+      m_Out.writeInt(Datamodel.BuildingBlocks.size() + Datamodel.Relationships.size());
+      for (Map.Entry<CMetamodel.SubstantialTypeExpression, Set<CDatamodel.BuildingBlock>> e : Datamodel.BuildingBlocks.entrySet()) writeType(KIND_BUILDING_BLOCK, e.getKey(), e.getValue());
+      for (Map.Entry<CMetamodel.RelationshipTypeExpression, Set<CDatamodel.Relationship>> e : Datamodel.Relationships.entrySet()) writeType(KIND_RELATIONSHIP, e.getKey(), e.getValue());
+    }
+
+    private void writeType(byte Kind, CMetamodel.TypeExpression Type, Set<? extends CDatamodel.Element<?>> Elements) throws IOException {
+      m_Out.writeByte(Kind);
+      writeString(Type.persistentName);
+      m_Out.writeInt(Elements.size());
+      for (CDatamodel.Element<?> element : Elements) writeElement(element);
+    }
+
+    private void writeElement(CDatamodel.Element<?> Element) throws IOException {
+      m_Out.writeInt(Element.id);
+      writeString(Element.elementURI);
+      m_Out.writeLong(Element.lastModificationTime.getEpochSecond());
+      m_Out.writeInt(Element.lastModificationTime.getNano());
+      writeString(Element.lastModificationUser);
+
+      m_Out.writeInt(Element.Enumerations.size());
+      for (Map.Entry<CMetamodel.Feature, List<CMetamodel.Literal>> e : Element.Enumerations.entrySet()) {
+        writeString(e.getKey().persistentName);
+        m_Out.writeInt(e.getValue().size());
+        for (CMetamodel.Literal literal : e.getValue()) writeString(literal.persistentName);
+      }
+
+      m_Out.writeInt(Element.Relationships.size());
+      for (Map.Entry<CMetamodel.Feature, ? extends List<? extends CDatamodel.Element<?>>> e : Element.Relationships.entrySet()) {
+        writeString(e.getKey().persistentName);
+        m_Out.writeInt(e.getValue().size());
+        for (CDatamodel.Element<?> related : e.getValue()) m_Out.writeInt(related.id);
+      }
+
+      m_Out.writeInt(Element.AdditionalData.size());
+      for (Map.Entry<String, Object> e : Element.AdditionalData.entrySet()) {
+        writeString(e.getKey());
+        CMetamodel.Feature feature = Element.metamodelType.getFeature(e.getKey());
+        if ((null != feature) && (null != e.getValue()) && (e.getValue() == Element.Relationships.get(feature))) m_Out.writeByte(VALUE_RELATIONSHIPS);
+        else writeValue(e.getValue());
+      }
+    }
+
+    private void writeValue(Object Value) throws IOException {
+      switch (Value) {
+        case null -> m_Out.writeByte(VALUE_NULL);
+        case Boolean b -> m_Out.writeByte(b ? VALUE_TRUE : VALUE_FALSE);
+        case Integer i -> { m_Out.writeByte(VALUE_INTEGER); m_Out.writeInt(i); }
+        case Long l -> { m_Out.writeByte(VALUE_LONG); m_Out.writeLong(l); }
+        case Double d -> { m_Out.writeByte(VALUE_DOUBLE); m_Out.writeDouble(d); }
+        case String s -> { m_Out.writeByte(VALUE_STRING); writeString(s); }
+        case Instant instant -> { m_Out.writeByte(VALUE_INSTANT); m_Out.writeLong(instant.getEpochSecond()); m_Out.writeInt(instant.getNano()); }
+        case CMetamodel.INTERFACE_DIRECTIONS direction -> { m_Out.writeByte(VALUE_DIRECTION); m_Out.writeByte(direction.ordinal()); }
+        case CMetamodel.Literal literal -> { m_Out.writeByte(VALUE_LITERAL); writeString(literal.persistentName); }
+        case BigInteger bi -> { m_Out.writeByte(VALUE_BIG_INTEGER); writeString(bi.toString()); }
+        case BigDecimal bd -> { m_Out.writeByte(VALUE_BIG_DECIMAL); writeString(bd.toString()); }
+        case List<?> list -> {
+          m_Out.writeByte(VALUE_LIST);
+          m_Out.writeInt(list.size());
+          for (Object o : list) writeValue(o);
+        }
+        case Map<?, ?> map -> {
+          m_Out.writeByte(VALUE_MAP);
+          m_Out.writeInt(map.size());
+          for (Map.Entry<?, ?> e : map.entrySet()) { writeString(String.valueOf(e.getKey())); writeValue(e.getValue()); }
+        }
+        default -> throw new IOException("Unsupported value of type " + Value.getClass().getName() + " in snapshot");
+      }
+    }
+
+    private void writeString(String Value) throws IOException {
+      Integer number = m_Strings.get(Value);
+      if (null != number) { m_Out.writeInt(number); return; }
+      m_Strings.put(Value, m_Strings.size());
+      byte[] bytes = Value.getBytes(StandardCharsets.UTF_8);
+      m_Out.writeInt(-1);
+      m_Out.writeInt(bytes.length);
+      m_Out.write(bytes);
+    }
+  }
+
+  /** Rebuilds a data model from the snapshot read into memory. Relationships are resolved through the id index once all elements exist. */
+  private final static class Reader {
+    private final ByteBuffer m_Buffer;
+    private final CMetamodel m_Metamodel;
+    private final List<String> m_Strings = new ArrayList<>();
+    private final List<Runnable> m_PendingRelationships = new ArrayList<>();
+
+    Reader(ByteBuffer Buffer, CMetamodel Metamodel) { m_Buffer = Buffer; m_Metamodel = Metamodel; }
+
+    CDatamodel read() throws IOException {
+      CDatamodel datamodel = new CDatamodel(m_Metamodel);
+      int typeCount = m_Buffer.getInt();
+      for (int t = 0; t < typeCount; t++) {
+        byte kind = m_Buffer.get();
+        String typeName = readString();
+        CMetamodel.TypeExpression type = (KIND_BUILDING_BLOCK == kind) ? m_Metamodel.getSubstantialTypeExpression(typeName) : m_Metamodel.getRelationshipTypeExpression(typeName);
+        if (null == type) throw new IOException("Snapshot refers to unknown type expression '" + typeName + "'");
+        int elementCount = m_Buffer.getInt();
+        for (int i = 0; i < elementCount; i++) datamodel.addElement(readElement(datamodel, type));
+      }
+      m_PendingRelationships.forEach(Runnable::run);
+      return datamodel;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private CDatamodel.Element<?> readElement(CDatamodel Datamodel, CMetamodel.TypeExpression Type) throws IOException {
+      int id = m_Buffer.getInt();
+      String elementURI = readString();
+      Instant lastModificationTime = Instant.ofEpochSecond(m_Buffer.getLong(), m_Buffer.getInt());
+      String lastModificationUser = readString();
+
+      Map<CMetamodel.Feature, List<CMetamodel.Literal>> enumerations = new HashMap<>();
+      int enumerationCount = m_Buffer.getInt();
+      for (int i = 0; i < enumerationCount; i++) {
+        CMetamodel.Feature feature = getFeature(Type, readString());
+        CMetamodel.EnumerationExpression enumeration = m_Metamodel.getEnumerationExpression(feature.type);
+        int literalCount = m_Buffer.getInt();
+        List<CMetamodel.Literal> literals = new ArrayList<>(literalCount);
+        for (int j = 0; j < literalCount; j++) literals.add(getLiteral(enumeration, readString()));
+        enumerations.put(feature, literals);
+      }
+
+      Map<CMetamodel.Feature, List> relationships = new HashMap<>();
+      Map<CMetamodel.Feature, int[]> relationshipIds = new HashMap<>();
+      int relationshipCount = m_Buffer.getInt();
+      for (int i = 0; i < relationshipCount; i++) {
+        CMetamodel.Feature feature = getFeature(Type, readString());
+        int[] ids = new int[m_Buffer.getInt()];
+        for (int j = 0; j < ids.length; j++) ids[j] = m_Buffer.getInt();
+        relationships.put(feature, new ArrayList<>(ids.length));
+        relationshipIds.put(feature, ids);
+      }
+
+      Map<String, Object> data = new TreeMap<>();
+      int dataCount = m_Buffer.getInt();
+      for (int i = 0; i < dataCount; i++) {
+        String key = readString();
+        CMetamodel.Feature feature = Type.getFeature(key);
+        if (VALUE_RELATIONSHIPS == m_Buffer.get(m_Buffer.position())) {
+          m_Buffer.get();
+          List relationshipList = relationships.get(feature);
+          if (null == relationshipList) throw new IOException("Snapshot refers to missing relationships of '" + key + "'");
+          data.put(key, relationshipList);
+        } else {
+          CMetamodel.EnumerationExpression enumeration = ((null != feature) && (CMetamodel.FeatureType.ENUMERATION == feature.featureType)) ? m_Metamodel.getEnumerationExpression(feature.type) : null;
+          data.put(key, readValue(enumeration));
+        }
+      }
+
+      CDatamodel.Element element = (Type instanceof CMetamodel.SubstantialTypeExpression ste)
+          ? new CDatamodel.BuildingBlock(ste, id, elementURI, lastModificationTime, lastModificationUser, data)
+          : new CDatamodel.Relationship((CMetamodel.RelationshipTypeExpression)Type, id, elementURI, lastModificationTime, lastModificationUser, data);
+      element.Enumerations.putAll(enumerations);
+      element.Relationships.putAll(relationships);
+      m_PendingRelationships.add(() -> relationshipIds.forEach((feature, ids) -> {
+        List relationshipList = relationships.get(feature);
+        for (int relatedId : ids) {
+          CDatamodel.Element related = Datamodel.lookupById(relatedId);
+          if (null != related) relationshipList.add(related);
+          else LUYViewer.LOGGER.warning("Could not find LUY building block referenced by '" + feature.persistentName + "'");
+        }
+      }));
+      return element;
+    }
+
+    private Object readValue(CMetamodel.EnumerationExpression Enumeration) throws IOException {
+      byte tag = m_Buffer.get();
+      switch (tag) {
+        case VALUE_NULL: return null;
+        case VALUE_FALSE: return Boolean.FALSE;
+        case VALUE_TRUE: return Boolean.TRUE;
+        case VALUE_INTEGER: return m_Buffer.getInt();
+        case VALUE_LONG: return m_Buffer.getLong();
+        case VALUE_DOUBLE: return m_Buffer.getDouble();
+        case VALUE_STRING: return readString();
+        case VALUE_INSTANT: return Instant.ofEpochSecond(m_Buffer.getLong(), m_Buffer.getInt());
+        case VALUE_DIRECTION: return CMetamodel.INTERFACE_DIRECTIONS.values()[m_Buffer.get()];
+        case VALUE_LITERAL: return getLiteral(Enumeration, readString());
+        case VALUE_BIG_INTEGER: return new BigInteger(readString());
+        case VALUE_BIG_DECIMAL: return new BigDecimal(readString());
+        case VALUE_LIST: {
+          int size = m_Buffer.getInt();
+          List<Object> list = new ArrayList<>(size);
+          for (int i = 0; i < size; i++) list.add(readValue(Enumeration));
+          return list;
+        }
+        case VALUE_MAP: {
+          int size = m_Buffer.getInt();
+          Map<String, Object> map = new LinkedHashMap<>();
+          for (int i = 0; i < size; i++) map.put(readString(), readValue(null));
+          return map;
+        }
+        default: throw new IOException("Unknown value tag " + tag + " in snapshot");
+      }
+    }
+
+    private String readString() throws IOException {
+      int number = m_Buffer.getInt();
+      if (0 <= number) {
+        if (m_Strings.size() <= number) throw new IOException("Snapshot refers to unknown string " + number);
+        return m_Strings.get(number);
+      }
+      byte[] bytes = new byte[m_Buffer.getInt()];
+      m_Buffer.get(bytes);
+      String result = new String(bytes, StandardCharsets.UTF_8);
+      m_Strings.add(result);
+      return result;
+    }
+
+    private static CMetamodel.Feature getFeature(CMetamodel.TypeExpression Type, String PersistentName) throws IOException {
+      CMetamodel.Feature result = Type.getFeature(PersistentName);
+      if (null == result) throw new IOException("Snapshot refers to unknown feature '" + PersistentName + "' of '" + Type.persistentName + "'");
+      return result;
+    }
+
+    private static CMetamodel.Literal getLiteral(CMetamodel.EnumerationExpression Enumeration, String PersistentName) throws IOException {
+      CMetamodel.Literal result = (null == Enumeration) ? null : Enumeration.getLiteral(PersistentName);
+      if (null == result) throw new IOException("Snapshot refers to unknown literal '" + PersistentName + "'");
+      return result;
+    }
+  }
+}
@@ -0,0 +1,139 @@
+package net.liwuest.luyviewer.model;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Parser for the date and time values found in LUY data.
+ * The layouts LUY actually writes are recognized by length and separator positions and their digits are converted directly,
+ * without formatters, intermediate objects or exceptions. Anything else falls back to trying a list of cached formatters.
+ */
+final class CDateTimeParser {
+  /** Returned by {@link #parseEpochSecond(String)} if the text does not match a known layout. */
+  final static long NO_MATCH = Long.MIN_VALUE;
+
+  // Note: ZoneOffset.UTC is used as a default if no timezone information is present in the string, to convert LocalDateTime to Instant.
+  private final static DateTimeFormatter[] FORMATTERS = {
+      DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneOffset.UTC), // 2023-01-15 14:30:00
+      DateTimeFormatter.ofPattern("HH:mm:ss dd-MM-yyyy").withZone(ZoneOffset.UTC), // 14:30:00 15-01-2023
+      DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm:ss").withZone(ZoneOffset.UTC), // 15.01.2023 14:30:00
+      DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss").withZone(ZoneOffset.UTC), // 2023/01/15 14:30:00
+      DateTimeFormatter.ofPattern("MM-dd-yyyy HH:mm:ss").withZone(ZoneOffset.UTC), // 01-15-2023 14:30:00
+      DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss").withZone(ZoneOffset.UTC), // ISO-like without Z or offset
+      DateTimeFormatter.ISO_INSTANT, // Handles "2023-01-15T14:30:00Z" or "2023-01-15T14:30:00+01:00"
+      DateTimeFormatter.ISO_LOCAL_DATE_TIME.withZone(ZoneOffset.UTC) // Handles "2023-01-15T14:30:00"
+  };
+
+  private CDateTimeParser() {}
+
+  /**
+   * Parses a date and time string into an {@link Instant}.
+   * Values without time zone are taken as UTC.
+   *
+   * @param DateTimeString The date and time string to parse.
+   * @return The parsed instant.
+   * @throws IllegalArgumentException If the string is empty or cannot be parsed by any of the known formats.
+   */
+  static Instant parse(String DateTimeString) {
+    if ((null == DateTimeString) || DateTimeString.trim().isEmpty()) throw new IllegalArgumentException("Input date-time string cannot be null or empty.");
+    long epochSecond = parseEpochSecond(DateTimeString);
+    return (NO_MATCH != epochSecond) ? Instant.ofEpochSecond(epochSecond) : parseWithFormatters(DateTimeString);
+  }
+
+  /**
+   * Parses the layouts used by LUY directly into seconds since the epoch (UTC).
+   * Only strictly valid values are accepted; anything the formatters would resolve leniently (e.g. 30th of February) is left to them.
+   *
+   * @param Text The text to parse.
+   * @return The seconds since the epoch, or {@link #NO_MATCH} if the text is not in one of the fast layouts.
+   */
+  static long parseEpochSecond(String Text) {
+    int year, month, day, time;
+    if (19 == Text.length()) {
+      char c2 = Text.charAt(2), c4 = Text.charAt(4), c10 = Text.charAt(10);
+      if (('-' == c4) || ('/' == c4)) {
+        // yyyy-MM-dd HH:mm:ss, yyyy/MM/dd HH:mm:ss, yyyy-MM-ddTHH:mm:ss
+        if ((c4 != Text.charAt(7)) || !((' ' == c10) || (('T' == c10) && ('-' == c4)))) return NO_MATCH;
+        year = digits(Text, 0, 4); month = digits(Text, 5, 2); day = digits(Text, 8, 2); time = time(Text, 11);
+      } else if (':' == c2) {
+        // HH:mm:ss dd-MM-yyyy
+        if ((' ' != Text.charAt(8)) || ('-' != Text.charAt(11)) || ('-' != Text.charAt(14))) return NO_MATCH;
+        time = time(Text, 0); day = digits(Text, 9, 2); month = digits(Text, 12, 2); year = digits(Text, 15, 4);
+      } else if (('.' == c2) || ('-' == c2)) {
+        // dd.MM.yyyy HH:mm:ss, MM-dd-yyyy HH:mm:ss
+        if ((c2 != Text.charAt(5)) || (' ' != c10)) return NO_MATCH;
+        int first = digits(Text, 0, 2), second = digits(Text, 3, 2);
+        day = ('.' == c2) ? first : second; month = ('.' == c2) ? second : first; year = digits(Text, 6, 4); time = time(Text, 11);
+      } else return NO_MATCH;
+    } else if ((20 == Text.length()) && ('Z' == Text.charAt(19)) && ('-' == Text.charAt(4)) && ('-' == Text.charAt(7)) && ('T' == Text.charAt(10))) {
+      // yyyy-MM-ddTHH:mm:ssZ
+      year = digits(Text, 0, 4); month = digits(Text, 5, 2); day = digits(Text, 8, 2); time = time(Text, 11);
+    } else return NO_MATCH;
+
+    if ((0 > time) || (1 > year) || (1 > month) || (12 < month) || (1 > day) || (lengthOfMonth(year, month) < day)) return NO_MATCH;
+    return epochDay(year, month, day) * 86400L + time;
+  }
+
+  /** Reads {@code Count} decimal digits starting at {@code Offset}; returns -1 if any of them is not a digit. */
+  private static int digits(String Text, int Offset, int Count) {
+    int result = 0;
+    for (int i = Offset; i < Offset + Count; i++) {
+      int digit = Text.charAt(i) - '0';
+      if ((0 > digit) || (9 < digit)) return -1;
+      result = result * 10 + digit;
+    }
+    return result;
+  }
+
+  /** Reads {@code HH:mm:ss} starting at {@code Offset} as second of day; returns -1 if it is malformed or out of range. */
+  private static int time(String Text, int Offset) {
+    if ((':' != Text.charAt(Offset + 2)) || (':' != Text.charAt(Offset + 5))) return -1;
+    int hour = digits(Text, Offset, 2), minute = digits(Text, Offset + 3, 2), second = digits(Text, Offset + 6, 2);
+    if ((0 > hour) || (23 < hour) || (0 > minute) || (59 < minute) || (0 > second) || (59 < second)) return -1;
+    return hour * 3600 + minute * 60 + second;
+  }
+
+  private static int lengthOfMonth(int Year, int Month) {
+    if (2 == Month) return (((0 == Year % 4) && (0 != Year % 100)) || (0 == Year % 400)) ? 29 : 28;
+    return ((4 == Month) || (6 == Month) || (9 == Month) || (11 == Month)) ? 30 : 31;
+  }
+
+  /** Days since 1970-01-01 of a proleptic Gregorian date (see {@link java.time.LocalDate#toEpochDay()}). */
+  private static long epochDay(int Year, int Month, int Day) {
+    long y = (2 >= Month) ? Year - 1 : Year;
+    long era = Math.floorDiv(y, 400);
+    long yearOfEra = y - era * 400;
+    long dayOfYear = (153L * (Month + ((2 < Month) ? -3 : 9)) + 2) / 5 + Day - 1;
+    long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+    return era * 146097 + dayOfEra - 719468;
+  }
+
+  /**
+   * Tries all known formatters one after another. This is the slow path for values that are not in one of the layouts handled by {@link #parseEpochSecond(String)}.
+   *
+   * @param DateTimeString The date and time string to parse.
+   * @return The parsed instant.
+   * @throws IllegalArgumentException If the input string cannot be parsed by any of the formatters.
+   */
+  static Instant parseWithFormatters(String DateTimeString) {
+    for (DateTimeFormatter formatter : FORMATTERS) {
+      try {
+        // Attempt to parse directly to Instant if the formatter supports it (e.g., ISO_INSTANT)
+        return Instant.from(formatter.parse(DateTimeString));
+      } catch (DateTimeParseException e) {
+        // If parsing to Instant fails, try parsing to LocalDateTime and then convert
+        try {
+          LocalDateTime localDateTime = LocalDateTime.parse(DateTimeString, formatter);
+          return localDateTime.toInstant(ZoneOffset.UTC); // Assuming UTC if no timezone is specified
+        } catch (DateTimeParseException ignored) {
+          // Continue to the next formatter if this one fails
+        }
+      }
+    }
+
+    throw new IllegalArgumentException("Could not parse date-time string: \"" + DateTimeString + "\" with any known format.");
+  }
+}
@@ -0,0 +1,79 @@
+package net.liwuest.luyviewer.model;
+
+/**
+ * Open-addressing hash table from element id to element.
+ * Keys are kept in a primitive array and collisions are resolved by linear probing, so a lookup neither boxes the id nor follows entry objects.
+ * The index is filled by a single thread while loading; afterwards it is only read and may be shared between threads.
+ */
+final class CElementIndex {
+  private final static float MAX_LOAD_FACTOR = 0.5f;
+
+  private int[] m_Keys;
+  private CDatamodel.Element[] m_Values;
+  private int m_Size = 0;
+
+  CElementIndex() { this(1024); }
+  CElementIndex(int ExpectedSize) { allocate(capacityFor(Math.max(16, ExpectedSize))); }
+
+  /** Smallest power of two that holds {@code Size} entries without exceeding the maximum load factor. */
+  private static int capacityFor(int Size) { return Integer.highestOneBit((int)Math.min(1 << 29, (long)Math.ceil(Size / MAX_LOAD_FACTOR)) - 1) << 1; }
+  private void allocate(int Capacity) {
+    m_Keys = new int[Capacity];
+    m_Values = new CDatamodel.Element[Capacity];
+  }
+
+  /** Spreads the bits of the id so that sequential ids do not form long probe chains. */
+  private static int slot(int Id, int Mask) { int h = Id * 0x9E3779B9; return (h ^ (h >>> 16)) & Mask; }
+
+  /**
+   * Gets the element with the given id.
+   *
+   * @param Id The id to look up.
+   * @return The element with this id, or {@code null} if there is none.
+   */
+  CDatamodel.Element get(int Id) {
+    int mask = m_Keys.length - 1;
+    for (int i = slot(Id, mask); null != m_Values[i]; i = (i + 1) & mask) {
+      if (Id == m_Keys[i]) return m_Values[i];
+    }
+    return null;
+  }
+
+  /**
+   * Stores the element under its id, replacing any element with the same id.
+   *
+   * @param Element The element to store.
+   * @return The element previously stored under this id, or {@code null} if there was none.
+   */
+  CDatamodel.Element put(CDatamodel.Element Element) {
+    int mask = m_Keys.length - 1;
+    int i = slot(Element.id, mask);
+    for (; null != m_Values[i]; i = (i + 1) & mask) {
+      if (Element.id == m_Keys[i]) {
+        CDatamodel.Element previous = m_Values[i];
+        m_Values[i] = Element;
+        return previous;
+      }
+    }
+    m_Keys[i] = Element.id;
+    m_Values[i] = Element;
+    if (++m_Size > m_Keys.length * MAX_LOAD_FACTOR) rehash();
+    return null;
+  }
+
+  int size() { return m_Size; }
+
+  private void rehash() {
+    int[] oldKeys = m_Keys;
+    CDatamodel.Element[] oldValues = m_Values;
+    allocate(oldKeys.length * 2);
+    int mask = m_Keys.length - 1;
+    for (int j = 0; j < oldKeys.length; j++) {
+      if (null == oldValues[j]) continue;
+      int i = slot(oldKeys[j], mask);
+      while (null != m_Values[i]) i = (i + 1) & mask;
+      m_Keys[i] = oldKeys[j];
+      m_Values[i] = oldValues[j];
+    }
+  }
+}
@@ -0,0 +1,136 @@
+package net.liwuest.luyviewer.model;
+
+import java.util.*;
+
+/**
+ * Sorts elements by several features in a single pass.
+ * The sort key of every element and feature is extracted once into a {@code long}, so comparisons neither look up
+ * attribute maps nor check types. The elements' indexes are then sorted in a primitive array.
+ * <p>
+ * Values of a feature are compared like this:
+ * <ul>
+ *   <li>elements without a (comparable) value come first,</li>
+ *   <li>single values are compared by their natural order,</li>
+ *   <li>lists are compared by their size first, then by their first value (lists starting with {@code null} come first).</li>
+ * </ul>
+ * Elements that are equal in all features keep their order.
+ * <p>
+ * For features with a range index (see {@link CRangeIndex}) the ranks of the values are taken from the index instead of sorting the values.
+ */
+final class CElementSorter {
+  @FunctionalInterface private interface IndexComparator { int compare(int First, int Second); }
+
+  private final static long ABSENT = Long.MIN_VALUE;
+
+  private CElementSorter() {}
+
+  /**
+   * Sorts the elements.
+   *
+   * @param Elements The elements to sort.
+   * @param Orderings The features to sort by, most significant first, and their sort order ({@link CFilteredAndSortedDatamodel.SortOrder#UNSORTED} is ignored).
+   * @param Indexes The indexes of the data model, {@code null} to not use any.
+   * @param Type The type expression of the elements.
+   * @return The indexes of the elements in sorted order.
+   */
+  static int[] sort(List<? extends CDatamodel.Element> Elements, List<Map.Entry<CMetamodel.Feature, CFilteredAndSortedDatamodel.SortOrder>> Orderings, CFeatureIndexes Indexes, CMetamodel.TypeExpression Type) {
+    List<long[]> keyList = new ArrayList<>();
+    List<Boolean> descendingList = new ArrayList<>();
+    int[] ordinals = null;
+    for (Map.Entry<CMetamodel.Feature, CFilteredAndSortedDatamodel.SortOrder> ordering : Orderings) {
+      if (CFilteredAndSortedDatamodel.SortOrder.UNSORTED == ordering.getValue()) continue;
+      CRangeIndex index = (null == Indexes) ? null : Indexes.getRangeIndex(Type, ordering.getKey());
+      if (null != index) {
+        if (null == ordinals) ordinals = getOrdinals(Elements, Indexes, Type);
+        keyList.add((null == ordinals) ? extractKeys(Elements, ordering.getKey()) : extractKeys(ordinals, index));
+      } else keyList.add(extractKeys(Elements, ordering.getKey()));
+      descendingList.add(CFilteredAndSortedDatamodel.SortOrder.DESCENDING == ordering.getValue());
+    }
+    final long[][] keys = keyList.toArray(new long[0][]);
+    final boolean[] descending = new boolean[keys.length];
+    for (int i = 0; i < descending.length; i++) descending[i] = descendingList.get(i);
+
+    int[] result = new int[Elements.size()];
+    for (int i = 0; i < result.length; i++) result[i] = i;
+    if (0 == keys.length) return result;
+    mergeSort(result, new int[result.length], 0, result.length, (a, b) -> {
+      for (int k = 0; k < keys.length; k++) {
+        int comparison = Long.compare(keys[k][a], keys[k][b]);
+        if (0 != comparison) return descending[k] ? -comparison : comparison;
+      }
+      return Integer.compare(a, b);
+    });
+    return result;
+  }
+
+  /**
+   * Extracts the sort keys of all elements for a feature.
+   * Comparable values are replaced by their rank among all values of the feature, which is combined with the list size into one {@code long}.
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static long[] extractKeys(List<? extends CDatamodel.Element> Elements, CMetamodel.Feature Feature) {
+    int size = Elements.size();
+    long[] result = new long[size];
+    int[] listSizes = new int[size];
+    Comparable[] values = new Comparable[size];
+    for (int i = 0; i < size; i++) {
+      Object value = Elements.get(i).AdditionalData.get(Feature.persistentName);
+      if (value instanceof List<?> list) {
+        listSizes[i] = list.size();
+        if (!list.isEmpty() && (list.getFirst() instanceof Comparable c)) values[i] = c;
+      } else if (value instanceof Comparable c) values[i] = c;
+      else listSizes[i] = -1;
+    }
+
+    // Rank the distinct values, so that equal values get the same rank
+    Comparable[] distinct = Arrays.stream(values).filter(Objects::nonNull).toArray(Comparable[]::new);
+    Arrays.sort(distinct);
+    int distinctCount = 0;
+    for (int i = 0; i < distinct.length; i++) if ((0 == distinctCount) || (0 != distinct[distinctCount - 1].compareTo(distinct[i]))) distinct[distinctCount++] = distinct[i];
+
+    for (int i = 0; i < size; i++) {
+      if (-1 == listSizes[i]) { result[i] = ABSENT; continue; }
+      int rank = (null == values[i]) ? -1 : Arrays.binarySearch(distinct, 0, distinctCount, values[i]);
+      result[i] = ((long)listSizes[i] << 32) | (rank + 1);
+    }
+    return result;
+  }
+
+  /** Gets the ordinals of the elements (see {@link CFeatureIndexes#getOrdinal(CMetamodel.TypeExpression, CDatamodel.Element)}), or {@code null} if one is not part of the type expression. */
+  private static int[] getOrdinals(List<? extends CDatamodel.Element> Elements, CFeatureIndexes Indexes, CMetamodel.TypeExpression Type) {
+    int[] result = new int[Elements.size()];
+    for (int i = 0; i < result.length; i++) if (0 > (result[i] = Indexes.getOrdinal(Type, Elements.get(i)))) return null;
+    return result;
+  }
+
+  /** Extracts the sort keys of all elements for a feature from its range index, giving the same keys as {@link #extractKeys(List, CMetamodel.Feature)}. */
+  private static long[] extractKeys(int[] Ordinals, CRangeIndex Index) {
+    long[] result = new long[Ordinals.length];
+    for (int i = 0; i < result.length; i++) {
+      int listSize = Index.getListSize(Ordinals[i]);
+      result[i] = (CRangeIndex.ABSENT == listSize) ? ABSENT : ((long)listSize << 32) | (Index.getRank(Ordinals[i]) + 1);
+    }
+    return result;
+  }
+
+  /** Stable merge sort of {@code Indexes[From..To)}, using {@code Buffer} as temporary storage. */
+  private static void mergeSort(int[] Indexes, int[] Buffer, int From, int To, IndexComparator Comparator) {
+    if (To - From < 16) {
+      for (int i = From + 1; i < To; i++) {
+        int current = Indexes[i], j = i - 1;
+        while ((j >= From) && (0 < Comparator.compare(Indexes[j], current))) { Indexes[j + 1] = Indexes[j]; j--; }
+        Indexes[j + 1] = current;
+      }
+      return;
+    }
+    int middle = (From + To) >>> 1;
+    mergeSort(Indexes, Buffer, From, middle, Comparator);
+    mergeSort(Indexes, Buffer, middle, To, Comparator);
+    if (0 >= Comparator.compare(Indexes[middle - 1], Indexes[middle])) return;
+    System.arraycopy(Indexes, From, Buffer, From, To - From);
+    for (int i = From, left = From, right = middle; i < To; i++) {
+      if ((right >= To) || ((left < middle) && (0 >= Comparator.compare(Buffer[left], Buffer[right])))) Indexes[i] = Buffer[left++];
+      else Indexes[i] = Buffer[right++];
+    }
+  }
+}
@@ -0,0 +1,132 @@
+package net.liwuest.luyviewer.model;
+
+import net.liwuest.luyviewer.LUYViewer;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+
+/**
+ * Secondary indexes of a data model, used to answer filter rules without visiting every element.
+ * Indexes are built on first use and kept as long as the data model. They refer to elements by their ordinal,
+ * i.e. the position of the element in the element set of its type expression (see {@link #getElements(CMetamodel.TypeExpression)}),
+ * so the result of a lookup is a {@link BitSet} of ordinals.
+ * <p>
+ * Text indexes are the exception: they are only built on a background thread after loading (see {@link #buildTextIndexesInBackground()}),
+ * as they are expensive to build and only pre-select candidates.
+ */
+public final class CFeatureIndexes {
+  private record Key(CMetamodel.TypeExpression Type, CMetamodel.Feature Feature) {}
+  private record RelationKey(CMetamodel.TypeExpression Type, CMetamodel.Feature Feature, CMetamodel.TypeExpression Target) {}
+
+  private final CDatamodel m_Data;
+  private final Map<CMetamodel.TypeExpression, List<CDatamodel.Element>> m_Elements = new ConcurrentHashMap<>();
+  private final Map<Key, CBitmapIndex> m_BitmapIndexes = new ConcurrentHashMap<>();
+  private final Map<Key, CRangeIndex> m_RangeIndexes = new ConcurrentHashMap<>();
+  private final Map<Key, CTrigramIndex> m_TextIndexes = new ConcurrentHashMap<>();
+  private final Map<RelationKey, Optional<CReverseIndex>> m_ReverseIndexes = new ConcurrentHashMap<>();
+
+  CFeatureIndexes(CDatamodel Data) { m_Data = Data; }
+
+  /**
+   * Gets the elements of a type expression in the order of the data model, i.e. by id. The index of an element in this list is its ordinal.
+   *
+   * @param Type The type expression.
+   * @return The elements, empty if there are none.
+   */
+  public List<CDatamodel.Element> getElements(CMetamodel.TypeExpression Type) {
+    return m_Elements.computeIfAbsent(Type, type -> {
+      Set<? extends CDatamodel.Element> elements = switch (type) {
+        case CMetamodel.SubstantialTypeExpression ste -> m_Data.BuildingBlocks.get(ste);
+        case CMetamodel.RelationshipTypeExpression rte -> m_Data.Relationships.get(rte);
+        default -> null;
+      };
+      return (null == elements) ? List.of() : List.copyOf(elements);
+    });
+  }
+
+  /**
+   * Gets the ordinal of an element.
+   *
+   * @param Type The type expression of the element.
+   * @param Element The element.
+   * @return The ordinal, negative if the element is not part of the type expression.
+   */
+  public int getOrdinal(CMetamodel.TypeExpression Type, CDatamodel.Element Element) {
+    List<CDatamodel.Element> elements = getElements(Type);
+    int ordinal = Collections.binarySearch(elements, Element, Comparator.comparingInt(e -> e.id));
+    return ((0 <= ordinal) && (elements.get(ordinal) == Element)) ? ordinal : -1;
+  }
+
+  /**
+   * Gets the bitmap index of a feature, building it on first use.
+   *
+   * @param Type The type expression whose elements are indexed.
+   * @param Feature The feature.
+   * @return The index, or {@code null} if the feature cannot be indexed by a bitmap index (see {@link CBitmapIndex#supports(CMetamodel.Feature)}).
+   */
+  public CBitmapIndex getBitmapIndex(CMetamodel.TypeExpression Type, CMetamodel.Feature Feature) {
+    if (!CBitmapIndex.supports(Feature)) return null;
+    return m_BitmapIndexes.computeIfAbsent(new Key(Type, Feature), key -> CBitmapIndex.build(getElements(Type), Feature));
+  }
+
+  /**
+   * Gets the range index of a feature, building it on first use.
+   *
+   * @param Type The type expression whose elements are indexed.
+   * @param Feature The feature.
+   * @return The index, or {@code null} if the feature cannot be indexed by a range index (see {@link CRangeIndex#supports(CMetamodel.Feature)}).
+   */
+  public CRangeIndex getRangeIndex(CMetamodel.TypeExpression Type, CMetamodel.Feature Feature) {
+    if (!CRangeIndex.supports(Feature)) return null;
+    return m_RangeIndexes.computeIfAbsent(new Key(Type, Feature), key -> CRangeIndex.build(getElements(Type), Feature));
+  }
+
+  /**
+   * Gets the reverse index of a relation feature, building it on first use.
+   *
+   * @param Type The type expression whose elements are indexed.
+   * @param Feature The feature.
+   * @param Target The type expression of the elements referenced by the feature.
+   * @return The index, or {@code null} if the feature cannot be indexed by a reverse index (see {@link CReverseIndex#supports(CMetamodel.Feature)})
+   *         or references elements that are not of the target type.
+   */
+  public CReverseIndex getReverseIndex(CMetamodel.TypeExpression Type, CMetamodel.Feature Feature, CMetamodel.TypeExpression Target) {
+    if (!CReverseIndex.supports(Feature)) return null;
+    return m_ReverseIndexes.computeIfAbsent(new RelationKey(Type, Feature, Target), key -> Optional.ofNullable(CReverseIndex.build(this, Type, Feature, Target))).orElse(null);
+  }
+
+  /**
+   * Gets the trigram index of a text feature.
+   *
+   * @param Type The type expression whose elements are indexed.
+   * @param Feature The feature.
+   * @return The index, or {@code null} if it has not been built (yet).
+   */
+  public CTrigramIndex getTextIndex(CMetamodel.TypeExpression Type, CMetamodel.Feature Feature) { return m_TextIndexes.get(new Key(Type, Feature)); }
+
+  /** Builds the trigram indexes of all text features (see {@link CTrigramIndex#supports(CMetamodel.Feature)}) on the calling thread. */
+  void buildTextIndexes() {
+    List<CMetamodel.TypeExpression> types = new ArrayList<>(m_Data.BuildingBlocks.keySet());
+    types.addAll(m_Data.Relationships.keySet());
+    for (CMetamodel.TypeExpression type : types) {
+      for (CMetamodel.Feature feature : type.features) {
+        if (CTrigramIndex.supports(feature)) m_TextIndexes.computeIfAbsent(new Key(type, feature), key -> CTrigramIndex.build(getElements(type), feature));
+      }
+    }
+  }
+
+  /** Builds the trigram indexes of all text features on a background thread, see {@link #buildTextIndexes()}. */
+  void buildTextIndexesInBackground() {
+    Thread indexThread = new Thread(() -> {
+      long start = System.currentTimeMillis();
+      try {
+        buildTextIndexes();
+        LUYViewer.LOGGER.info("Built " + m_TextIndexes.size() + " text indexes in " + (System.currentTimeMillis() - start) + " ms");
+      } catch (RuntimeException Ex) { LUYViewer.LOGGER.log(Level.WARNING, "Could not build text indexes, text rules are evaluated per element", Ex); }
+    }, "Text index builder");
+    indexThread.setDaemon(true);
+    indexThread.setPriority(Thread.MIN_PRIORITY);
+    indexThread.start();
+  }
+}
@@ -2,9 +2,18 @@ package net.liwuest.luyviewer.model;
 
 import net.liwuest.luyviewer.LUYViewer;
 import net.liwuest.luyviewer.rule.CFilter;
+import net.liwuest.luyviewer.util.CConfig;
+import net.liwuest.luyviewer.util.CConfigService;
 import net.liwuest.luyviewer.util.CEventBus;
 
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 public final class CFilteredAndSortedDatamodel {
@@ -26,11 +35,36 @@ public final class CFilteredAndSortedDatamodel {
     public FeatureUnhidden(CMetamodel.Feature Feature) { this.Feature = Feature; }
   }
 
+  /** Minimum number of elements to evaluate a filter on in parallel, from the configuration ({@code parallel_filter_threshold}). Not positive (the default) to never filter in parallel. */
+  private final static int PARALLEL_FILTER_THRESHOLD = getParallelFilterThreshold();
+  private static int getParallelFilterThreshold() {
+    try { return CConfigService.getConfig().parallel_filter_threshold; }
+    catch (IOException Ignore) { return 0; }
+  }
+  /** Builds the data views requested by {@link #getFilteredAndSortedDataAsync(CMetamodel.TypeExpression)}, one at a time. */
+  private final static ExecutorService DATAVIEW_BUILDER = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "Data view builder");
+    thread.setDaemon(true);
+    return thread;
+  });
+
   private final CDatamodel m_Data;
   private final Map<CMetamodel.TypeExpression, LinkedHashMap<CMetamodel.Feature, SortOrder>> m_Orderings = new HashMap<>();
   private final Map<CMetamodel.TypeExpression, Set<CMetamodel.Feature>> m_HiddenFeatures = new HashMap<>();
+  /**
+   * Elements of a type that pass its filter, in the order of the data model, together with the state of the filter they were computed with.
+   *
+   * @param FilterState The state of the filter, {@code null} if no filter was applied.
+   * @param Elements The elements passing the filter.
+   */
+  private record FilteredData(CFilter.State FilterState, List<? extends CDatamodel.Element> Elements) {}
+  private final Map<CMetamodel.TypeExpression, FilteredData> cachedFilteredData = new HashMap<>();
   private final Map<CMetamodel.TypeExpression, LinkedHashSet<? extends CDatamodel.Element>> cachedFilteredAndSortedData = new HashMap<>();
   private Map<CMetamodel.TypeExpression, CFilter> m_Filter = new HashMap<>();
+  /** Incremented by every data view request and cancellation, so a data view being built can tell that it has been superseded. */
+  private final AtomicLong m_Generation = new AtomicLong();
+  /** Generation of the data view being built in the background, {@code 0} while a data view is built synchronously. */
+  private long m_BuildingGeneration = 0;
 
   public CFilteredAndSortedDatamodel(CDatamodel Data) {
     assert null != Data;
@@ -49,17 +83,21 @@ public final class CFilteredAndSortedDatamodel {
    * @param Order   the sort order (ASCENDING, DESCENDING, UNSORTED)
    * @return        the current instance of CFilteredAndSortedDatamodel (for method chaining)
    */
-  public synchronized CFilteredAndSortedDatamodel sort(CMetamodel.TypeExpression Type, CMetamodel.Feature Feature, SortOrder Order) {
-    if ((null != Type) && (null != Feature) && (null != Order)) {
-      m_Orderings.putIfAbsent(Type, new LinkedHashMap<>());
-      cachedFilteredAndSortedData.put(Type, null);
-      m_Orderings.get(Type).remove(Feature);
-      if ((SortOrder.UNSORTED != Order) && Feature.isSortable) {
-        m_Orderings.get(Type).putLast(Feature, Order);
-        CEventBus.publish(new DatasortingChanged());
+  public CFilteredAndSortedDatamodel sort(CMetamodel.TypeExpression Type, CMetamodel.Feature Feature, SortOrder Order) {
+    cancelDataview();
+    synchronized (this) {
+      if ((null != Type) && (null != Feature) && (null != Order)) {
+        m_Orderings.putIfAbsent(Type, new LinkedHashMap<>());
+        // Only the order changes, the filtered elements are kept
+        cachedFilteredAndSortedData.put(Type, null);
+        m_Orderings.get(Type).remove(Feature);
+        if ((SortOrder.UNSORTED != Order) && Feature.isSortable) {
+          m_Orderings.get(Type).putLast(Feature, Order);
+          CEventBus.publish(new DatasortingChanged());
+        }
       }
+      return this;
     }
-    return this;
   }
 
   public synchronized Set<CMetamodel.Feature> getFeaturesOfRelation(CMetamodel.Feature RelationFeature) {
@@ -73,7 +111,8 @@ public final class CFilteredAndSortedDatamodel {
     if ((null != Feature) && ("name" != Feature.persistentName) && ("id" != Feature.persistentName)) {
       m_HiddenFeatures.putIfAbsent(Type, new HashSet<>());
       if (m_HiddenFeatures.get(Type).add(Feature)) {
-        cachedFilteredAndSortedData.put(Type, null);
+        // Hidden features are not sorted by, so only the order may change
+        if (m_Orderings.getOrDefault(Type, new LinkedHashMap<>()).containsKey(Feature)) cachedFilteredAndSortedData.put(Type, null);
         CEventBus.publish(new FeatureHidden(Feature));
       }
     }
@@ -83,7 +122,7 @@ public final class CFilteredAndSortedDatamodel {
   public synchronized CFilteredAndSortedDatamodel showFeature(CMetamodel.TypeExpression Type, CMetamodel.Feature Feature) {
     if (null != Feature) {
       if (m_HiddenFeatures.getOrDefault(Type, new HashSet()).remove(Feature)) {
-        cachedFilteredAndSortedData.put(Type, null);
+        if (m_Orderings.getOrDefault(Type, new LinkedHashMap<>()).containsKey(Feature)) cachedFilteredAndSortedData.put(Type, null);
         CEventBus.publish(new FeatureUnhidden(Feature));
       }
     }
@@ -91,59 +130,137 @@ public final class CFilteredAndSortedDatamodel {
   }
 
   public synchronized CFilter getFilter(CMetamodel.TypeExpression ForType) { return m_Filter.get(ForType); }
-  public synchronized CFilteredAndSortedDatamodel setFilter(CFilter Filter, CMetamodel.TypeExpression ForType) { assert null != Filter; assert null != ForType; m_Filter.put(ForType, Filter); cachedFilteredAndSortedData.put(ForType, null); return this; }
+  /**
+   * Sets the filter of a type. The filtered elements are not dropped here: {@link #getFilteredAndSortedData(CMetamodel.TypeExpression)} compares
+   * the state of the filter with the state the cached elements were computed with, as rules may also be changed in place.
+   */
+  public CFilteredAndSortedDatamodel setFilter(CFilter Filter, CMetamodel.TypeExpression ForType) {
+    assert null != Filter; assert null != ForType;
+    cancelDataview();
+    synchronized (this) { m_Filter.put(ForType, Filter); return this; }
+  }
 
   public synchronized LinkedHashSet<CMetamodel.Feature> getOrderedFeatures(CMetamodel.TypeExpression Type) {
     if (null == Type) return null;
-    return Type.features.stream().filter(f -> !m_HiddenFeatures.getOrDefault(Type, new HashSet()).contains(f.persistentName)).collect(Collectors.toCollection(LinkedHashSet::new));
+    return Type.features.stream().filter(f -> !m_HiddenFeatures.getOrDefault(Type, new HashSet()).contains(f)).collect(Collectors.toCollection(LinkedHashSet::new));
+  }
+
+  /**
+   * Gets the elements of a type that pass its filter, in the order of the data model.
+   * The result is cached together with the filter state. If the filter has not changed, the cached elements are returned.
+   * If a previously applied filter has only been narrowed (see {@link CFilter.State#isNarrowingOf(CFilter.State)}), only the cached elements are
+   * evaluated again. Otherwise, including the first filter applied to a type, the elements are selected using the indexes of the data model (see {@link CFilter#select(CFeatureIndexes, CMetamodel.TypeExpression)}).
+   */
+  private FilteredData getFilteredData(CMetamodel.TypeExpression Type, Set<? extends CDatamodel.Element> Elements) {
+    CFilter filter = m_Filter.get(Type);
+    CFilter.State filterState = (null == filter) ? null : filter.getState();
+    FilteredData cached = cachedFilteredData.get(Type);
+    if ((null != cached) && Objects.equals(cached.FilterState(), filterState)) return cached;
+
+    List<? extends CDatamodel.Element> elements;
+    if (null == filter) elements = List.copyOf(Elements);
+    else if ((null != cached) && (null != cached.FilterState()) && filterState.isNarrowingOf(cached.FilterState())) {
+      LUYViewer.LOGGER.info("Filter for type " + Type.name + " has been narrowed, evaluating " + cached.Elements().size() + " previously matching entries only");
+      elements = filter(cached.Elements(), filter.compile(m_Data.Indexes));
+    } else elements = select(Type, filter);
+    FilteredData result = new FilteredData(filterState, elements);
+    cachedFilteredData.put(Type, result);
+    cachedFilteredAndSortedData.put(Type, null);
+    return result;
+  }
+
+  /** Selects the elements of a type passing a filter, evaluating per element only the rules that cannot be answered by indexes. */
+  private List<CDatamodel.Element> select(CMetamodel.TypeExpression Type, CFilter Filter) {
+    List<CDatamodel.Element> elements = m_Data.Indexes.getElements(Type);
+    CFilter.Selection selection = Filter.select(m_Data.Indexes, Type);
+    BitSet candidates = selection.Candidates();
+    Predicate<CDatamodel.Element> residual = selection.Residual();
+    if (null == candidates) return (null == residual) ? elements : filter(elements, residual);
+
+    List<CDatamodel.Element> selected = new ArrayList<>(candidates.cardinality());
+    for (int ordinal = candidates.nextSetBit(0); 0 <= ordinal; ordinal = candidates.nextSetBit(ordinal + 1)) selected.add(elements.get(ordinal));
+    List<CDatamodel.Element> result = (null == residual) ? selected : filter(selected, residual);
+    LUYViewer.LOGGER.info("Filter for type " + Type.name + " selected " + selected.size() + " candidates by indexes, " + result.size() + " of them pass");
+    return result;
+  }
+
+  /**
+   * Gets the elements passing a predicate, in their order. If there are at least {@code parallel_filter_threshold} elements (see {@link CConfig}),
+   * they are evaluated in chunks on the common fork-join pool.
+   */
+  private <E extends CDatamodel.Element> List<E> filter(List<E> Elements, Predicate<? super E> Predicate) {
+    boolean parallel = (0 < PARALLEL_FILTER_THRESHOLD) && (PARALLEL_FILTER_THRESHOLD <= Elements.size());
+    // A data view built in the background is aborted as soon as it has been superseded
+    long generation = m_BuildingGeneration;
+    Predicate<? super E> predicate = (0 == generation) ? Predicate : element -> { checkNotSuperseded(generation); return Predicate.test(element); };
+    return (parallel ? Elements.parallelStream() : Elements.stream()).filter(predicate).toList();
+  }
+
+  private void checkNotSuperseded(long Generation) {
+    if ((0 != Generation) && (Generation != m_Generation.get())) throw new CancellationException("Data view has been superseded");
+  }
+
+  /**
+   * Cancels the data view being built or waiting to be built in the background, if any (see {@link #getFilteredAndSortedDataAsync(CMetamodel.TypeExpression)}).
+   * A data view being built is aborted while filtering, so other methods of this model no longer wait for it. Changing the filter or the sorting cancels it implicitly.
+   */
+  public void cancelDataview() { m_Generation.incrementAndGet(); }
+
+  /**
+   * Gets the filtered and sorted elements of a type like {@link #getFilteredAndSortedData(CMetamodel.TypeExpression)}, but builds them on a background thread.
+   * Every request supersedes the previous ones: these are cancelled, i.e. their futures complete with a {@link CancellationException}.
+   * Other failures complete the future with the exception thrown, not wrapped into a {@link java.util.concurrent.CompletionException}.
+   * While a data view is built, {@link BuildCachedDataview} and {@link FinishedBuildingCachedDataview} are published.
+   *
+   * @param Type The type.
+   * @return The future elements, completing with {@code null} if the type is unknown.
+   */
+  public CompletableFuture<LinkedHashSet<? extends CDatamodel.Element>> getFilteredAndSortedDataAsync(CMetamodel.TypeExpression Type) {
+    long generation = m_Generation.incrementAndGet();
+    CompletableFuture<LinkedHashSet<? extends CDatamodel.Element>> result = new CompletableFuture<>();
+    DATAVIEW_BUILDER.execute(() -> {
+      try { result.complete(buildDataview(Type, generation)); }
+      catch (Throwable Ex) { result.completeExceptionally(Ex); }
+    });
+    return result;
+  }
+
+  private synchronized LinkedHashSet<? extends CDatamodel.Element> buildDataview(CMetamodel.TypeExpression Type, long Generation) {
+    checkNotSuperseded(Generation);
+    CEventBus.publish(new BuildCachedDataview());
+    m_BuildingGeneration = Generation;
+    try {
+      LinkedHashSet<? extends CDatamodel.Element> result = getFilteredAndSortedData(Type);
+      checkNotSuperseded(Generation);
+      return result;
+    } finally {
+      m_BuildingGeneration = 0;
+      CEventBus.publish(new FinishedBuildingCachedDataview());
+    }
   }
 
   public synchronized LinkedHashSet<? extends CDatamodel.Element> getFilteredAndSortedData(CMetamodel.TypeExpression Type) {
     LUYViewer.LOGGER.info("Getting filtered and sorted data for type " + Type);
     if (null == Type) return null;
 
-    if (null == cachedFilteredAndSortedData.get(Type)) {
-      LUYViewer.LOGGER.info("Filter and sort data for type " + Type);
-      Map.Entry<? extends CMetamodel.TypeExpression, ? extends Set<? extends CDatamodel.Element>> resultData = m_Data.BuildingBlocks.entrySet().stream().filter(e -> e.getKey().persistentName.equals(Type.persistentName)).findFirst().orElse(null);
-      if (null == resultData) resultData = m_Data.Relationships.entrySet().stream().filter(e -> e.getKey().persistentName.equals(Type.persistentName)).findFirst().orElse(null);
-      if (null == resultData) return null;
-      int resultDataEntries = resultData.getValue().size();
+    Map.Entry<? extends CMetamodel.TypeExpression, ? extends Set<? extends CDatamodel.Element>> resultData = m_Data.BuildingBlocks.entrySet().stream().filter(e -> e.getKey().persistentName.equals(Type.persistentName)).findFirst().orElse(null);
+    if (null == resultData) resultData = m_Data.Relationships.entrySet().stream().filter(e -> e.getKey().persistentName.equals(Type.persistentName)).findFirst().orElse(null);
+    if (null == resultData) return null;
+    int resultDataEntries = resultData.getValue().size();
+    // Apply building block filter
+    List<? extends CDatamodel.Element> filteredData = getFilteredData(resultData.getKey(), resultData.getValue()).Elements();
 
+    if (null == cachedFilteredAndSortedData.get(Type)) {
+      checkNotSuperseded(m_BuildingGeneration);
+      LUYViewer.LOGGER.info("Sort data for type " + Type);
       LinkedHashSet<CMetamodel.Feature> filteredOrderingFeatures = getOrderedFeatures(Type);
-      LinkedHashSet<? extends CDatamodel.Element> result = new LinkedHashSet<>(resultData.getValue());
-      // Apply building block filter
-      CFilter filter = m_Filter.get(Type);
-      if (null != filter) result = result.stream().filter(e -> filter.evaluate(e)).collect(Collectors.toCollection(LinkedHashSet::new));
-
-      // Apply sorting by feature
+      // The feature sorted by last is the most significant one, ties keep the order of the previous features
+      List<Map.Entry<CMetamodel.Feature, SortOrder>> orderings = new ArrayList<>();
       for (Map.Entry<CMetamodel.Feature, SortOrder> e : m_Orderings.getOrDefault(Type, new LinkedHashMap<>()).entrySet()) {
-        if (filteredOrderingFeatures.contains(e.getKey())) {
-          result = result.stream().sorted((bb1, bb2) -> {
-            int comparisonResult = 0;
-            // Try a natural comparison of scalars
-            Object o1 = bb1.AdditionalData.getOrDefault(e.getKey().persistentName, null);
-            Object o2 = bb2.AdditionalData.getOrDefault(e.getKey().persistentName, null);
-            if ((o1 instanceof Comparable c1) && (o2 instanceof Comparable c2)) comparisonResult = c1.compareTo(c2);
-            else if ((o1 instanceof List l1) && (o2 instanceof List l2)) {
-              comparisonResult = Integer.compare(l1.size(), l2.size());
-              if ((0 == comparisonResult) && !l1.isEmpty() && (l1.get(0) instanceof Comparable c1) && (l2.get(0) instanceof Comparable c2))
-                comparisonResult = c1.compareTo(c2);
-            } else {
-              // Also, enumerations can be compared
-              if ((CMetamodel.FeatureType.ENUMERATION == e.getKey().featureType) && (o1 instanceof List l1) && (o2 instanceof List l2)) {
-                // An empty list of enumeration is usually smaller
-                comparisonResult = Integer.valueOf(l1.size()).compareTo(l2.size());
-                if ((0 == comparisonResult) && (0 < l1.size())) {
-                  // If both lists contain exactly one element, compare by this literal
-                  if ((l1.get(0) instanceof Comparable c1) && (l2.get(0) instanceof Comparable c2))
-                    comparisonResult = c1.compareTo(c2);
-                }
-              }
-            }
-            return (SortOrder.ASCENDING == e.getValue()) ? comparisonResult : Math.negateExact(comparisonResult);
-          }).collect(Collectors.toCollection(LinkedHashSet::new));
-        }
+        if (filteredOrderingFeatures.contains(e.getKey())) orderings.addFirst(e);
       }
+      LinkedHashSet<CDatamodel.Element> result = new LinkedHashSet<>();
+      for (int index : CElementSorter.sort(filteredData, orderings, m_Data.Indexes, resultData.getKey())) result.add(filteredData.get(index));
       cachedFilteredAndSortedData.put(Type, result);
       LUYViewer.LOGGER.info("Filtered for type " + Type.name + " from " + resultDataEntries + " entries to " + result.size());
     }
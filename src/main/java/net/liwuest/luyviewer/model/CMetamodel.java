@@ -13,6 +13,7 @@ import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
 
@@ -104,13 +105,14 @@ public class CMetamodel {
             return this.name.compareTo(Other.name);
         }
 
-        public boolean referencesBuildingblock() { return metamodel.SubstantialTypeExpressions.stream().anyMatch(r -> r.persistentName.equals(type)); }
-        public RelationshipTypeExpression getRTE() { return metamodel.RelationshipTypeExpressions.stream().filter(rte -> rte.persistentName.equals(type)).findFirst().orElse(null); }
+        public boolean referencesBuildingblock() { return null != metamodel.getSubstantialTypeExpression(type); }
+        public RelationshipTypeExpression getRTE() { return metamodel.getRelationshipTypeExpression(type); }
     }
 
     public abstract static class TypeExpression extends BasicExpression {
         public final String abbreviation;
         public final Set<Feature> features;
+        private final Map<String, Feature> m_FeaturesByPersistentName;
 
         TypeExpression(CMetamodel Metamodel, Map<String, Object> Data) {
             super(Metamodel, Data);
@@ -118,7 +120,16 @@ public class CMetamodel {
             if (Data.getOrDefault("features", new ArrayList<Map<String, Object>>()) instanceof List featureData) {
                 features = (Set<Feature>)featureData.stream().filter(fd -> fd instanceof Map).map(fd -> new Feature(Metamodel, (Map)fd)).filter(Objects::nonNull).collect(Collectors.toCollection(TreeSet::new));
             } else features = new TreeSet<>();
+            m_FeaturesByPersistentName = indexByPersistentName(features, f -> f.persistentName);
         }
+
+        /**
+         * Gets the feature of this type expression with the given persistent name.
+         *
+         * @param PersistentName The persistent name of the feature.
+         * @return The feature, or {@code null} if this type expression has no such feature.
+         */
+        public Feature getFeature(String PersistentName) { return m_FeaturesByPersistentName.get(PersistentName); }
     }
 
     public final static class RelationshipTypeExpression extends TypeExpression {
@@ -157,22 +168,52 @@ public class CMetamodel {
 
     public final static class EnumerationExpression extends BasicExpression {
         public final Set<Literal> literals;
+        private final Map<String, Literal> m_LiteralsByPersistentName;
 
         EnumerationExpression(CMetamodel Metamodel, Map<String, Object> Data) {
             super(Metamodel, Data);
             if (Data.getOrDefault("literals", new ArrayList<Map<String, Literal>>()) instanceof List literalData) {
                 literals = (Set<Literal>)literalData.stream().filter(ld -> ld instanceof Map).map(ld -> new Literal((Map)ld)).collect(Collectors.toCollection(TreeSet::new));
             } else literals = new TreeSet<>();
+            m_LiteralsByPersistentName = indexByPersistentName(literals, l -> l.persistentName);
         }
+
+        /**
+         * Gets the literal of this enumeration with the given persistent name.
+         *
+         * @param PersistentName The persistent name of the literal.
+         * @return The literal, or {@code null} if this enumeration has no such literal.
+         */
+        public Literal getLiteral(String PersistentName) { return m_LiteralsByPersistentName.get(PersistentName); }
     }
 
     public final String LUYDataVersion;
     public final Set<EnumerationExpression> EnumerationExpressions = new TreeSet<>();
     public final Set<SubstantialTypeExpression> SubstantialTypeExpressions = new TreeSet<>();
     public final Set<RelationshipTypeExpression> RelationshipTypeExpressions = new TreeSet<>();
+    private Map<String, EnumerationExpression> m_EnumerationExpressionsByPersistentName = Map.of();
+    private Map<String, SubstantialTypeExpression> m_SubstantialTypeExpressionsByPersistentName = Map.of();
+    private Map<String, RelationshipTypeExpression> m_RelationshipTypeExpressionsByPersistentName = Map.of();
 
     private CMetamodel(String LUYDataVersion) { this.LUYDataVersion = LUYDataVersion.split("/")[1]; }
 
+    /**
+     * Builds an immutable index of the given values by their persistent name.
+     * If several values share a persistent name, the first one in iteration order wins, just like a linear search would find it.
+     */
+    private static <T> Map<String, T> indexByPersistentName(Collection<T> Values, Function<T, String> PersistentName) {
+        Map<String, T> result = new HashMap<>();
+        Values.forEach(v -> result.putIfAbsent(PersistentName.apply(v), v));
+        return Map.copyOf(result);
+    }
+
+    /** Gets the enumeration expression with the given persistent name, or {@code null} if there is none. */
+    public EnumerationExpression getEnumerationExpression(String PersistentName) { return m_EnumerationExpressionsByPersistentName.get(PersistentName); }
+    /** Gets the substantial type expression with the given persistent name, or {@code null} if there is none. */
+    public SubstantialTypeExpression getSubstantialTypeExpression(String PersistentName) { return m_SubstantialTypeExpressionsByPersistentName.get(PersistentName); }
+    /** Gets the relationship type expression with the given persistent name, or {@code null} if there is none. */
+    public RelationshipTypeExpression getRelationshipTypeExpression(String PersistentName) { return m_RelationshipTypeExpressionsByPersistentName.get(PersistentName); }
+
     /**
      * Loads a {@code Metamodel} from the specified JSON file and parses its content
      * to populate the metamodel with corresponding entities such as EnumerationExpression,
@@ -199,6 +240,9 @@ public class CMetamodel {
                     break;
             }
         }
+        metamodel.m_EnumerationExpressionsByPersistentName = indexByPersistentName(metamodel.EnumerationExpressions, e -> e.persistentName);
+        metamodel.m_SubstantialTypeExpressionsByPersistentName = indexByPersistentName(metamodel.SubstantialTypeExpressions, e -> e.persistentName);
+        metamodel.m_RelationshipTypeExpressionsByPersistentName = indexByPersistentName(metamodel.RelationshipTypeExpressions, e -> e.persistentName);
 
         StringBuilder loadOutput = new StringBuilder("Loaded LUY metamodel from file '" + filename + "'");
         loadOutput.append("\n\tSubstantial types:");
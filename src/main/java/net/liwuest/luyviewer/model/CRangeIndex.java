@@ -0,0 +1,195 @@
+package net.liwuest.luyviewer.model;
+
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Sorted index of a feature with ordered primitive values (integers, decimals, dates and points in time).
+ * The first value of each element is stored as a primitive key, and the ordinals (see {@link CFeatureIndexes#getElements(CMetamodel.TypeExpression)})
+ * of the elements are sorted by it, so range and equality rules are answered by binary search instead of visiting elements.
+ * <p>
+ * The index also knows the rank of each element's first value among all values and the size of its value list, which gives the sort key of
+ * {@link CElementSorter} without reading and comparing the values again.
+ * All returned bit sets are copies, which the caller may modify.
+ */
+public final class CRangeIndex {
+  /** Value of {@link #getListSize(int)} for elements without a value. */
+  public final static int ABSENT = -1;
+
+  private final int m_Size;
+  /** Keys of the elements with a first value, ascending. Points in time are compared by {@code m_Keys} first, then by {@code m_Fractions}. */
+  private final long[] m_Keys;
+  private final int[] m_Fractions;
+  /** Ordinals of the elements with a first value, in the order of {@code m_Keys}. */
+  private final int[] m_Ordinals;
+  /** Rank of the first value of each element among all distinct values, {@code -1} if there is none. */
+  private final int[] m_Ranks;
+  private final int[] m_ListSizes;
+
+  private CRangeIndex(int Size, long[] Keys, int[] Fractions, int[] Ordinals, int[] Ranks, int[] ListSizes) {
+    m_Size = Size;
+    m_Keys = Keys;
+    m_Fractions = Fractions;
+    m_Ordinals = Ordinals;
+    m_Ranks = Ranks;
+    m_ListSizes = ListSizes;
+  }
+
+  /**
+   * Checks whether a feature can be indexed by a range index.
+   *
+   * @param Feature The feature.
+   * @return {@code true} for integer, decimal, date and date time features.
+   */
+  public static boolean supports(CMetamodel.Feature Feature) {
+    return switch (Feature.featureType) {
+      case INTEGER, DECIMAL, DATE, DATE_TIME -> true;
+      default -> false;
+    };
+  }
+
+  /** Maps a decimal to a {@code long} whose natural order is the order of {@link Double#compare(double, double)}. */
+  private static long decimalKey(double Value) {
+    long bits = Double.doubleToLongBits(Value);
+    return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+  }
+
+  /** Gets the key of a value, or {@code null} if it is not of a supported type. Points in time give their seconds, see {@link #fractionOf(Object)}. */
+  private static Long keyOf(Object Value) {
+    return switch (Value) {
+      case Integer i -> (long)i;
+      case Double d -> decimalKey(d);
+      case Instant i -> i.getEpochSecond();
+      case null, default -> null;
+    };
+  }
+  private static int fractionOf(Object Value) { return (Value instanceof Instant i) ? i.getNano() : 0; }
+
+  static CRangeIndex build(List<? extends CDatamodel.Element> Elements, CMetamodel.Feature Feature) {
+    int size = Elements.size();
+    long[] keys = new long[size];
+    int[] fractions = new int[size];
+    int[] listSizes = new int[size];
+    List<Integer> indexed = new ArrayList<>();
+    for (int ordinal = 0; ordinal < size; ordinal++) {
+      Object value = Elements.get(ordinal).AdditionalData.get(Feature.persistentName);
+      Object first = value;
+      if (value instanceof List<?> list) {
+        listSizes[ordinal] = list.size();
+        first = list.isEmpty() ? null : list.getFirst();
+      } else listSizes[ordinal] = (value instanceof Comparable) ? 0 : ABSENT;
+      Long key = keyOf(first);
+      if (null == key) continue;
+      keys[ordinal] = key;
+      fractions[ordinal] = fractionOf(first);
+      indexed.add(ordinal);
+    }
+    indexed.sort((a, b) -> {
+      int comparison = Long.compare(keys[a], keys[b]);
+      return (0 != comparison) ? comparison : Integer.compare(fractions[a], fractions[b]);
+    });
+
+    int count = indexed.size();
+    long[] sortedKeys = new long[count];
+    int[] sortedFractions = new int[count];
+    int[] ordinals = new int[count];
+    int[] ranks = new int[size];
+    Arrays.fill(ranks, -1);
+    for (int i = 0, rank = -1; i < count; i++) {
+      int ordinal = indexed.get(i);
+      ordinals[i] = ordinal;
+      sortedKeys[i] = keys[ordinal];
+      sortedFractions[i] = fractions[ordinal];
+      if ((0 == i) || (sortedKeys[i - 1] != sortedKeys[i]) || (sortedFractions[i - 1] != sortedFractions[i])) rank++;
+      ranks[ordinal] = rank;
+    }
+    return new CRangeIndex(size, sortedKeys, sortedFractions, ordinals, ranks, listSizes);
+  }
+
+  /** Gets the first position whose key is not less than the given key ({@code Inclusive}) or greater than it (not {@code Inclusive}). */
+  private int search(long Key, int Fraction, boolean Inclusive) {
+    int low = 0, high = m_Keys.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      int comparison = Long.compare(m_Keys[middle], Key);
+      if (0 == comparison) comparison = Integer.compare(m_Fractions[middle], Fraction);
+      if ((0 > comparison) || (!Inclusive && (0 == comparison))) low = middle + 1;
+      else high = middle;
+    }
+    return low;
+  }
+  private BitSet ordinals(int From, int To) {
+    BitSet result = new BitSet(m_Size);
+    for (int i = From; i < To; i++) result.set(m_Ordinals[i]);
+    return result;
+  }
+
+  /** Gets the number of indexed elements. */
+  public int size() { return m_Size; }
+
+  /**
+   * Gets the elements whose first value is less than the given value.
+   *
+   * @param Value The value, an {@link Integer}, {@link Double} or {@link Instant}.
+   * @return The ordinals of the elements.
+   */
+  public BitSet getLessThan(Object Value) {
+    Long key = keyOf(Value);
+    if ((null == key) || ((Value instanceof Double d) && d.isNaN())) return new BitSet();
+    // -0.0 is not less than 0.0, but sorted before it
+    if ((Value instanceof Double d) && (0 == d)) key = decimalKey(-0.0);
+    return ordinals(0, search(key, fractionOf(Value), true));
+  }
+
+  /**
+   * Gets the elements whose first value is greater than the given value.
+   *
+   * @param Value The value, an {@link Integer}, {@link Double} or {@link Instant}.
+   * @return The ordinals of the elements.
+   */
+  public BitSet getGreaterThan(Object Value) {
+    Long key = keyOf(Value);
+    if ((null == key) || ((Value instanceof Double d) && d.isNaN())) return new BitSet();
+    // 0.0 is not greater than -0.0, and NaN is not greater than anything, but both are sorted after them
+    if ((Value instanceof Double d) && (0 == d)) key = decimalKey(0.0);
+    int to = (Value instanceof Double) ? search(decimalKey(Double.POSITIVE_INFINITY), 0, false) : m_Keys.length;
+    return ordinals(Math.min(to, search(key, fractionOf(Value), false)), to);
+  }
+
+  /**
+   * Gets the elements whose first value equals the given value.
+   *
+   * @param Value The value, an {@link Integer}, {@link Double} or {@link Instant}.
+   * @return The ordinals of the elements.
+   */
+  public BitSet getEqualTo(Object Value) {
+    Long key = keyOf(Value);
+    if (null == key) return new BitSet();
+    int fraction = fractionOf(Value);
+    return ordinals(search(key, fraction, true), search(key, fraction, false));
+  }
+
+  /** Gets the elements without a first value. */
+  public BitSet getWithoutValue() {
+    BitSet result = new BitSet(m_Size);
+    result.set(0, m_Size);
+    result.andNot(ordinals(0, m_Keys.length));
+    return result;
+  }
+
+  /**
+   * Gets the rank of an element's first value among the distinct first values of all elements.
+   *
+   * @param Ordinal The ordinal of the element.
+   * @return The rank, {@code -1} if the element has no first value.
+   */
+  public int getRank(int Ordinal) { return m_Ranks[Ordinal]; }
+
+  /**
+   * Gets the size of an element's value list.
+   *
+   * @param Ordinal The ordinal of the element.
+   * @return The size, {@code 0} for a single value and {@link #ABSENT} if the element has no value.
+   */
+  public int getListSize(int Ordinal) { return m_ListSizes[Ordinal]; }
+}
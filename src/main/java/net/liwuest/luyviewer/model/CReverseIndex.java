@@ -0,0 +1,106 @@
+package net.liwuest.luyviewer.model;
+
+import java.util.*;
+
+/**
+ * Reverse index of a relation feature: for each referenced element, the elements referencing it by the feature.
+ * Elements are identified by their ordinals (see {@link CFeatureIndexes#getElements(CMetamodel.TypeExpression)}), the referencing ones within the
+ * indexed type and the referenced ones within the target type. This allows to evaluate a filter on the referenced elements first and to follow the
+ * matches backwards, instead of following the references of every element forwards.
+ * <p>
+ * The references are kept in compressed form: the referencing ordinals of all targets in one array, with an offset per target.
+ * All returned bit sets are copies, which the caller may modify.
+ */
+public final class CReverseIndex {
+  private final int m_Size;
+  private final int m_TargetCount;
+  /** Referencing ordinals of target {@code t} are {@code m_Sources[m_Offsets[t]..m_Offsets[t + 1])}. */
+  private final int[] m_Offsets;
+  private final int[] m_Sources;
+  private final BitSet m_WithReference;
+  private final int m_ReferencedCount;
+
+  private CReverseIndex(int Size, int TargetCount, int[] Offsets, int[] Sources, BitSet WithReference, int ReferencedCount) {
+    m_Size = Size;
+    m_TargetCount = TargetCount;
+    m_Offsets = Offsets;
+    m_Sources = Sources;
+    m_WithReference = WithReference;
+    m_ReferencedCount = ReferencedCount;
+  }
+
+  /**
+   * Checks whether a feature can be indexed by a reverse index.
+   *
+   * @param Feature The feature.
+   * @return {@code true} for relation and self relation features.
+   */
+  public static boolean supports(CMetamodel.Feature Feature) {
+    return (CMetamodel.FeatureType.RELATION == Feature.featureType) || (CMetamodel.FeatureType.SELF_RELATION == Feature.featureType);
+  }
+
+  /**
+   * Builds the index.
+   *
+   * @return The index, or {@code null} if an element references something that is not an element of the target type.
+   */
+  static CReverseIndex build(CFeatureIndexes Indexes, CMetamodel.TypeExpression Type, CMetamodel.Feature Feature, CMetamodel.TypeExpression Target) {
+    List<CDatamodel.Element> elements = Indexes.getElements(Type);
+    int targetCount = Indexes.getElements(Target).size();
+    // Resolve the target ordinals once, then count the references per target and fill them in
+    int[][] targets = new int[elements.size()][];
+    int[] offsets = new int[targetCount + 1];
+    BitSet withReference = new BitSet(elements.size());
+    for (int ordinal = 0; ordinal < elements.size(); ordinal++) {
+      if (!(elements.get(ordinal).AdditionalData.get(Feature.persistentName) instanceof Collection<?> values) || values.isEmpty()) continue;
+      withReference.set(ordinal);
+      int[] ordinals = new int[values.size()];
+      int i = 0;
+      for (Object value : values) {
+        int target = (value instanceof CDatamodel.Element element) ? Indexes.getOrdinal(Target, element) : -1;
+        if (0 > target) return null;
+        ordinals[i++] = target;
+        offsets[target + 1]++;
+      }
+      targets[ordinal] = ordinals;
+    }
+
+    int referencedCount = 0;
+    for (int t = 0; t < targetCount; t++) {
+      if (0 < offsets[t + 1]) referencedCount++;
+      offsets[t + 1] += offsets[t];
+    }
+    int[] sources = new int[offsets[targetCount]];
+    int[] next = Arrays.copyOf(offsets, targetCount);
+    for (int ordinal = 0; ordinal < elements.size(); ordinal++) {
+      if (null != targets[ordinal]) for (int target : targets[ordinal]) sources[next[target]++] = ordinal;
+    }
+    return new CReverseIndex(elements.size(), targetCount, offsets, sources, withReference, referencedCount);
+  }
+
+  /** Gets the number of indexed elements. */
+  public int size() { return m_Size; }
+
+  /** Gets the number of elements of the target type. */
+  public int getTargetCount() { return m_TargetCount; }
+
+  /** Gets the number of elements of the target type that are referenced at least once. */
+  public int getReferencedCount() { return m_ReferencedCount; }
+
+  /**
+   * Gets the elements referencing at least one of the given targets.
+   *
+   * @param Targets The ordinals of the targets.
+   * @return The ordinals of the referencing elements.
+   */
+  public BitSet getReferencing(BitSet Targets) {
+    BitSet result = new BitSet(m_Size);
+    for (int target = Targets.nextSetBit(0); (0 <= target) && (target < m_TargetCount); target = Targets.nextSetBit(target + 1)) {
+      for (int i = m_Offsets[target]; i < m_Offsets[target + 1]; i++) result.set(m_Sources[i]);
+    }
+    return result;
+  }
+
+  /** Gets the elements referencing at least one target. */
+  public BitSet getWithReference() { return (BitSet)m_WithReference.clone(); }
+}
@@ -0,0 +1,86 @@
+package net.liwuest.luyviewer.model;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * String dictionary of a data set.
+ * While loading, repeated attribute values (e.g. users, names, text attributes) are interned, so all elements share one instance per value.
+ * Text columns of a {@link CColumnStore} store dictionary codes instead of strings; values read from such columns are
+ * {@link EncodedStrings}, which lets operators compare codes instead of characters.
+ */
+public final class CStringDictionary {
+  /** Returned by {@link #lookup(String)} for strings that are not in the dictionary. */
+  public final static int NOT_FOUND = -1;
+
+  /** A list of strings backed by dictionary codes. */
+  public interface EncodedStrings {
+    CStringDictionary getDictionary();
+    /**
+     * Gets the code of the value with the given index.
+     *
+     * @param Index The index of the value.
+     * @return The code, or {@link #NOT_FOUND} if the value is null.
+     */
+    int getCode(int Index);
+  }
+
+  private volatile ConcurrentHashMap<String, String> m_Interned = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, Integer> m_Codes = new ConcurrentHashMap<>();
+  private volatile String[] m_Strings = new String[1024];
+  private int m_Size = 0;
+
+  CStringDictionary() {}
+
+  /**
+   * Gets the shared instance of a string. Thread-safe, so it may be used while elements are built in parallel.
+   *
+   * @param Value The string.
+   * @return The instance equal to {@code Value} that has been interned first, or {@code Value} itself if interning has ended.
+   */
+  String intern(String Value) {
+    ConcurrentHashMap<String, String> interned = m_Interned;
+    if ((null == Value) || (null == interned)) return Value;
+    String existing = interned.putIfAbsent(Value, Value);
+    return (null == existing) ? Value : existing;
+  }
+
+  /** Drops the table used for interning once loading has finished; the interned instances stay shared by the elements. */
+  void endInterning() { m_Interned = null; }
+
+  /**
+   * Gets the code of a string, adding it to the dictionary if necessary. Codes are assigned while loading only.
+   *
+   * @param Value The string, not {@code null}.
+   * @return The code.
+   */
+  synchronized int encode(String Value) {
+    Integer code = m_Codes.get(Value);
+    if (null != code) return code;
+    if (m_Strings.length == m_Size) m_Strings = Arrays.copyOf(m_Strings, m_Size * 2);
+    m_Strings[m_Size] = Value;
+    m_Codes.put(Value, m_Size);
+    return m_Size++;
+  }
+
+  /**
+   * Gets the string of a code.
+   *
+   * @param Code The code.
+   * @return The string.
+   */
+  public String decode(int Code) { return m_Strings[Code]; }
+
+  /**
+   * Gets the code of a string without adding it.
+   * Compiled rules look up their comparison value once, not once per element.
+   *
+   * @param Value The string.
+   * @return The code, or {@link #NOT_FOUND} if no value of the data set equals {@code Value}.
+   */
+  public int lookup(String Value) {
+    if (null == Value) return NOT_FOUND;
+    Integer code = m_Codes.get(Value);
+    return (null == code) ? NOT_FOUND : code;
+  }
+}
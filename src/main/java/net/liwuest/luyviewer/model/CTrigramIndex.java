@@ -0,0 +1,136 @@
+package net.liwuest.luyviewer.model;
+
+import java.util.*;
+
+/**
+ * Inverted trigram index of a text feature. Maps every sequence of three characters of an element's first value to the ordinals
+ * (see {@link CFeatureIndexes#getElements(CMetamodel.TypeExpression)}) of the elements containing it, so substring rules only need to
+ * verify the elements containing all trigrams of the searched text.
+ * <p>
+ * Characters are case folded before indexing and values are enclosed in start and end markers, so the same index pre-selects candidates for
+ * case-sensitive and case-insensitive searches as well as for prefixes and suffixes. The candidates are a superset of the matching elements.
+ * All returned bit sets are copies, which the caller may modify.
+ */
+public final class CTrigramIndex {
+  private final static char START = '\u0002';
+  private final static char END = '\u0003';
+
+  private final int m_Size;
+  /** Ascending ordinals of the elements containing a trigram, by its characters packed into a {@code long}. */
+  private final Map<Long, int[]> m_Postings;
+  private final BitSet m_WithValue;
+
+  private CTrigramIndex(int Size, Map<Long, int[]> Postings, BitSet WithValue) {
+    m_Size = Size;
+    m_Postings = Postings;
+    m_WithValue = WithValue;
+  }
+
+  /**
+   * Checks whether a feature can be indexed by a trigram index.
+   *
+   * @param Feature The feature.
+   * @return {@code true} for text and rich text features.
+   */
+  public static boolean supports(CMetamodel.Feature Feature) {
+    return switch (Feature.featureType) {
+      case STRING, RICHTEXT -> true;
+      default -> false;
+    };
+  }
+
+  /**
+   * Folds the case of a character like {@link String#regionMatches(boolean, int, String, int, int)} does, so that characters equal ignoring
+   * case are folded to the same character. Surrogates, which are compared as code points, are all folded to the same character.
+   */
+  private static char fold(char Char) {
+    if (Character.isSurrogate(Char)) return '\uFFFF';
+    return Character.toLowerCase(Character.toUpperCase(Char));
+  }
+  /** Folds a text and encloses it in the given markers, {@code 0} for none. */
+  private static char[] fold(String Text, char Start, char End) {
+    char[] result = new char[Text.length() + ((0 == Start) ? 0 : 1) + ((0 == End) ? 0 : 1)];
+    int i = 0;
+    if (0 != Start) result[i++] = Start;
+    for (int j = 0; j < Text.length(); j++) result[i++] = fold(Text.charAt(j));
+    if (0 != End) result[i] = End;
+    return result;
+  }
+  private static long trigram(char[] Text, int Index) { return ((long)Text[Index] << 32) | ((long)Text[Index + 1] << 16) | Text[Index + 2]; }
+
+  /** Ordinals of the elements containing a trigram while the index is built. */
+  private final static class Posting {
+    int[] Ordinals = new int[4];
+    int Size = 0;
+  }
+
+  static CTrigramIndex build(List<? extends CDatamodel.Element> Elements, CMetamodel.Feature Feature) {
+    Map<Long, Posting> postings = new HashMap<>();
+    BitSet withValue = new BitSet(Elements.size());
+    for (int ordinal = 0; ordinal < Elements.size(); ordinal++) {
+      Object value = Elements.get(ordinal).AdditionalData.get(Feature.persistentName);
+      Object first = (value instanceof List<?> list) ? (list.isEmpty() ? null : list.getFirst()) : value;
+      if (!(first instanceof String text)) continue;
+      withValue.set(ordinal);
+      char[] folded = fold(text, START, END);
+      for (int i = 0; i + 2 < folded.length; i++) {
+        Posting posting = postings.computeIfAbsent(trigram(folded, i), key -> new Posting());
+        // Ordinals are added in ascending order, so a trigram occurring twice in a value was added last
+        if ((0 < posting.Size) && (ordinal == posting.Ordinals[posting.Size - 1])) continue;
+        if (posting.Size == posting.Ordinals.length) posting.Ordinals = Arrays.copyOf(posting.Ordinals, 2 * posting.Size);
+        posting.Ordinals[posting.Size++] = ordinal;
+      }
+    }
+    Map<Long, int[]> result = new HashMap<>(2 * postings.size());
+    postings.forEach((key, posting) -> result.put(key, Arrays.copyOf(posting.Ordinals, posting.Size)));
+    return new CTrigramIndex(Elements.size(), result, withValue);
+  }
+
+  /** Gets the number of indexed elements. */
+  public int size() { return m_Size; }
+
+  /**
+   * Gets the candidates for elements whose first value contains a text.
+   *
+   * @param Text The text.
+   * @param AtStart Whether the value has to start with the text.
+   * @param AtEnd Whether the value has to end with the text.
+   * @return The ordinals of a superset of the matching elements, regardless of case. Without any trigram in the text, these are all elements with a value.
+   */
+  public BitSet getCandidates(String Text, boolean AtStart, boolean AtEnd) {
+    char[] folded = fold(Text, AtStart ? START : 0, AtEnd ? END : 0);
+    if (3 > folded.length) return getWithValue();
+
+    List<int[]> lists = new ArrayList<>();
+    Set<Long> trigrams = new HashSet<>();
+    for (int i = 0; i + 2 < folded.length; i++) {
+      long key = trigram(folded, i);
+      if (!trigrams.add(key)) continue;
+      int[] ordinals = m_Postings.get(key);
+      if (null == ordinals) return new BitSet();
+      lists.add(ordinals);
+    }
+    // Intersect the shortest lists first, so the intermediate result stays small
+    lists.sort(Comparator.comparingInt(ordinals -> ordinals.length));
+    int[] result = lists.getFirst();
+    int count = result.length;
+    for (int l = 1; (l < lists.size()) && (0 < count); l++) {
+      int[] other = lists.get(l);
+      int[] intersection = new int[count];
+      int size = 0;
+      for (int i = 0, j = 0; (i < count) && (j < other.length); ) {
+        if (result[i] < other[j]) i++;
+        else if (result[i] > other[j]) j++;
+        else { intersection[size++] = result[i]; i++; j++; }
+      }
+      result = intersection;
+      count = size;
+    }
+    BitSet candidates = new BitSet(m_Size);
+    for (int i = 0; i < count; i++) candidates.set(result[i]);
+    return candidates;
+  }
+
+  /** Gets the elements having a first value. */
+  public BitSet getWithValue() { return (BitSet)m_WithValue.clone(); }
+}
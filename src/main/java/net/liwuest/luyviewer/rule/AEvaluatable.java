@@ -1,9 +1,37 @@
 package net.liwuest.luyviewer.rule;
 
 import net.liwuest.luyviewer.model.CDatamodel;
+import net.liwuest.luyviewer.model.CFeatureIndexes;
+import net.liwuest.luyviewer.model.CMetamodel;
+
+import java.util.function.Predicate;
 
 abstract class AEvaluatable<T extends AEvaluatable> {
+  private final CEvaluationStatistics m_Statistics = new CEvaluationStatistics();
+
   public abstract boolean evaluate(CDatamodel.Element Element);
   public abstract boolean isValid();
   public abstract T copy();
+  /** Gets an immutable, comparable snapshot of this evaluatable and its current values (see {@link CFilter.State}). */
+  abstract Object getState();
+  /** Compiles this evaluatable into a predicate giving the same results as {@link #evaluate(CDatamodel.Element)}. Must be called on valid evaluatables only. */
+  Predicate<CDatamodel.Element> compile() { return compile(null); }
+  /**
+   * Compiles this evaluatable for one pass over the elements of a data model. Complex rules remember the result of their filter per referenced
+   * element during the pass (see {@link CElementMemo}). Must be called on valid evaluatables only.
+   *
+   * @param Indexes The indexes of the data model, {@code null} to not remember any results.
+   * @return The predicate.
+   */
+  abstract Predicate<CDatamodel.Element> compile(CFeatureIndexes Indexes);
+  /**
+   * Selects the elements passing this evaluatable, using indexes where possible. Must be called on valid evaluatables only.
+   *
+   * @param Indexes The indexes of the data model.
+   * @param Type The type expression of the elements to select from.
+   * @return The selection.
+   */
+  abstract CFilter.Selection select(CFeatureIndexes Indexes, CMetamodel.TypeExpression Type);
+  /** Gets the statistics of evaluating this evaluatable as part of a compiled group. */
+  CEvaluationStatistics getStatistics() { return m_Statistics; }
 }
@@ -0,0 +1,29 @@
+package net.liwuest.luyviewer.rule;
+
+import net.liwuest.luyviewer.model.CStringDictionary;
+
+/**
+ * The dictionary code of a comparison value for compiled rules, so text columns are compared by code (see {@link CStringDictionary}).
+ * The code is looked up once per dictionary. All text columns of a data set share its dictionary ({@code CDatamodel.Strings}),
+ * so a compiled rule looks the value up once, not once per element.
+ */
+final class CDictionaryCode {
+  private record ResolvedCode(CStringDictionary Dictionary, int Code) {}
+
+  private final String m_Value;
+  private volatile ResolvedCode m_Resolved = null;
+
+  CDictionaryCode(String Value) { assert null != Value; m_Value = Value; }
+
+  /**
+   * Gets the code of the value in a dictionary.
+   *
+   * @param Dictionary The dictionary of the column the value is compared to.
+   * @return The code, or {@link CStringDictionary#NOT_FOUND} if no value of the data set equals the value.
+   */
+  int get(CStringDictionary Dictionary) {
+    ResolvedCode resolved = m_Resolved;
+    if ((null == resolved) || (Dictionary != resolved.Dictionary())) m_Resolved = resolved = new ResolvedCode(Dictionary, Dictionary.lookup(m_Value));
+    return resolved.Code();
+  }
+}
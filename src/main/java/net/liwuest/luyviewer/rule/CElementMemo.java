@@ -0,0 +1,45 @@
+package net.liwuest.luyviewer.rule;
+
+import net.liwuest.luyviewer.model.CDatamodel;
+import net.liwuest.luyviewer.model.CFeatureIndexes;
+import net.liwuest.luyviewer.model.CMetamodel;
+
+import java.util.function.Predicate;
+
+/**
+ * Remembers the result of a predicate for every element of a type expression it has been tested with, by the element's ordinal
+ * (see {@link CFeatureIndexes#getOrdinal(CMetamodel.TypeExpression, CDatamodel.Element)}).
+ * Used for the filters of complex rules (see {@link Operators#SUBSTANTIALTYPE_COMPLEX_ANY}), whose referenced elements are shared by many rows:
+ * each referenced element is evaluated once per pass instead of once per row referencing it.
+ * <p>
+ * A memo is created per pass over the elements (see {@link AEvaluatable#compile(CFeatureIndexes)}), so it is sized once and released with the pass.
+ * It may be used by several threads without locking: a result that is lost in a race is just computed again.
+ */
+final class CElementMemo implements Predicate<CDatamodel.Element> {
+  private final static byte UNKNOWN = 0;
+  private final static byte PASSED = 1;
+  private final static byte FAILED = 2;
+
+  private final Predicate<CDatamodel.Element> m_Predicate;
+  private final CFeatureIndexes m_Indexes;
+  private final CMetamodel.TypeExpression m_Type;
+  private final byte[] m_Results;
+
+  CElementMemo(Predicate<CDatamodel.Element> Predicate, CFeatureIndexes Indexes, CMetamodel.TypeExpression Type) {
+    m_Predicate = Predicate;
+    m_Indexes = Indexes;
+    m_Type = Type;
+    m_Results = new byte[Indexes.getElements(Type).size()];
+  }
+
+  @Override public boolean test(CDatamodel.Element Element) {
+    int ordinal = m_Indexes.getOrdinal(m_Type, Element);
+    if (0 > ordinal) return m_Predicate.test(Element);
+    byte known = m_Results[ordinal];
+    if (UNKNOWN != known) return PASSED == known;
+
+    boolean result = m_Predicate.test(Element);
+    m_Results[ordinal] = result ? PASSED : FAILED;
+    return result;
+  }
+}
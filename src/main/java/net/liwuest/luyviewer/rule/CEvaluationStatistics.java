@@ -0,0 +1,47 @@
+package net.liwuest.luyviewer.rule;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics of a rule or group, collected from sampled evaluations of a compiled group (see {@link CGroup#compile()}).
+ * They are used to evaluate cheap and selective rules of a group first, and are shown in {@link JFXFilterStatisticsDialog}.
+ */
+final class CEvaluationStatistics {
+  private final LongAdder m_Samples = new LongAdder();
+  private final LongAdder m_Passes = new LongAdder();
+  private final LongAdder m_Nanos = new LongAdder();
+
+  void record(boolean Passed, long Nanos) {
+    m_Samples.increment();
+    if (Passed) m_Passes.increment();
+    m_Nanos.add(Nanos);
+  }
+
+  void reset() { m_Samples.reset(); m_Passes.reset(); m_Nanos.reset(); }
+
+  long getSamples() { return m_Samples.sum(); }
+
+  /** Gets the share of sampled evaluations that passed, {@code 0.5} if there are no samples yet. */
+  double getPassRate() {
+    long samples = m_Samples.sum();
+    return (0 == samples) ? 0.5 : (double)m_Passes.sum() / samples;
+  }
+
+  /** Gets the average time of a sampled evaluation in nanoseconds, {@code 0} if there are no samples yet. */
+  double getAverageNanos() {
+    long samples = m_Samples.sum();
+    return (0 == samples) ? 0 : (double)m_Nanos.sum() / samples;
+  }
+
+  /**
+   * Gets the expected cost of evaluating the rule before the other rules of a group: its average time divided by the chance that it decides the
+   * group's result, i.e. that it fails in an AND group or passes in an OR group. Rules with a lower rank are evaluated first.
+   *
+   * @param Operator The operator of the group.
+   * @return The rank.
+   */
+  double getRank(CGroup.GroupOperator Operator) {
+    double decisive = (CGroup.GroupOperator.OR == Operator) ? getPassRate() : 1 - getPassRate();
+    return getAverageNanos() / Math.max(0.001, decisive);
+  }
+}
@@ -0,0 +1,51 @@
+package net.liwuest.luyviewer.rule;
+
+import net.liwuest.luyviewer.model.CColumnStore;
+import net.liwuest.luyviewer.model.CDatamodel;
+import net.liwuest.luyviewer.model.CMetamodel;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Reads the values of a feature for compiled rules (see {@link Operators.IOperator#compile(CMetamodel.Feature, Object)}).
+ * The column of the feature is looked up once per column store instead of once per element, so typed columns can be read without boxing.
+ */
+final class CFeatureAccessor {
+  private record ResolvedColumn(CColumnStore Store, CColumnStore.Column Column) {}
+
+  private final CMetamodel.Feature m_Feature;
+  private volatile ResolvedColumn m_Resolved = null;
+
+  CFeatureAccessor(CMetamodel.Feature Feature) { assert null != Feature; m_Feature = Feature; }
+
+  /** Gets the value of the feature, as {@code Element.AdditionalData} does. */
+  Object getValue(CDatamodel.Element Element) { return Element.AdditionalData.get(m_Feature.persistentName); }
+
+  /** Gets the first value of the feature, or the value itself if it is not a collection. */
+  Object getFirstValue(CDatamodel.Element Element) { return firstValue(getValue(Element)); }
+
+  /**
+   * Gets the column holding the values of the feature for an element.
+   *
+   * @param Element The element.
+   * @return The column, or {@code null} if the values of the element are not held by a column; then use {@link #getValue(CDatamodel.Element)}.
+   */
+  CColumnStore.Column getColumn(CDatamodel.Element Element) {
+    CColumnStore store = Element.getColumnStore();
+    if (null == store) return null;
+    ResolvedColumn resolved = m_Resolved;
+    if ((null == resolved) || (store != resolved.Store())) m_Resolved = resolved = new ResolvedColumn(store, store.getColumn(m_Feature));
+    CColumnStore.Column result = resolved.Column();
+    return ((null != result) && result.isPresent(Element.getColumnRow())) ? result : null;
+  }
+
+  /** Checks whether a column holds a first value for the given row, i.e. a non-empty list not starting with {@code null}. */
+  static boolean hasFirstValue(CColumnStore.Column Column, int Row) { return (0 < Column.size(Row)) && !Column.isNull(Row, 0); }
+
+  static Object firstValue(Object Value) {
+    if (Value instanceof List<?> list) return list.isEmpty() ? null : list.getFirst();
+    if (Value instanceof Collection<?> collection) return collection.isEmpty() ? null : collection.iterator().next();
+    return Value;
+  }
+}
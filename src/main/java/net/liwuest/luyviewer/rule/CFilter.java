@@ -1,12 +1,84 @@
 package net.liwuest.luyviewer.rule;
 
 import net.liwuest.luyviewer.model.CDatamodel;
+import net.liwuest.luyviewer.model.CFeatureIndexes;
 import net.liwuest.luyviewer.model.CMetamodel;
+import net.liwuest.luyviewer.util.CEventBus;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 
 public final class CFilter extends AEvaluatable<CFilter> {
+  /**
+   * The elements selected by a filter (see {@link #select(CFeatureIndexes, CMetamodel.TypeExpression)}).
+   *
+   * @param Candidates The ordinals of the candidate elements (see {@link CFeatureIndexes#getElements(CMetamodel.TypeExpression)}), {@code null} for all elements.
+   * @param Residual The rules candidates must still pass, {@code null} if all candidates pass the filter.
+   */
+  public record Selection(BitSet Candidates, Predicate<CDatamodel.Element> Residual) {
+    /**
+     * Gets the elements passing the filter, evaluating the residual rules on the candidates.
+     *
+     * @param Elements The elements of the type expression the selection was made for, by ordinal.
+     * @return The ordinals of the passing elements.
+     */
+    public BitSet evaluate(List<? extends CDatamodel.Element> Elements) {
+      BitSet result = (null == Candidates) ? new BitSet(Elements.size()) : (BitSet)Candidates.clone();
+      if (null == Candidates) result.set(0, Elements.size());
+      if (null != Residual) for (int ordinal = result.nextSetBit(0); 0 <= ordinal; ordinal = result.nextSetBit(ordinal + 1)) {
+        if (!Residual.test(Elements.get(ordinal))) result.clear(ordinal);
+      }
+      return result;
+    }
+  }
+
+  record RuleState(CMetamodel.Feature Feature, Operators.IOperator Operator, Object Value) {}
+  record GroupState(CGroup.GroupOperator Operator, List<Object> Rules) {}
+
+  /**
+   * Immutable snapshot of a filter's rules and values. Rules are changed in place, so a snapshot is needed to tell whether
+   * (and how) a filter has changed since its result was computed. Two states are equal if the filters select the same elements for sure.
+   */
+  public final static class State {
+    private final CMetamodel.TypeExpression m_TypeExpression;
+    private final GroupState m_Root;
+
+    private State(CMetamodel.TypeExpression TypeExpression, GroupState Root) { m_TypeExpression = TypeExpression; m_Root = Root; }
+
+    /**
+     * Checks whether a filter in this state selects a subset of the elements selected in the given previous state.
+     * This is the case if both are equal, or if both root groups are AND groups and this one has all rules of the previous one (and possibly more).
+     *
+     * @param Previous The previous state, {@code null} if no filter was applied.
+     * @return {@code true} if only the elements selected in the previous state need to be evaluated.
+     */
+    public boolean isNarrowingOf(State Previous) {
+      if (null == Previous) return true;
+      if (equals(Previous)) return true;
+      if ((m_TypeExpression != Previous.m_TypeExpression) || (null == m_Root) || (null == Previous.m_Root)) return false;
+      if ((CGroup.GroupOperator.AND != m_Root.Operator()) || (CGroup.GroupOperator.AND != Previous.m_Root.Operator())) return false;
+      List<Object> additionalRules = new ArrayList<>(m_Root.Rules());
+      for (Object rule : Previous.m_Root.Rules()) if (!additionalRules.remove(rule)) return false;
+      return true;
+    }
+
+    @Override public boolean equals(Object Other) { return (Other instanceof State s) && (m_TypeExpression == s.m_TypeExpression) && Objects.equals(m_Root, s.m_Root); }
+    @Override public int hashCode() { return Objects.hash(m_TypeExpression, m_Root); }
+  }
+
+  /** Counts changes of any rule or group. Events do not tell which filter has changed, so any change invalidates all compiled filters. */
+  private final static AtomicLong Generation = new AtomicLong();
+  static { CEventBus.subscribe(event -> Generation.incrementAndGet(), EventEvaluatableChanged.class); }
+  private record Compiled(long Generation, Predicate<CDatamodel.Element> Predicate) {}
+
   private String m_FilterName;
   private CMetamodel.TypeExpression m_TypeExpression;
   private CGroup m_Group;
+  private volatile Compiled m_Compiled = null;
 
   public CFilter(String Filtername, CMetamodel.TypeExpression TypeExpression) { this(Filtername, TypeExpression, new CGroup(CGroup.GroupOperator.AND)); }
   public CFilter(String Filtername, CMetamodel.TypeExpression TypeExpression, CGroup Group) {
@@ -23,11 +95,50 @@ public final class CFilter extends AEvaluatable<CFilter> {
   public CMetamodel.TypeExpression getTypeExpression() { return m_TypeExpression; }
   public CGroup getRootGroup() { return m_Group; }
 
-  @Override public boolean evaluate(CDatamodel.Element Element) {
-    if (null == m_Group) return true;
-    else return m_Group.evaluate(Element);
+  @Override public boolean evaluate(CDatamodel.Element Element) { return compile().test(Element); }
+  /**
+   * Gets this filter as a predicate. The rule tree is compiled once and reused until a rule or group changes.
+   * Invalid filters are not compiled, but evaluated by walking the rule tree.
+   * The predicate may be tested by several threads at once, as long as the rules are not changed meanwhile.
+   */
+  @Override public Predicate<CDatamodel.Element> compile() {
+    Compiled compiled = m_Compiled;
+    long generation = Generation.get();
+    if ((null != compiled) && (generation == compiled.Generation())) return compiled.Predicate();
+    Predicate<CDatamodel.Element> predicate;
+    if (null == m_Group) predicate = e -> true;
+    else if (isValid()) predicate = m_Group.compile();
+    else predicate = m_Group::evaluate;
+    m_Compiled = new Compiled(generation, predicate);
+    return predicate;
+  }
+  /**
+   * Compiles this filter for one pass over the elements of a data model, see {@link AEvaluatable#compile(CFeatureIndexes)}.
+   * Unlike {@link #compile()}, the predicate is not reused, so the results remembered by complex rules do not outlive the pass.
+   *
+   * @param Indexes The indexes of the data model, {@code null} for the same predicate as {@link #compile()}.
+   * @return The predicate.
+   */
+  @Override public Predicate<CDatamodel.Element> compile(CFeatureIndexes Indexes) {
+    if (null == Indexes) return compile();
+    if (null == m_Group) return e -> true;
+    return isValid() ? m_Group.compile(Indexes) : m_Group::evaluate;
+  }
+  /**
+   * Selects the elements passing this filter. Rules that can be answered by indexes
+   * (see {@link Operators.IOperator#select(CFeatureIndexes, CMetamodel.TypeExpression, CMetamodel.Feature, Object)}) are combined as bit sets,
+   * so only the remaining rules need to be evaluated per element.
+   *
+   * @param Indexes The indexes of the data model.
+   * @param Type The type expression of the data model the filter is applied to.
+   * @return The selection.
+   */
+  @Override public Selection select(CFeatureIndexes Indexes, CMetamodel.TypeExpression Type) {
+    if ((null == m_Group) || !isValid()) return new Selection(null, compile());
+    return m_Group.select(Indexes, Type);
   }
   @Override public boolean isValid() { return (m_TypeExpression != null) && m_Group.isValid(); }
+  @Override public State getState() { return new State(m_TypeExpression, (null == m_Group) ? null : (GroupState)m_Group.getState()); }
   @Override public CFilter copy() {
     CFilter result = new CFilter(m_FilterName, m_TypeExpression, m_Group);
     return result;
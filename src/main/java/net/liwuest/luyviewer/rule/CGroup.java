@@ -1,9 +1,13 @@
 package net.liwuest.luyviewer.rule;
 
 import net.liwuest.luyviewer.model.CDatamodel;
+import net.liwuest.luyviewer.model.CFeatureIndexes;
+import net.liwuest.luyviewer.model.CMetamodel;
 import net.liwuest.luyviewer.util.CEventBus;
 
-import java.util.LinkedHashSet;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
 
 public final class CGroup extends AEvaluatable<CGroup> {
   public enum GroupOperator {
@@ -12,6 +16,58 @@ public final class CGroup extends AEvaluatable<CGroup> {
     NOT
   }
 
+  /** On average every that many evaluations, a compiled AND or OR group evaluates and times all of its rules to update their statistics. */
+  private final static int SAMPLING_INTERVAL = 64;
+  /** After that many samples, a compiled group orders its rules by their statistics again. */
+  private final static int REORDERING_INTERVAL = 32;
+
+  /**
+   * Compiled AND or OR group. Its rules are evaluated in the order of their rank (see {@link CEvaluationStatistics#getRank(GroupOperator)}),
+   * so cheap rules that decide the result often come first. The order follows the statistics collected from sampled evaluations.
+   */
+  private final static class CompiledGroup implements Predicate<CDatamodel.Element> {
+    private record Rule(AEvaluatable Evaluatable, Predicate<CDatamodel.Element> Predicate) {}
+
+    private final GroupOperator m_Operator;
+    private final boolean m_IsAnd;
+    private volatile Rule[] m_Rules;
+    // Not synchronized: lost updates from concurrent evaluations only shift the reordering a little
+    private int m_Samples = 0;
+
+    CompiledGroup(GroupOperator Operator, Rule[] Rules) {
+      m_Operator = Operator;
+      m_IsAnd = GroupOperator.AND == Operator;
+      m_Rules = reorder(Rules);
+    }
+
+    private Rule[] reorder(Rule[] Rules) {
+      Rule[] result = Rules.clone();
+      Arrays.sort(result, Comparator.comparingDouble(r -> r.Evaluatable().getStatistics().getRank(m_Operator)));
+      return result;
+    }
+
+    @Override public boolean test(CDatamodel.Element Element) {
+      // Sampled at random rather than by a shared counter, which threads filtering in parallel would contend for
+      if (0 == ThreadLocalRandom.current().nextInt(SAMPLING_INTERVAL)) return testSampled(Element);
+      for (Rule rule : m_Rules) if (m_IsAnd != rule.Predicate().test(Element)) return !m_IsAnd;
+      return m_IsAnd;
+    }
+
+    /** Evaluates all rules without short-circuiting, so the pass rates of the rules evaluated last are sampled as well. */
+    private boolean testSampled(CDatamodel.Element Element) {
+      Rule[] rules = m_Rules;
+      boolean result = m_IsAnd;
+      for (Rule rule : rules) {
+        long start = System.nanoTime();
+        boolean passed = rule.Predicate().test(Element);
+        rule.Evaluatable().getStatistics().record(passed, System.nanoTime() - start);
+        if (m_IsAnd != passed) result = !m_IsAnd;
+      }
+      if (0 == (++m_Samples % REORDERING_INTERVAL)) m_Rules = reorder(rules);
+      return result;
+    }
+  }
+
   private CGroup m_Parent = null;
   private GroupOperator m_Operator;
   private LinkedHashSet<AEvaluatable> m_Rules = new LinkedHashSet<>();
@@ -64,7 +120,65 @@ public final class CGroup extends AEvaluatable<CGroup> {
       case GroupOperator.OR -> m_Rules.stream().anyMatch(r -> r.evaluate(Element));
     };
   }
+  @Override Predicate<CDatamodel.Element> compile(CFeatureIndexes Indexes) {
+    if (m_Rules.isEmpty()) return e -> true;
+    if (GroupOperator.NOT == m_Operator) {
+      Predicate<CDatamodel.Element> rule = m_Rules.getFirst().compile(Indexes);
+      return e -> !rule.test(e);
+    }
+    if (1 == m_Rules.size()) return m_Rules.getFirst().compile(Indexes);
+    return new CompiledGroup(m_Operator, m_Rules.stream().map(r -> new CompiledGroup.Rule(r, r.compile(Indexes))).toArray(CompiledGroup.Rule[]::new));
+  }
+  /**
+   * Selects the elements passing this group. The candidates of an AND group are the intersection of the candidates of its rules,
+   * and only the rules that could not be answered by an index remain to be evaluated per element.
+   * OR and NOT groups use indexes only if all of their rules can be answered by indexes.
+   */
+  @Override CFilter.Selection select(CFeatureIndexes Indexes, CMetamodel.TypeExpression Type) {
+    if (m_Rules.isEmpty()) return new CFilter.Selection(null, null);
+    return switch (m_Operator) {
+      case GroupOperator.AND -> {
+        BitSet candidates = null;
+        List<CompiledGroup.Rule> residualRules = new ArrayList<>();
+        for (AEvaluatable rule : m_Rules) {
+          CFilter.Selection selection = rule.select(Indexes, Type);
+          if (null != selection.Candidates()) {
+            if (null == candidates) candidates = selection.Candidates();
+            else candidates.and(selection.Candidates());
+          }
+          if (null != selection.Residual()) residualRules.add(new CompiledGroup.Rule(rule, selection.Residual()));
+        }
+        Predicate<CDatamodel.Element> residual = switch (residualRules.size()) {
+          case 0 -> null;
+          case 1 -> residualRules.getFirst().Predicate();
+          default -> new CompiledGroup(GroupOperator.AND, residualRules.toArray(CompiledGroup.Rule[]::new));
+        };
+        yield new CFilter.Selection(candidates, residual);
+      }
+      case GroupOperator.OR -> {
+        BitSet candidates = new BitSet();
+        boolean exact = true;
+        for (AEvaluatable rule : m_Rules) {
+          CFilter.Selection selection = rule.select(Indexes, Type);
+          if (null == selection.Candidates()) yield new CFilter.Selection(null, compile(Indexes));
+          candidates.or(selection.Candidates());
+          exact &= (null == selection.Residual());
+        }
+        yield new CFilter.Selection(candidates, exact ? null : compile(Indexes));
+      }
+      case GroupOperator.NOT -> {
+        CFilter.Selection selection = m_Rules.getFirst().select(Indexes, Type);
+        if (null != selection.Residual()) yield new CFilter.Selection(null, compile(Indexes));
+        BitSet candidates = new BitSet();
+        candidates.set(0, Indexes.getElements(Type).size());
+        if (null != selection.Candidates()) candidates.andNot(selection.Candidates());
+        else candidates.clear();
+        yield new CFilter.Selection(candidates, null);
+      }
+    };
+  }
   @Override public boolean isValid() { return m_Rules.stream().allMatch(AEvaluatable::isValid); }
+  @Override Object getState() { return new CFilter.GroupState(m_Operator, m_Rules.stream().map(AEvaluatable::getState).toList()); }
   @Override public CGroup copy() {
     CGroup result = new CGroup(m_Operator);
     m_Rules.forEach(rule -> result.addRule(rule.copy()));
@@ -1,9 +1,17 @@
 package net.liwuest.luyviewer.rule;
 
 import net.liwuest.luyviewer.model.CDatamodel;
+import net.liwuest.luyviewer.model.CFeatureIndexes;
 import net.liwuest.luyviewer.model.CMetamodel;
 import net.liwuest.luyviewer.util.CEventBus;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
 public final class CRule extends AEvaluatable<CRule> {
   private CMetamodel.Feature m_Feature;
   private Operators.IOperator m_Operator;
@@ -28,6 +36,7 @@ public final class CRule extends AEvaluatable<CRule> {
     if (null != Feature) {
       if (null != m_Operator) assert m_Operator.compatibleWith(Feature);
       m_Feature = Feature;
+      getStatistics().reset();
       CEventBus.publish(new EventEvaluatableChanged());
     }
     return this;
@@ -37,15 +46,34 @@ public final class CRule extends AEvaluatable<CRule> {
     if (null != Operator) {
       if (null != m_Feature) assert Operator.compatibleWith(m_Feature);
       m_Operator = Operator;
+      getStatistics().reset();
       CEventBus.publish(new EventEvaluatableChanged());
     }
     return this;
   }
   public Object getValue() { return m_Value; }
-  public CRule setValue(Object Values) { m_Value = Values; CEventBus.publish(new EventEvaluatableChanged()); return this; }
+  public CRule setValue(Object Values) { m_Value = Values; getStatistics().reset(); CEventBus.publish(new EventEvaluatableChanged()); return this; }
 
   @Override public boolean evaluate(CDatamodel.Element Element) { if ((null == Element) || (null == m_Operator)) return true; return m_Operator.evaluate(Element.AdditionalData.get(m_Feature.persistentName), m_Feature, m_Value); }
+  @SuppressWarnings("unchecked")
+  @Override Predicate<CDatamodel.Element> compile(CFeatureIndexes Indexes) { return (null == m_Operator) ? e -> true : m_Operator.compile(m_Feature, m_Value, Indexes); }
+  @SuppressWarnings("unchecked")
+  @Override CFilter.Selection select(CFeatureIndexes Indexes, CMetamodel.TypeExpression Type) {
+    if (null == m_Operator) return new CFilter.Selection(null, null);
+    BitSet candidates = m_Operator.select(Indexes, Type, m_Feature, m_Value);
+    if (null != candidates) return new CFilter.Selection(candidates, null);
+    return new CFilter.Selection(m_Operator.preselect(Indexes, Type, m_Feature, m_Value), compile(Indexes));
+  }
   @Override public boolean isValid() { return (null != m_Feature) && (null != m_Operator) && (!m_Operator.requiresInput() || null != m_Value); }
+  @Override Object getState() {
+    Object value = switch (m_Value) {
+      case CFilter filter -> filter.getState();
+      case Set<?> set -> new HashSet<>(set);
+      case List<?> list -> new ArrayList<>(list);
+      case null, default -> m_Value;
+    };
+    return new CFilter.RuleState(m_Feature, m_Operator, value);
+  }
   @Override public CRule copy() {
     if (null == m_Feature) {
       if (null == m_Operator) return new CRule(m_Value);
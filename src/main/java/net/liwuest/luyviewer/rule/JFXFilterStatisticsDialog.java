@@ -0,0 +1,82 @@
+package net.liwuest.luyviewer.rule;
+
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+import net.liwuest.luyviewer.util.CTranslations;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Debug view showing the evaluation statistics of a filter's rules (see {@link CEvaluationStatistics}):
+ * how often each rule passed in sampled evaluations, how long it took, and in which order the rules of each group are evaluated.
+ */
+public class JFXFilterStatisticsDialog extends Stage {
+    private final CFilter filter;
+    private final TreeTableView<AEvaluatable> treeTable = new TreeTableView<>();
+
+    public JFXFilterStatisticsDialog(CFilter Filter) {
+        assert null != Filter;
+        this.filter = Filter;
+        setTitle(CTranslations.INSTANCE.Title_FilterStatistics + " - " + Filter.getFilterName());
+
+        TreeTableColumn<AEvaluatable, String> ruleColumn = new TreeTableColumn<>(CTranslations.INSTANCE.Label_FilterRule);
+        ruleColumn.setCellValueFactory(cell -> new ReadOnlyStringWrapper(describe(cell.getValue().getValue())));
+        ruleColumn.setPrefWidth(360);
+        TreeTableColumn<AEvaluatable, Number> orderColumn = new TreeTableColumn<>(CTranslations.INSTANCE.Label_EvaluationOrder);
+        orderColumn.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(getEvaluationOrder(cell.getValue())));
+        TreeTableColumn<AEvaluatable, Number> samplesColumn = new TreeTableColumn<>(CTranslations.INSTANCE.Label_Samples);
+        samplesColumn.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue().getValue().getStatistics().getSamples()));
+        TreeTableColumn<AEvaluatable, String> passRateColumn = new TreeTableColumn<>(CTranslations.INSTANCE.Label_PassRate);
+        passRateColumn.setCellValueFactory(cell -> new ReadOnlyStringWrapper(String.format("%.1f %%", 100 * cell.getValue().getValue().getStatistics().getPassRate())));
+        TreeTableColumn<AEvaluatable, String> timeColumn = new TreeTableColumn<>(CTranslations.INSTANCE.Label_AverageTime);
+        timeColumn.setCellValueFactory(cell -> new ReadOnlyStringWrapper(String.format("%.2f µs", cell.getValue().getValue().getStatistics().getAverageNanos() / 1000)));
+        treeTable.getColumns().addAll(List.of(ruleColumn, orderColumn, samplesColumn, passRateColumn, timeColumn));
+        treeTable.setShowRoot(true);
+        refresh();
+
+        Button btnRefresh = new Button(CTranslations.INSTANCE.Button_Refresh);
+        btnRefresh.setOnAction(e -> refresh());
+        Button btnClose = new Button(CTranslations.INSTANCE.Button_Close);
+        btnClose.setOnAction(e -> close());
+        HBox buttonBar = new HBox(10, btnRefresh, btnClose);
+        buttonBar.setStyle("-fx-alignment: center-right;");
+
+        VBox root = new VBox(10, treeTable, buttonBar);
+        root.setPadding(new Insets(15));
+        VBox.setVgrow(treeTable, Priority.ALWAYS);
+        setScene(new Scene(root, 800, 400));
+    }
+
+    private void refresh() { treeTable.setRoot(createItem(filter.getRootGroup())); }
+
+    private TreeItem<AEvaluatable> createItem(AEvaluatable Evaluatable) {
+        TreeItem<AEvaluatable> result = new TreeItem<>(Evaluatable);
+        result.setExpanded(true);
+        if (Evaluatable instanceof CGroup group) group.getRules().forEach(rule -> result.getChildren().add(createItem(rule)));
+        return result;
+    }
+
+    /** Gets the position at which a rule is evaluated within its AND or OR group, {@code null} for the root and rules of NOT groups. */
+    private static Integer getEvaluationOrder(TreeItem<AEvaluatable> Item) {
+        if (!(Item.getParent() instanceof TreeItem<AEvaluatable> parent) || !(parent.getValue() instanceof CGroup group) || (CGroup.GroupOperator.NOT == group.getOperator())) return null;
+        List<AEvaluatable> ordered = group.getRules().stream().sorted(Comparator.comparingDouble(r -> r.getStatistics().getRank(group.getOperator()))).toList();
+        return ordered.indexOf(Item.getValue()) + 1;
+    }
+
+    private static String describe(AEvaluatable Evaluatable) {
+        if (Evaluatable instanceof CGroup group) return CTranslations.INSTANCE.Label_Group + " " + group.getOperator();
+        if (Evaluatable instanceof CRule rule) {
+            String value = (rule.getValue() instanceof CFilter subFilter) ? subFilter.getFilterName() : String.valueOf(rule.getValue());
+            return ((null == rule.getFeature()) ? "" : rule.getFeature().name) + " " + ((null == rule.getOperator()) ? "" : rule.getOperator().toString()) + " " + value;
+        }
+        return String.valueOf(Evaluatable);
+    }
+}
@@ -3,13 +3,26 @@ package net.liwuest.luyviewer.rule;
 import javafx.scene.Node;
 import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
+import net.liwuest.luyviewer.model.CColumnStore;
+import net.liwuest.luyviewer.model.CBitmapIndex;
 import net.liwuest.luyviewer.model.CDatamodel;
+import net.liwuest.luyviewer.model.CFeatureIndexes;
 import net.liwuest.luyviewer.model.CMetamodel;
+import net.liwuest.luyviewer.model.CRangeIndex;
+import net.liwuest.luyviewer.model.CReverseIndex;
+import net.liwuest.luyviewer.model.CStringDictionary;
+import net.liwuest.luyviewer.model.CTrigramIndex;
+import net.liwuest.luyviewer.util.CConfigService;
 import net.liwuest.luyviewer.util.CTranslations;
 
+import java.io.IOException;
 import java.lang.reflect.Field;
 import java.time.*;
 import java.util.*;
+import java.util.function.BiFunction;
+import java.util.function.DoublePredicate;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 public final class Operators {
@@ -24,6 +37,54 @@ public final class Operators {
      */
     boolean evaluate(Object Value, CMetamodel.Feature OfFeature, T Against);
 
+    /**
+     * Compiles this operator into a predicate on elements, which gives the same result as {@link #evaluate(Object, CMetamodel.Feature, Object)}
+     * on the element's value. Operators override this to unwrap the comparison value and to read typed columns once.
+     *
+     * @param OfFeature The feature to evaluate.
+     * @param Against The values to evaluate against.
+     * @return The predicate.
+     */
+    default Predicate<CDatamodel.Element> compile(CMetamodel.Feature OfFeature, T Against) {
+      String persistentName = OfFeature.persistentName;
+      return e -> evaluate(e.AdditionalData.get(persistentName), OfFeature, Against);
+    }
+
+    /**
+     * Compiles this operator for one pass over the elements of a data model, see {@link #compile(CMetamodel.Feature, Object)}.
+     * Operators whose results can be reused during the pass (see {@link CElementMemo}) override this.
+     *
+     * @param OfFeature The feature to evaluate.
+     * @param Against The values to evaluate against.
+     * @param Indexes The indexes of the data model, {@code null} if there is no pass.
+     * @return The predicate.
+     */
+    default Predicate<CDatamodel.Element> compile(CMetamodel.Feature OfFeature, T Against, CFeatureIndexes Indexes) { return compile(OfFeature, Against); }
+
+    /**
+     * Selects the elements matching this operator by an index, without evaluating them one by one.
+     *
+     * @param Indexes The indexes of the data model.
+     * @param Type The type expression of the elements.
+     * @param OfFeature The feature to evaluate.
+     * @param Against The values to evaluate against.
+     * @return The ordinals of exactly the matching elements (see {@link CFeatureIndexes#getElements(CMetamodel.TypeExpression)}),
+     *         or {@code null} if this operator cannot be answered by an index.
+     */
+    default BitSet select(CFeatureIndexes Indexes, CMetamodel.TypeExpression Type, CMetamodel.Feature OfFeature, T Against) { return null; }
+
+    /**
+     * Pre-selects candidates for the elements matching this operator by an index. Unlike {@link #select(CFeatureIndexes, CMetamodel.TypeExpression, CMetamodel.Feature, Object)},
+     * the candidates may include elements that do not match, so they still have to be verified by {@link #compile(CMetamodel.Feature, Object)}.
+     *
+     * @param Indexes The indexes of the data model.
+     * @param Type The type expression of the elements.
+     * @param OfFeature The feature to evaluate.
+     * @param Against The values to evaluate against.
+     * @return The ordinals of a superset of the matching elements, or {@code null} if there is no index for this operator.
+     */
+    default BitSet preselect(CFeatureIndexes Indexes, CMetamodel.TypeExpression Type, CMetamodel.Feature OfFeature, T Against) { return null; }
+
     /**
      * Checks if this operator is compatible to the given feature type.
      *
@@ -47,6 +108,76 @@ public final class Operators {
     default boolean requiresInput() { return true; }
   }
 
+  /** Compiles a test of the first boolean value of a feature; elements without such a value give {@code IfMissing}. */
+  private static Predicate<CDatamodel.Element> compileBoolean(CMetamodel.Feature OfFeature, boolean IfMissing, Predicate<Boolean> Test) {
+    CFeatureAccessor accessor = new CFeatureAccessor(OfFeature);
+    return e -> {
+      if (accessor.getColumn(e) instanceof CColumnStore.BooleanColumn column) {
+        int row = e.getColumnRow();
+        return CFeatureAccessor.hasFirstValue(column, row) ? Test.test(column.getBoolean(row, 0)) : IfMissing;
+      }
+      return (accessor.getFirstValue(e) instanceof Boolean value) ? Test.test(value) : IfMissing;
+    };
+  }
+  /** Compiles a test of the first integer value of a feature; elements without such a value give {@code IfMissing}. */
+  private static Predicate<CDatamodel.Element> compileInteger(CMetamodel.Feature OfFeature, boolean IfMissing, IntPredicate Test) {
+    CFeatureAccessor accessor = new CFeatureAccessor(OfFeature);
+    return e -> {
+      if (accessor.getColumn(e) instanceof CColumnStore.IntegerColumn column) {
+        int row = e.getColumnRow();
+        return CFeatureAccessor.hasFirstValue(column, row) ? Test.test(column.getInt(row, 0)) : IfMissing;
+      }
+      return (accessor.getFirstValue(e) instanceof Integer value) ? Test.test(value) : IfMissing;
+    };
+  }
+  /** Compiles a test of the first decimal value of a feature; elements without such a value give {@code IfMissing}. */
+  private static Predicate<CDatamodel.Element> compileDecimal(CMetamodel.Feature OfFeature, boolean IfMissing, DoublePredicate Test) {
+    CFeatureAccessor accessor = new CFeatureAccessor(OfFeature);
+    return e -> {
+      if (accessor.getColumn(e) instanceof CColumnStore.DecimalColumn column) {
+        int row = e.getColumnRow();
+        return CFeatureAccessor.hasFirstValue(column, row) ? Test.test(column.getDouble(row, 0)) : IfMissing;
+      }
+      return (accessor.getFirstValue(e) instanceof Double value) ? Test.test(value) : IfMissing;
+    };
+  }
+  /**
+   * Compiles a comparison of the first point in time of a feature with {@code Against}; elements without such a value do not match.
+   * {@code Test} gets the result of comparing the value to {@code Against}, like {@link Instant#compareTo(Instant)}.
+   */
+  private static Predicate<CDatamodel.Element> compileInstant(CMetamodel.Feature OfFeature, Instant Against, IntPredicate Test) {
+    CFeatureAccessor accessor = new CFeatureAccessor(OfFeature);
+    long againstSeconds = Against.getEpochSecond();
+    int againstNanos = Against.getNano();
+    return e -> {
+      if (accessor.getColumn(e) instanceof CColumnStore.InstantColumn column) {
+        int row = e.getColumnRow();
+        if (!CFeatureAccessor.hasFirstValue(column, row)) return false;
+        int comparison = Long.compare(column.getEpochSecond(row, 0), againstSeconds);
+        return Test.test((0 != comparison) ? comparison : Integer.compare(column.getNano(row, 0), againstNanos));
+      }
+      return (accessor.getFirstValue(e) instanceof Instant value) && Test.test(value.compareTo(Against));
+    };
+  }
+  /** Compiles a test of the first text value of a feature; elements without such a value give {@code IfMissing}. */
+  private static Predicate<CDatamodel.Element> compileString(CMetamodel.Feature OfFeature, boolean IfMissing, Predicate<String> Test) {
+    CFeatureAccessor accessor = new CFeatureAccessor(OfFeature);
+    return e -> {
+      if (accessor.getColumn(e) instanceof CColumnStore.StringColumn column) {
+        int row = e.getColumnRow();
+        return CFeatureAccessor.hasFirstValue(column, row) ? Test.test(column.getString(row, 0)) : IfMissing;
+      }
+      return (accessor.getFirstValue(e) instanceof String value) ? Test.test(value) : IfMissing;
+    };
+  }
+
+  /** Selects by the range index of a feature; {@code Against} {@code null} selects the elements without a value, as the operators do. */
+  private static BitSet selectRange(CFeatureIndexes Indexes, CMetamodel.TypeExpression Type, CMetamodel.Feature OfFeature, Object Against, BiFunction<CRangeIndex, Object, BitSet> Lookup) {
+    CRangeIndex index = Indexes.getRangeIndex(Type, OfFeature);
+    if (null == index) return null;
+    return (null == Against) ? index.getWithoutValue() : Lookup.apply(index, Against);
+  }
+
   private static Node getBooleanInput(CRule Rule) {
     CheckBox cb = new CheckBox();
     cb.setSelected(true);
@@ -69,6 +200,16 @@ public final class Operators {
       else return Against.equals(valueToValidate);
     }
 
+    @Override public Predicate<CDatamodel.Element> compile(CMetamodel.Feature OfFeature, Boolean Against) {
+      if (null == Against) return compileBoolean(OfFeature, true, v -> false);
+      boolean against = Against;
+      return compileBoolean(OfFeature, false, v -> against == v);
+    }
+    @Override public BitSet select(CFeatureIndexes Indexes, CMetamodel.TypeExpression Type, CMetamodel.Feature OfFeature, Boolean Against) {
+      CBitmapIndex index = Indexes.getBitmapIndex(Type, OfFeature);
+      if (null == index) return null;
+      return (null == Against) ? index.getWithoutValue() : index.get(Against);
+    }
     @Override public boolean compatibleWith(CMetamodel.Feature Feature) { return CMetamodel.FeatureType.BOOLEAN  == Feature.featureType; }
     @Override public Node getInput(CFilter Filter, CRule Rule, CMetamodel.Feature Feature, CMetamodel.TypeExpression ForType, CDatamodel Data) { return getBooleanInput(Rule); }
     @Override public String toString() { return CTranslations.INSTANCE.Operation_Equals; }
@@ -81,6 +222,11 @@ public final class Operators {
       return (null != typedValue) ? true : false;
     }
 
+    @Override public Predicate<CDatamodel.Element> compile(CMetamodel.Feature OfFeature, Boolean Against) { return compileBoolean(OfFeature, false, v -> true); }
+    @Override public BitSet select(CFeatureIndexes Indexes, CMetamodel.TypeExpression Type, CMetamodel.Feature OfFeature, Boolean Against) {
+      CBitmapIndex index = Indexes.getBitmapIndex(Type, OfFeature);
+      return (null == index) ? null : index.getWithValue();
+    }
     @Override public boolean compatibleWith(CMetamodel.Feature Feature) { return (CMetamodel.FeatureType.BOOLEAN == Feature.featureType); }
     @Override public Node getInput(CFilter Filter, CRule Rule, CMetamodel.Feature Feature, CMetamodel.TypeExpression ForType, CDatamodel Data) { return new Label(""); }
     @Override public boolean requiresInput() { return false; }
@@ -117,7 +263,7 @@ public final class Operators {
 
       final Date valueToValidate = typedValued;
       if (null == Against) return (null == valueToValidate);
-      else return Against.after(valueToValidate);
+      else return (null != valueToValidate) && Against.after(valueToValidate);
     }
 
     @Override public boolean compatibleWith(CMetamodel.Feature Feature) { return CMetamodel.FeatureType.DATE == Feature.featureType; }
@@ -132,7 +278,7 @@ public final class Operators {
 
       final Date valueToValidate = typedValued;
       if (null == Against) return (null == valueToValidate);
-      else return Against.before(valueToValidate);
+      else return (null != valueToValidate) && Against.before(valueToValidate);
     }
 
     @Override public boolean compatibleWith(CMetamodel.Feature Feature) { return CMetamodel.FeatureType.DATE == Feature.featureType; }
@@ -174,6 +320,13 @@ public final class Operators {
       else return Against.equals(valueToValidate);
     }
 
+    @Override public Predicate<CDatamodel.Element> compile(CMetamodel.Feature OfFeature, Instant Against) {
+      if (null == Against) { CFeatureAccessor accessor = new CFeatureAccessor(OfFeature); return e -> !(accessor.getFirstValue(e) instanceof Instant); }
+      return compileInstant(OfFeature, Against, c -> 0 == c);
+    }
+    @Override public BitSet select(CFeatureIndexes Indexes, CMetamodel.TypeExpression Type, CMetamodel.Feature OfFeature, Instant Against) {
+      return selectRange(Indexes, Type, OfFeature, Against, CRangeIndex::getEqualTo);
+    }
     @Override public boolean compatibleWith(CMetamodel.Feature Feature) { return CMetamodel.FeatureType.DATE_TIME == Feature.featureType; }
     @Override public Node getInput(CFilter Filter, CRule Rule, CMetamodel.Feature Feature, CMetamodel.TypeExpression ForType, CDatamodel Data) { return getDateTimeInput(Rule); }
     @Override public String toString() { return CTranslations.INSTANCE.Operation_Equals; }
@@ -186,9 +339,16 @@ public final class Operators {
 
       final Instant valueToValidate = typedValued;
       if (null == Against) return (null == valueToValidate);
-      else return 0 < Against.compareTo(valueToValidate);
+      else return (null != valueToValidate) && 0 < Against.compareTo(valueToValidate);
     }
 
+    @Override public Predicate<CDatamodel.Element> compile(CMetamodel.Feature OfFeature, Instant Against) {
+      if (null == Against) { CFeatureAccessor accessor = new CFeatureAccessor(OfFeature); return e -> !(accessor.getFirstValue(e) instanceof Instant); }
+      return compileInstant(OfFeature, Against, c -> 0 > c);
+    }
+    @Override public BitSet select(CFeatureIndexes Indexes, CMetamodel.TypeExpression Type, CMetamodel.Feature OfFeature, Instant Against) {
+      return selectRange(Indexes, Type, OfFeature, Against, CRangeIndex::getLessThan);
+    }
     @Override public boolean compatibleWith(CMetamodel.Feature Feature) { return CMetamodel.FeatureType.DATE_TIME == Feature.featureType; }
     @Override public Node getInput(CFilter Filter, CRule Rule, CMetamodel.Feature Feature, CMetamodel.TypeExpression ForType, CDatamodel Data) { return getDateTimeInput(Rule); }
     @Override public String toString() { return CTranslations.INSTANCE.Operation_Before; }
@@ -201,9 +361,16 @@ public final class Operators {
 
       final Instant valueToValidate = typedValued;
       if (null == Against) return (null == valueToValidate);
-      else return 0 > Against.compareTo(valueToValidate);
+      else return (null != valueToValidate) && 0 > Against.compareTo(valueToValidate);
     }
 
+    @Override public Predicate<CDatamodel.Element> compile(CMetamodel.Feature OfFeature, Instant Against) {
+      if (null == Against) { CFeatureAccessor accessor = new CFeatureAccessor(OfFeature); return e -> !(accessor.getFirstValue(e) instanceof Instant); }
+      return compileInstant(OfFeature, Against, c -> 0 < c);
+    }
+    @Override public BitSet select(CFeatureIndexes Indexes, CMetamodel.TypeExpression Type, CMetamodel.Feature OfFeature, Instant Against) {
+      return selectRange(Indexes, Type, OfFeature, Against, CRangeIndex::getGreaterThan);
+    }
     @Override public boolean compatibleWith(CMetamodel.Feature Feature) { return CMetamodel.FeatureType.DATE_TIME == Feature.featureType; }
     @Override public Node getInput(CFilter Filter, CRule Rule, CMetamodel.Feature Feature, CMetamodel.TypeExpression ForType, CDatamodel Data) { return getDateTimeInput(Rule); }
     @Override public String toString() { return CTranslations.INSTANCE.Operation_After; }
@@ -242,6 +409,14 @@ public final class Operators {
       else return Against.equals(valueToValidate);
     }
 
+    @Override public Predicate<CDatamodel.Element> compile(CMetamodel.Feature OfFeature, Double Against) {
+      if (null == Against) return compileDecimal(OfFeature, true, v -> false);
+      double against = Against;
+      return compileDecimal(OfFeature, false, v -> 0 == Double.compare(v, against));
+    }
+    @Override public BitSet select(CFeatureIndexes Indexes, CMetamodel.TypeExpression Type, CMetamodel.Feature OfFeature, Double Against) {
+      return selectRange(Indexes, Type, OfFeature, Against, CRangeIndex::getEqualTo);
+    }
     @Override public boolean compatibleWith(CMetamodel.Feature Feature) { return CMetamodel.FeatureType.DECIMAL == Feature.featureType; }
     @Override public Node getInput(CFilter Filter, CRule Rule, CMetamodel.Feature Feature, CMetamodel.TypeExpression ForType, CDatamodel Data) { return getDecimalInput(Rule); }
     @Override public String toString() { return CTranslations.INSTANCE.Operation_Equals; }
@@ -254,9 +429,17 @@ public final class Operators {
 
       final Double valueToValidate = typedValue;
       if (null == Against) return (null == valueToValidate);
-      else return Against > valueToValidate;
+      else return (null != valueToValidate) && Against > valueToValidate;
     }
 
+    @Override public Predicate<CDatamodel.Element> compile(CMetamodel.Feature OfFeature, Double Against) {
+      if (null == Against) return compileDecimal(OfFeature, true, v -> false);
+      double against = Against;
+      return compileDecimal(OfFeature, false, v -> against > v);
+    }
+    @Override public BitSet select(CFeatureIndexes Indexes, CMetamodel.TypeExpression Type, CMetamodel.Feature OfFeature, Double Against) {
+      return selectRange(Indexes, Type, OfFeature, Against, CRangeIndex::getLessThan);
+    }
     @Override public boolean compatibleWith(CMetamodel.Feature Feature) { return CMetamodel.FeatureType.DECIMAL == Feature.featureType; }
     @Override public Node getInput(CFilter Filter, CRule Rule, CMetamodel.Feature Feature, CMetamodel.TypeExpression ForType, CDatamodel Data) { return getDecimalInput(Rule); }
     @Override public String toString() { return CTranslations.INSTANCE.Operation_Less_or_Equal; }
@@ -269,9 +452,17 @@ public final class Operators {
 
       final Double valueToValidate = typedValue;
       if (null == Against) return (null == valueToValidate);
-      else return Against < valueToValidate;
+      else return (null != valueToValidate) && Against < valueToValidate;
     }
 
+    @Override public Predicate<CDatamodel.Element> compile(CMetamodel.Feature OfFeature, Double Against) {
+      if (null == Against) return compileDecimal(OfFeature, true, v -> false);
+      double against = Against;
+      return compileDecimal(OfFeature, false, v -> against < v);
+    }
+    @Override public BitSet select(CFeatureIndexes Indexes, CMetamodel.TypeExpression Type, CMetamodel.Feature OfFeature, Double Against) {
+      return selectRange(Indexes, Type, OfFeature, Against, CRangeIndex::getGreaterThan);
+    }
     @Override public boolean compatibleWith(CMetamodel.Feature Feature) { return CMetamodel.FeatureType.DECIMAL == Feature.featureType; }
     @Override public Node getInput(CFilter Filter, CRule Rule, CMetamodel.Feature Feature, CMetamodel.TypeExpression ForType, CDatamodel Data) { return getDecimalInput(Rule); }
     @Override public String toString() { return CTranslations.INSTANCE.Operation_More_or_Equal; }
@@ -310,6 +501,14 @@ public final class Operators {
       else return Against.equals(valueToValidate);
     }
 
+    @Override public Predicate<CDatamodel.Element> compile(CMetamodel.Feature OfFeature, Integer Against) {
+      if (null == Against) return compileInteger(OfFeature, true, v -> false);
+      int against = Against;
+      return compileInteger(OfFeature, false, v -> against == v);
+    }
+    @Override public BitSet select(CFeatureIndexes Indexes, CMetamodel.TypeExpression Type, CMetamodel.Feature OfFeature, Integer Against) {
+      return selectRange(Indexes, Type, OfFeature, Against, CRangeIndex::getEqualTo);
+    }
     @Override public boolean compatibleWith(CMetamodel.Feature Feature) { return CMetamodel.FeatureType.INTEGER == Feature.featureType; }
     @Override public Node getInput(CFilter Filter, CRule Rule, CMetamodel.Feature Feature, CMetamodel.TypeExpression ForType, CDatamodel Data) { return getIntegerInput(Rule); }
     @Override public String toString() { return CTranslations.INSTANCE.Operation_Equals; }
@@ -322,9 +521,17 @@ public final class Operators {
 
       final Integer valueToValidate = typedValued;
       if (null == Against) return null == valueToValidate;
-      else return Against > valueToValidate;
+      else return (null != valueToValidate) && Against > valueToValidate;
     }
 
+    @Override public Predicate<CDatamodel.Element> compile(CMetamodel.Feature OfFeature, Integer Against) {
+      if (null == Against) return compileInteger(OfFeature, true, v -> false);
+      int against = Against;
+      return compileInteger(OfFeature, false, v -> against > v);
+    }
+    @Override public BitSet select(CFeatureIndexes Indexes, CMetamodel.TypeExpression Type, CMetamodel.Feature OfFeature, Integer Against) {
+      return selectRange(Indexes, Type, OfFeature, Against, CRangeIndex::getLessThan);
+    }
     @Override public boolean compatibleWith(CMetamodel.Feature Feature) { return CMetamodel.FeatureType.INTEGER == Feature.featureType; }
     @Override public Node getInput(CFilter Filter, CRule Rule, CMetamodel.Feature Feature, CMetamodel.TypeExpression ForType, CDatamodel Data) { return getIntegerInput(Rule); }
     @Override public String toString() { return CTranslations.INSTANCE.Operation_Less_or_Equal; }
@@ -337,9 +544,17 @@ public final class Operators {
 
       final Integer valueToValidate = typedValued;
       if (null == Against) return null == valueToValidate;
-      else return Against < valueToValidate;
+      else return (null != valueToValidate) && Against < valueToValidate;
     }
 
+    @Override public Predicate<CDatamodel.Element> compile(CMetamodel.Feature OfFeature, Integer Against) {
+      if (null == Against) return compileInteger(OfFeature, true, v -> false);
+      int against = Against;
+      return compileInteger(OfFeature, false, v -> against < v);
+    }
+    @Override public BitSet select(CFeatureIndexes Indexes, CMetamodel.TypeExpression Type, CMetamodel.Feature OfFeature, Integer Against) {
+      return selectRange(Indexes, Type, OfFeature, Against, CRangeIndex::getGreaterThan);
+    }
     @Override public boolean compatibleWith(CMetamodel.Feature Feature) { return CMetamodel.FeatureType.INTEGER == Feature.featureType; }
     @Override public Node getInput(CFilter Filter, CRule Rule, CMetamodel.Feature Feature, CMetamodel.TypeExpression ForType, CDatamodel Data) { return getIntegerInput(Rule); }
     @Override public String toString() { return CTranslations.INSTANCE.Operation_More_or_Equal; }
@@ -375,12 +590,49 @@ public final class Operators {
       else return Against.contains(valueToValidate);
     }
 
+    @Override public Predicate<CDatamodel.Element> compile(CMetamodel.Feature OfFeature, Set<CMetamodel.INTERFACE_DIRECTIONS> Against) {
+      CFeatureAccessor accessor = new CFeatureAccessor(OfFeature);
+      EnumSet<CMetamodel.INTERFACE_DIRECTIONS> against = ((null == Against) || Against.isEmpty()) ? EnumSet.noneOf(CMetamodel.INTERFACE_DIRECTIONS.class) : EnumSet.copyOf(Against);
+      boolean ifMissing = null == Against;
+      return e -> {
+        if (accessor.getColumn(e) instanceof CColumnStore.DirectionColumn column) {
+          int row = e.getColumnRow();
+          return CFeatureAccessor.hasFirstValue(column, row) ? against.contains(column.getDirection(row, 0)) : ifMissing;
+        }
+        return (accessor.getFirstValue(e) instanceof CMetamodel.INTERFACE_DIRECTIONS value) ? against.contains(value) : ifMissing;
+      };
+    }
+    @Override public BitSet select(CFeatureIndexes Indexes, CMetamodel.TypeExpression Type, CMetamodel.Feature OfFeature, Set<CMetamodel.INTERFACE_DIRECTIONS> Against) {
+      CBitmapIndex index = Indexes.getBitmapIndex(Type, OfFeature);
+      if (null == index) return null;
+      return (null == Against) ? index.getWithoutValue() : index.getAny(Against);
+    }
     @Override public boolean compatibleWith(CMetamodel.Feature Feature) { return CMetamodel.FeatureType.INTERFACE_DIRECTION == Feature.featureType; }
     @Override public Node getInput(CFilter Filter, CRule Rule, CMetamodel.Feature Feature, CMetamodel.TypeExpression ForType, CDatamodel Data) { return getInterfaceDirectionInput(Rule); }
     @Override public String toString() { return CTranslations.INSTANCE.Operation_Contains; }
   };
 
 
+  /** Whether texts are compared ignoring upper and lower case, read once from the configuration ({@code case_insensitive_text_search}). */
+  private final static boolean IGNORE_CASE = isIgnoringCase();
+  private static boolean isIgnoringCase() {
+    try { return CConfigService.getConfig().case_insensitive_text_search; }
+    catch (IOException Ignore) { return false; }
+  }
+  static boolean containsText(String Value, String Part, boolean IgnoreCase) {
+    if (!IgnoreCase) return Value.contains(Part);
+    for (int i = 0; i + Part.length() <= Value.length(); i++) if (Value.regionMatches(true, i, Part, 0, Part.length())) return true;
+    return false;
+  }
+  static boolean startsWithText(String Value, String Prefix, boolean IgnoreCase) { return IgnoreCase ? Value.regionMatches(true, 0, Prefix, 0, Prefix.length()) : Value.startsWith(Prefix); }
+  static boolean endsWithText(String Value, String Suffix, boolean IgnoreCase) { return IgnoreCase ? Value.regionMatches(true, Value.length() - Suffix.length(), Suffix, 0, Suffix.length()) : Value.endsWith(Suffix); }
+  /** Pre-selects the elements whose first text value may contain {@code Against} by the text index of a feature, if it has been built. */
+  private static BitSet preselectText(CFeatureIndexes Indexes, CMetamodel.TypeExpression Type, CMetamodel.Feature OfFeature, String Against, boolean AtStart, boolean AtEnd) {
+    if (null == Against) return null;
+    CTrigramIndex index = Indexes.getTextIndex(Type, OfFeature);
+    return (null == index) ? null : index.getCandidates(Against, AtStart, AtEnd);
+  }
+
   private static Node getStringInput(CRule Rule) {
     TextField tf = new TextField(null == Rule.getValue() ? "" : Rule.getValue().toString());
     tf.textProperty().addListener((obs, old, v) -> {
@@ -398,6 +650,7 @@ public final class Operators {
       return (null != typedValued) ? true : false;
     }
 
+    @Override public Predicate<CDatamodel.Element> compile(CMetamodel.Feature OfFeature, String Against) { return compileString(OfFeature, false, v -> true); }
     @Override public boolean compatibleWith(CMetamodel.Feature Feature) { return CMetamodel.FeatureType.STRING == Feature.featureType || CMetamodel.FeatureType.RICHTEXT == Feature.featureType; }
     @Override public Node getInput(CFilter Filter, CRule Rule, CMetamodel.Feature Feature, CMetamodel.TypeExpression ForType, CDatamodel Data) { return new Label(""); }
     @Override public boolean requiresInput() { return false; }
@@ -405,6 +658,13 @@ public final class Operators {
   };
   @SuppressWarnings("unused") public final static IOperator<String> STRING_EQUALS = new IOperator<>() {
     @Override public boolean evaluate(Object Value, CMetamodel.Feature OfFeature, String Against) {
+      // Values from a text column are dictionary codes; compare them to the code of Against, looked up on every call (compiled rules look it up once)
+      if ((null != Against) && (Value instanceof CStringDictionary.EncodedStrings encoded) && (Value instanceof Collection<?> listValue)) {
+        if (listValue.isEmpty()) return false;
+        int code = encoded.getCode(0);
+        return (CStringDictionary.NOT_FOUND != code) && (code == encoded.getDictionary().lookup(Against));
+      }
+
       String typedValued = null;
       if ((Value instanceof Collection<?> listValue) && !listValue.isEmpty() && (listValue.iterator().next() instanceof String bv)) typedValued = bv;
       if ((null == typedValued) && (Value instanceof String bv)) typedValued = bv;
@@ -414,6 +674,19 @@ public final class Operators {
       else return Against.equals(valueToValidate);
     }
 
+    @Override public Predicate<CDatamodel.Element> compile(CMetamodel.Feature OfFeature, String Against) {
+      if (null == Against) return compileString(OfFeature, true, v -> false);
+      CFeatureAccessor accessor = new CFeatureAccessor(OfFeature);
+      CDictionaryCode against = new CDictionaryCode(Against);
+      return e -> {
+        if (accessor.getColumn(e) instanceof CColumnStore.StringColumn column) {
+          int row = e.getColumnRow();
+          int code = CFeatureAccessor.hasFirstValue(column, row) ? column.getCode(row, 0) : CStringDictionary.NOT_FOUND;
+          return (CStringDictionary.NOT_FOUND != code) && (code == against.get(column.getDictionary()));
+        }
+        return Against.equals(accessor.getFirstValue(e));
+      };
+    }
     @Override public boolean compatibleWith(CMetamodel.Feature Feature) { return CMetamodel.FeatureType.STRING == Feature.featureType || CMetamodel.FeatureType.RICHTEXT == Feature.featureType; }
 
     @Override public Node getInput(CFilter Filter, CRule Rule, CMetamodel.Feature Feature, CMetamodel.TypeExpression ForType, CDatamodel Data) { return getStringInput(Rule); }
@@ -427,9 +700,16 @@ public final class Operators {
 
       if (null == Against) return true;
       else if (null == typedValued) return false;
-      else return typedValued.contains(Against);
+      else return containsText(typedValued, Against, IGNORE_CASE);
     }
 
+    @Override public Predicate<CDatamodel.Element> compile(CMetamodel.Feature OfFeature, String Against) {
+      if (null == Against) return e -> true;
+      return compileString(OfFeature, false, v -> containsText(v, Against, IGNORE_CASE));
+    }
+    @Override public BitSet preselect(CFeatureIndexes Indexes, CMetamodel.TypeExpression Type, CMetamodel.Feature OfFeature, String Against) {
+      return preselectText(Indexes, Type, OfFeature, Against, false, false);
+    }
     @Override public boolean compatibleWith(CMetamodel.Feature Feature) { return CMetamodel.FeatureType.STRING == Feature.featureType || CMetamodel.FeatureType.RICHTEXT == Feature.featureType; }
     @Override public Node getInput(CFilter Filter, CRule Rule, CMetamodel.Feature Feature, CMetamodel.TypeExpression ForType, CDatamodel Data) { return getStringInput(Rule); }
     @Override public String toString() { return CTranslations.INSTANCE.Operation_Contains; }
@@ -442,9 +722,16 @@ public final class Operators {
 
       if (null == Against) return true;
       else if (null == typedValued) return false;
-      else return typedValued.startsWith(Against);
+      else return startsWithText(typedValued, Against, IGNORE_CASE);
     }
 
+    @Override public Predicate<CDatamodel.Element> compile(CMetamodel.Feature OfFeature, String Against) {
+      if (null == Against) return e -> true;
+      return compileString(OfFeature, false, v -> startsWithText(v, Against, IGNORE_CASE));
+    }
+    @Override public BitSet preselect(CFeatureIndexes Indexes, CMetamodel.TypeExpression Type, CMetamodel.Feature OfFeature, String Against) {
+      return preselectText(Indexes, Type, OfFeature, Against, true, false);
+    }
     @Override public boolean compatibleWith(CMetamodel.Feature Feature) { return CMetamodel.FeatureType.STRING == Feature.featureType || CMetamodel.FeatureType.RICHTEXT == Feature.featureType; }
     @Override public String toString() { return CTranslations.INSTANCE.Operation_StartsWith; }
     @Override public Node getInput(CFilter Filter, CRule Rule, CMetamodel.Feature Feature, CMetamodel.TypeExpression ForType, CDatamodel Data) { return getStringInput(Rule); }
@@ -457,15 +744,34 @@ public final class Operators {
 
       if (null == Against) return true;
       else if (null == typedValued) return false;
-      else return typedValued.endsWith(Against);
+      else return endsWithText(typedValued, Against, IGNORE_CASE);
     }
 
+    @Override public Predicate<CDatamodel.Element> compile(CMetamodel.Feature OfFeature, String Against) {
+      if (null == Against) return e -> true;
+      return compileString(OfFeature, false, v -> endsWithText(v, Against, IGNORE_CASE));
+    }
+    @Override public BitSet preselect(CFeatureIndexes Indexes, CMetamodel.TypeExpression Type, CMetamodel.Feature OfFeature, String Against) {
+      return preselectText(Indexes, Type, OfFeature, Against, false, true);
+    }
     @Override public boolean compatibleWith(CMetamodel.Feature Feature) { return CMetamodel.FeatureType.STRING == Feature.featureType || CMetamodel.FeatureType.RICHTEXT == Feature.featureType; }
     @Override public String toString() { return CTranslations.INSTANCE.Operation_EndsWith; }
     @Override public Node getInput(CFilter Filter, CRule Rule, CMetamodel.Feature Feature, CMetamodel.TypeExpression ForType, CDatamodel Data) { return getStringInput(Rule); }
   };
 
 
+  /**
+   * Checks whether a value (or collection of values) contains a literal matching the given test.
+   *
+   * @param Value The value.
+   * @param Test The test, {@code null} to match any literal.
+   * @return {@code true} if at least one literal matches.
+   */
+  private static boolean containsLiteral(Object Value, Predicate<CMetamodel.Literal> Test) {
+    if (Value instanceof CMetamodel.Literal literal) return (null == Test) || Test.test(literal);
+    if (Value instanceof Collection<?> values) for (Object v : values) if ((v instanceof CMetamodel.Literal literal) && ((null == Test) || Test.test(literal))) return true;
+    return false;
+  }
   private static Node getEnumInput(CRule Rule, CMetamodel.Feature Feature) {
     // SORT LITERALS!
     CMetamodel.EnumerationExpression enumExpression = Feature.metamodel.EnumerationExpressions.stream().filter(ee -> ee.name.equals(Feature.name)).findFirst().orElse(null);
@@ -508,6 +814,21 @@ public final class Operators {
       else return Against.containsAll(valuesToValidate) && valuesToValidate.containsAll(Against);
     }
 
+    @Override public Predicate<CDatamodel.Element> compile(CMetamodel.Feature OfFeature, Set<CMetamodel.Literal> Against) {
+      CFeatureAccessor accessor = new CFeatureAccessor(OfFeature);
+      if ((null == Against) || Against.isEmpty()) return e -> !containsLiteral(accessor.getValue(e), null);
+      return e -> {
+        Object value = accessor.getValue(e);
+        if (containsLiteral(value, l -> !Against.contains(l))) return false;
+        for (CMetamodel.Literal literal : Against) if (!containsLiteral(value, l -> literal.equals(l))) return false;
+        return true;
+      };
+    }
+    @Override public BitSet select(CFeatureIndexes Indexes, CMetamodel.TypeExpression Type, CMetamodel.Feature OfFeature, Set<CMetamodel.Literal> Against) {
+      CBitmapIndex index = Indexes.getBitmapIndex(Type, OfFeature);
+      if (null == index) return null;
+      return ((null == Against) || Against.isEmpty()) ? index.getWithoutValue() : index.getExactly(Against);
+    }
     @Override public boolean compatibleWith(CMetamodel.Feature Feature) { return CMetamodel.FeatureType.ENUMERATION == Feature.featureType; }
     @Override public Node getInput(CFilter Filter, CRule Rule, CMetamodel.Feature Feature, CMetamodel.TypeExpression ForType, CDatamodel Data) { return getEnumInput(Rule, Feature); }
     @Override public String toString() { return CTranslations.INSTANCE.Operation_Equals; }
@@ -522,6 +843,16 @@ public final class Operators {
       return Against.stream().anyMatch(v -> valuesToValidate.contains(v));
     }
 
+    @Override public Predicate<CDatamodel.Element> compile(CMetamodel.Feature OfFeature, Set<CMetamodel.Literal> Against) {
+      CFeatureAccessor accessor = new CFeatureAccessor(OfFeature);
+      if ((null == Against) || Against.isEmpty()) return e -> !containsLiteral(accessor.getValue(e), null);
+      return e -> containsLiteral(accessor.getValue(e), Against::contains);
+    }
+    @Override public BitSet select(CFeatureIndexes Indexes, CMetamodel.TypeExpression Type, CMetamodel.Feature OfFeature, Set<CMetamodel.Literal> Against) {
+      CBitmapIndex index = Indexes.getBitmapIndex(Type, OfFeature);
+      if (null == index) return null;
+      return ((null == Against) || Against.isEmpty()) ? index.getWithoutValue() : index.getAny(Against);
+    }
     @Override public boolean compatibleWith(CMetamodel.Feature Feature) { return CMetamodel.FeatureType.ENUMERATION == Feature.featureType; }
     @Override public Node getInput(CFilter Filter, CRule Rule, CMetamodel.Feature Feature, CMetamodel.TypeExpression ForType, CDatamodel Data) { return getEnumInput(Rule, Feature); }
     @Override public String toString() { return CTranslations.INSTANCE.Operation_Contains; }
@@ -587,6 +918,43 @@ public final class Operators {
   };
 
 
+  /**
+   * Compiles a test whether any ({@code Any}) or all of the elements referenced by a feature pass the given filter.
+   * Given the indexes of the data model, the filter is evaluated once per referenced element during the pass (see {@link CElementMemo}).
+   */
+  private static Predicate<CDatamodel.Element> compileComplex(CMetamodel.Feature OfFeature, CFilter Against, boolean Any, CFeatureIndexes Indexes) {
+    if (null == Against) return e -> false;
+    CFeatureAccessor accessor = new CFeatureAccessor(OfFeature);
+    Predicate<CDatamodel.Element> filter = (null == Indexes) ? Against.compile() : new CElementMemo(Against.compile(Indexes), Indexes, Against.getTypeExpression());
+    return e -> {
+      if (!(accessor.getValue(e) instanceof Collection<?> values) || values.isEmpty()) return false;
+      for (Object value : values) if (filter.test((CDatamodel.Element)value) == Any) return Any;
+      return !Any;
+    };
+  }
+  /**
+   * Selects the elements of which any ({@code Any}) or all referenced elements pass the given filter, by evaluating the filter on the referenced
+   * type first and following the passing elements backwards (see {@link CReverseIndex}).
+   * If only a small part of the referenced type is referenced at all and the filter cannot be answered by indexes alone, evaluating the filter on
+   * the referenced elements of each element forwards is cheaper; then {@code null} is returned.
+   */
+  private static BitSet selectComplex(CFeatureIndexes Indexes, CMetamodel.TypeExpression Type, CMetamodel.Feature OfFeature, CFilter Against, boolean Any) {
+    CMetamodel.TypeExpression target = (null == Against) ? null : Against.getTypeExpression();
+    if (null == target) return null;
+    CReverseIndex index = Indexes.getReverseIndex(Type, OfFeature, target);
+    if (null == index) return null;
+    CFilter.Selection selection = Against.select(Indexes, target);
+    if ((null != selection.Residual()) && (2L * index.getReferencedCount() < index.getTargetCount())) return null;
+
+    BitSet passing = selection.evaluate(Indexes.getElements(target));
+    if (Any) return index.getReferencing(passing);
+    BitSet failing = new BitSet(index.getTargetCount());
+    failing.set(0, index.getTargetCount());
+    failing.andNot(passing);
+    BitSet result = index.getWithReference();
+    result.andNot(index.getReferencing(failing));
+    return result;
+  }
   private static Node getSTEInput(CFilter Filter, CRule Rule, CMetamodel.Feature Feature, CDatamodel Data) {
     CMetamodel.TypeExpression te = Feature.metamodel.SubstantialTypeExpressions.stream().filter(rte -> rte.persistentName.equals(Feature.type)).findFirst().orElse(null);
     if (null != te) {
@@ -609,6 +977,11 @@ public final class Operators {
       else return false;
     }
 
+    @Override public Predicate<CDatamodel.Element> compile(CMetamodel.Feature OfFeature, CFilter Against) { return compileComplex(OfFeature, Against, true, null); }
+    @Override public Predicate<CDatamodel.Element> compile(CMetamodel.Feature OfFeature, CFilter Against, CFeatureIndexes Indexes) { return compileComplex(OfFeature, Against, true, Indexes); }
+    @Override public BitSet select(CFeatureIndexes Indexes, CMetamodel.TypeExpression Type, CMetamodel.Feature OfFeature, CFilter Against) {
+      return selectComplex(Indexes, Type, OfFeature, Against, true);
+    }
     @Override public boolean compatibleWith(CMetamodel.Feature Feature) { return CMetamodel.FeatureType.SELF_RELATION == Feature.featureType || (CMetamodel.FeatureType.RELATION == Feature.featureType && Feature.referencesBuildingblock()); }
     @Override public Node getInput(CFilter Filter, CRule Rule, CMetamodel.Feature Feature, CMetamodel.TypeExpression ForType, CDatamodel Data) { return getSTEInput(Filter, Rule, Feature, Data); }
     @Override public String toString() { return CTranslations.INSTANCE.Operation_ComplexAny; }
@@ -619,6 +992,11 @@ public final class Operators {
       else return false;
     }
 
+    @Override public Predicate<CDatamodel.Element> compile(CMetamodel.Feature OfFeature, CFilter Against) { return compileComplex(OfFeature, Against, false, null); }
+    @Override public Predicate<CDatamodel.Element> compile(CMetamodel.Feature OfFeature, CFilter Against, CFeatureIndexes Indexes) { return compileComplex(OfFeature, Against, false, Indexes); }
+    @Override public BitSet select(CFeatureIndexes Indexes, CMetamodel.TypeExpression Type, CMetamodel.Feature OfFeature, CFilter Against) {
+      return selectComplex(Indexes, Type, OfFeature, Against, false);
+    }
     @Override public boolean compatibleWith(CMetamodel.Feature Feature) { return CMetamodel.FeatureType.SELF_RELATION == Feature.featureType || (CMetamodel.FeatureType.RELATION == Feature.featureType && Feature.referencesBuildingblock()); }
     @Override public Node getInput(CFilter Filter, CRule Rule, CMetamodel.Feature Feature, CMetamodel.TypeExpression ForType, CDatamodel Data) { return getSTEInput(Filter, Rule, Feature, Data); }
     @Override public String toString() { return CTranslations.INSTANCE.Operation_ComplexAll; }
@@ -647,6 +1025,11 @@ public final class Operators {
       else return false;
     }
 
+    @Override public Predicate<CDatamodel.Element> compile(CMetamodel.Feature OfFeature, CFilter Against) { return compileComplex(OfFeature, Against, true, null); }
+    @Override public Predicate<CDatamodel.Element> compile(CMetamodel.Feature OfFeature, CFilter Against, CFeatureIndexes Indexes) { return compileComplex(OfFeature, Against, true, Indexes); }
+    @Override public BitSet select(CFeatureIndexes Indexes, CMetamodel.TypeExpression Type, CMetamodel.Feature OfFeature, CFilter Against) {
+      return selectComplex(Indexes, Type, OfFeature, Against, true);
+    }
     @Override public boolean compatibleWith(CMetamodel.Feature Feature) { return CMetamodel.FeatureType.RELATION == Feature.featureType && !Feature.referencesBuildingblock(); }
     @Override public Node getInput(CFilter Filter, CRule Rule, CMetamodel.Feature Feature, CMetamodel.TypeExpression ForType, CDatamodel Data) { return getRTEInput(Filter, Rule, Feature, Data); }
     @Override public String toString() { return CTranslations.INSTANCE.Operation_ComplexAny; }
@@ -657,6 +1040,11 @@ public final class Operators {
       else return false;
     }
 
+    @Override public Predicate<CDatamodel.Element> compile(CMetamodel.Feature OfFeature, CFilter Against) { return compileComplex(OfFeature, Against, false, null); }
+    @Override public Predicate<CDatamodel.Element> compile(CMetamodel.Feature OfFeature, CFilter Against, CFeatureIndexes Indexes) { return compileComplex(OfFeature, Against, false, Indexes); }
+    @Override public BitSet select(CFeatureIndexes Indexes, CMetamodel.TypeExpression Type, CMetamodel.Feature OfFeature, CFilter Against) {
+      return selectComplex(Indexes, Type, OfFeature, Against, false);
+    }
     @Override public boolean compatibleWith(CMetamodel.Feature Feature) { return CMetamodel.FeatureType.RELATION == Feature.featureType && !Feature.referencesBuildingblock(); }
     @Override public Node getInput(CFilter Filter, CRule Rule, CMetamodel.Feature Feature, CMetamodel.TypeExpression ForType, CDatamodel Data) { return getRTEInput(Filter, Rule, Feature, Data); }
     @Override public String toString() { return CTranslations.INSTANCE.Operation_ComplexAll; }
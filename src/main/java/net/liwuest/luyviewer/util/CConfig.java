@@ -18,6 +18,12 @@ public class CConfig {
   @JsonProperty("s3_secret_key") public String s3_secret_key;
   @JsonProperty("s3_bucket") public String s3_bucket;
   @JsonProperty("s3_folder") public String s3_folder;
+  @JsonProperty("load_parallelism") public int load_parallelism;
+  @JsonProperty("columnar_storage") public boolean columnar_storage;
+  @JsonProperty("show_filter_statistics") public boolean show_filter_statistics;
+  @JsonProperty("text_index") public boolean text_index;
+  @JsonProperty("case_insensitive_text_search") public boolean case_insensitive_text_search;
+  @JsonProperty("parallel_filter_threshold") public int parallel_filter_threshold;
 
   public CConfig() {}
 }
@@ -1,32 +1,115 @@
 package net.liwuest.luyviewer.util;
 
+import net.liwuest.luyviewer.LUYViewer;
+
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
+import java.util.logging.Level;
 
+/**
+ * Delivers events to the listeners subscribed to their exact class, in the order of subscription.
+ * <p>
+ * Publishing does not lock: the listeners of an event class are kept in a copy-on-write set, so an event is delivered to the listeners
+ * subscribed when it was published, even if listeners are (un)subscribed meanwhile. A listener throwing an exception does not prevent the
+ * delivery to the other listeners; the exception is logged and counted in the {@link Statistics} of the event class.
+ */
 public final class CEventBus {
   public interface AbstractEvent {}
 
-  private final static Map<Class<? extends AbstractEvent>, Set<Consumer<? extends AbstractEvent>>> EventListeners = new HashMap<>();
+  /** Counters of the events of a class, all times in nanoseconds. Safe to read while events are published. */
+  public static final class Statistics {
+    private final LongAdder m_Published = new LongAdder();
+    private final LongAdder m_Failures = new LongAdder();
+    private final LongAdder m_Nanos = new LongAdder();
+    private final LongAccumulator m_MaxNanos = new LongAccumulator(Math::max, 0);
+
+    private void record(long Nanos, int Failures) {
+      m_Published.increment();
+      m_Failures.add(Failures);
+      m_Nanos.add(Nanos);
+      m_MaxNanos.accumulate(Nanos);
+    }
+
+    /** Gets the number of events delivered to all listeners. */
+    public long getPublished() { return m_Published.sum(); }
+    /** Gets the number of listener invocations that threw an exception. */
+    public long getFailures() { return m_Failures.sum(); }
+    /** Gets the average time from publishing an event until all listeners returned, {@code 0} if there are no events yet. */
+    public double getAverageNanos() {
+      long published = m_Published.sum();
+      return (0 == published) ? 0 : (double)m_Nanos.sum() / published;
+    }
+    /** Gets the longest time from publishing an event until all listeners returned. */
+    public long getMaxNanos() { return m_MaxNanos.get(); }
+  }
+
+  private final static Map<Class<? extends AbstractEvent>, Set<Consumer<? extends AbstractEvent>>> EventListeners = new ConcurrentHashMap<>();
+  private final static Map<Class<? extends AbstractEvent>, Statistics> EventStatistics = new ConcurrentHashMap<>();
+  /** Delivers the events published by {@link #publishAsync(AbstractEvent)}, one at a time in the order they were published. */
+  private final static ExecutorService AsyncDelivery = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "Event delivery");
+    thread.setDaemon(true);
+    return thread;
+  });
 
-  public static synchronized <T extends AbstractEvent> void subscribe(Consumer<T> Listener, Class<T> EventClass) {
+  public static <T extends AbstractEvent> void subscribe(Consumer<T> Listener, Class<T> EventClass) {
     if ((null == Listener) || (null == EventClass)) return;
-    EventListeners.putIfAbsent(EventClass, new LinkedHashSet<>());
-    EventListeners.get(EventClass).add(Listener);
+    EventListeners.computeIfAbsent(EventClass, eventClass -> new CopyOnWriteArraySet<>()).add(Listener);
   }
 
-  public static synchronized <T extends AbstractEvent> void unsubscribe(Consumer<T> Listener) {
+  public static <T extends AbstractEvent> void unsubscribe(Consumer<T> Listener) {
     if (null == Listener) return;
     EventListeners.values().forEach(listeners -> listeners.remove(Listener));
   }
 
-  public static synchronized <T extends AbstractEvent> void unsubscribe(Consumer<T> Listener, Class<T> EventClass) {
+  public static <T extends AbstractEvent> void unsubscribe(Consumer<T> Listener, Class<T> EventClass) {
     if ((null == Listener) || (null == EventClass)) return;
-    EventListeners.getOrDefault(EventClass, new LinkedHashSet<>()).remove(Listener);
+    Set<Consumer<? extends AbstractEvent>> listeners = EventListeners.get(EventClass);
+    if (null != listeners) listeners.remove(Listener);
+  }
+
+  /** Delivers an event to its listeners on the calling thread. */
+  public static <T extends AbstractEvent> void publish(T Event) {
+    if (null == Event) return;
+    deliver(Event, System.nanoTime());
   }
 
-  public static synchronized <T extends AbstractEvent> void publish(T Event) {
+  /**
+   * Delivers an event to its listeners on a dedicated thread and returns immediately.
+   * Events published this way are delivered in the order they were published, but not ordered with events delivered by {@link #publish(AbstractEvent)}.
+   */
+  public static <T extends AbstractEvent> void publishAsync(T Event) {
     if (null == Event) return;
-    Set<?> listeners = EventListeners.get(Event.getClass());
-    if (null != listeners) listeners.forEach(c -> { try { ((Consumer<T>)c).accept(Event); } catch (Exception Ignore) { /* ignored */ } });
+    long published = System.nanoTime();
+    AsyncDelivery.execute(() -> deliver(Event, published));
+  }
+
+  /**
+   * Gets the statistics of the events of a class.
+   *
+   * @return The statistics, {@code null} if no event of the class has been published yet.
+   */
+  public static Statistics getStatistics(Class<? extends AbstractEvent> EventClass) { return EventStatistics.get(EventClass); }
+
+  /** Gets the statistics of all event classes published so far. */
+  public static Map<Class<? extends AbstractEvent>, Statistics> getStatistics() { return Collections.unmodifiableMap(EventStatistics); }
+
+  private static <T extends AbstractEvent> void deliver(T Event, long Published) {
+    Set<Consumer<? extends AbstractEvent>> listeners = EventListeners.get(Event.getClass());
+    int failures = 0;
+    if (null != listeners) for (Consumer<? extends AbstractEvent> listener : listeners) {
+      try { ((Consumer<T>)listener).accept(Event); }
+      catch (Exception Ex) {
+        failures++;
+        LUYViewer.LOGGER.log(Level.WARNING, "Listener for " + Event.getClass().getSimpleName() + " failed", Ex);
+      }
+    }
+    EventStatistics.computeIfAbsent(Event.getClass(), eventClass -> new Statistics()).record(System.nanoTime() - Published, failures);
   }
 }
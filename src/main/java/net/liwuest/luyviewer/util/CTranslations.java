@@ -42,6 +42,15 @@ public final class CTranslations {
   @JsonProperty(value = "Button_DownloadFromS3", defaultValue = "Get files from S3") public String Button_DownloadFromS3;
   @JsonProperty(value ="Label_SelectDatasetToDownload", defaultValue = "Select data set to download") public String Label_SelectDatasetToDownload;
   @JsonProperty(value = "Label_S3ListingFailed", defaultValue = "Failed to list files from S3: %s") public String Label_S3ListingFailed;
+  @JsonProperty(value = "Button_FilterStatistics", defaultValue = "Filter statistics") public String Button_FilterStatistics;
+  @JsonProperty(value = "Title_FilterStatistics", defaultValue = "Filter statistics") public String Title_FilterStatistics;
+  @JsonProperty(value = "Label_FilterRule", defaultValue = "Rule") public String Label_FilterRule;
+  @JsonProperty(value = "Label_EvaluationOrder", defaultValue = "Evaluation order") public String Label_EvaluationOrder;
+  @JsonProperty(value = "Label_Samples", defaultValue = "Samples") public String Label_Samples;
+  @JsonProperty(value = "Label_PassRate", defaultValue = "Pass rate") public String Label_PassRate;
+  @JsonProperty(value = "Label_AverageTime", defaultValue = "Average time") public String Label_AverageTime;
+  @JsonProperty(value = "Button_Refresh", defaultValue = "Refresh") public String Button_Refresh;
+  @JsonProperty(value = "Button_Close", defaultValue = "Close") public String Button_Close;
 
   @JsonProperty(value = "Status_Initial", defaultValue = "Select data file or download one from LUY") public String Status_Initial;
   @JsonProperty(value = "Status_LoadLUYDataFile", defaultValue = "Loading data from LUY file...") public String Status_LoadingDataFromLUYFile;
@@ -0,0 +1,36 @@
+package net.liwuest.luyviewer;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Minimal timing for the tests tagged {@code benchmark} (run with {@code mvn test -Pbenchmark}).
+ * Runs a task a few times to warm up the JIT, then reports the fastest of the measured runs.
+ */
+public final class CBenchmark {
+  private final static int WARMUP_RUNS = 5;
+  private final static int MEASURED_RUNS = 10;
+  /** Keeps results alive, so the JIT cannot drop the measured work. */
+  private static volatile long Sink;
+
+  private CBenchmark() {}
+
+  /**
+   * @param Task The work to measure. Returns any value derived from its results.
+   * @return The fastest of the measured runs in nanoseconds.
+   */
+  public static long measure(LongSupplier Task) {
+    for (int i = 0; i < WARMUP_RUNS; i++) Sink += Task.getAsLong();
+    long best = Long.MAX_VALUE;
+    for (int i = 0; i < MEASURED_RUNS; i++) {
+      long start = System.nanoTime();
+      Sink += Task.getAsLong();
+      best = Math.min(best, System.nanoTime() - start);
+    }
+    return best;
+  }
+
+  /** Prints a result line, e.g. {@code report("parse", 1000, nanos)} gives the nanoseconds per item. */
+  public static void report(String Name, int Items, long Nanos) {
+    System.out.printf("%-60s %10d items %12.1f ns/item%n", Name, Items, (double) Nanos / Items);
+  }
+}
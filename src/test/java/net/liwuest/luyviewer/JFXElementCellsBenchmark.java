@@ -0,0 +1,119 @@
+package net.liwuest.luyviewer;
+
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.collections.FXCollections;
+import javafx.scene.control.TableCell;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import net.liwuest.luyviewer.model.CDatamodel;
+import net.liwuest.luyviewer.model.CMetamodel;
+import net.liwuest.luyviewer.model.CTestData;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Cost of showing a value in a table cell of {@link JFXBuildingBlockList} for growing tables. Scrolling is simulated like the virtualized
+ * table does it: a fixed window of cells per column is moved to other rows by {@link TableCell#updateIndex(int)}, which reads the value
+ * through the column's cell value factory and shows it by {@code updateItem}. The cost per cell must not depend on the number of rows.
+ * <p>
+ * Runs on the headless Monocle platform. The cells are not laid out, as text layout needs native font libraries.
+ */
+@Tag("benchmark")
+class JFXElementCellsBenchmark {
+    private final static int[] ROWS = { 1_000, 10_000, 100_000 };
+    /** Number of cells per column, about the rows visible at once. */
+    private final static int VISIBLE_ROWS = 40;
+    /** Number of scroll positions per measured run. */
+    private final static int SCROLL_STEPS = 200;
+
+    @BeforeAll
+    static void startPlatform() throws InterruptedException {
+        System.setProperty("glass.platform", "Monocle");
+        System.setProperty("monocle.platform", "Headless");
+        System.setProperty("prism.order", "sw");
+        CountDownLatch started = new CountDownLatch(1);
+        try { Platform.startup(started::countDown); }
+        catch (IllegalStateException AlreadyStarted) { started.countDown(); }
+        started.await();
+    }
+
+    private static <T> T onFxThread(Supplier<T> Task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Platform.runLater(() -> {
+            try { result.complete(Task.get()); }
+            catch (Throwable Ex) { result.completeExceptionally(Ex); }
+        });
+        return result.join();
+    }
+
+    /** Creates the columns like {@link JFXBuildingBlockList}, with a window of cells per column. */
+    private static List<TableCell<CDatamodel.Element, Object>> createCells(TableView<CDatamodel.Element> Table, CDatamodel Data, CMetamodel.TypeExpression Type) {
+        List<TableCell<CDatamodel.Element, Object>> result = new ArrayList<>();
+        CMetamodel.TypeExpression interfaces = Data.Metamodel.getRelationshipTypeExpression(CTestData.INTERFACE);
+        for (String name : List.of("name", "description", "critical", "cost", "users", "goLive", "audit", "tags", "status", "domains", "interfaces")) {
+            CMetamodel.Feature feature = Type.getFeature(name);
+            List<CMetamodel.Feature> subFeatures = "interfaces".equals(name) ? List.of(interfaces.getFeature("direction"), interfaces.getFeature("protocol")) : Collections.singletonList(null);
+            for (CMetamodel.Feature subFeature : subFeatures) {
+                TableColumn<CDatamodel.Element, Object> column = new TableColumn<>(name);
+                column.setCellValueFactory(cellData -> new ReadOnlyObjectWrapper<>(cellData.getValue().AdditionalData.get(feature.persistentName)));
+                column.setCellFactory(c -> (null == subFeature) ? new JFXElementCells.FeatureCell(feature) : new JFXElementCells.RelationshipCell(subFeature));
+                Table.getColumns().add(column);
+                for (int i = 0; i < VISIBLE_ROWS; i++) {
+                    TableCell<CDatamodel.Element, Object> cell = column.getCellFactory().call(column);
+                    cell.updateTableView(Table);
+                    cell.updateTableColumn(column);
+                    result.add(cell);
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Moves the cells to random scroll positions, each cell of a column to the next row. */
+    private static long scroll(List<TableCell<CDatamodel.Element, Object>> Cells, int Rows, Random Random) {
+        long result = 0;
+        for (int step = 0; step < SCROLL_STEPS; step++) {
+            int first = Random.nextInt(Rows - VISIBLE_ROWS);
+            for (int i = 0; i < Cells.size(); i++) {
+                TableCell<CDatamodel.Element, Object> cell = Cells.get(i);
+                cell.updateIndex(first + (i % VISIBLE_ROWS));
+                if (null != cell.getGraphic()) result++;
+            }
+        }
+        return result;
+    }
+
+    @Test
+    void updateCellsOfGrowingTables(@TempDir Path Directory) throws Exception {
+        Map<Integer, Double> nanosPerCell = new LinkedHashMap<>();
+        for (int rows : ROWS) {
+            CDatamodel data = CTestData.random(rows, 1).load(Files.createDirectory(Directory.resolve(String.valueOf(rows))), false);
+            CMetamodel.TypeExpression type = data.Metamodel.getSubstantialTypeExpression(CTestData.SYSTEM);
+            List<CDatamodel.Element> elements = data.Indexes.getElements(type);
+            long[] cellsAndNanos = onFxThread(() -> {
+                TableView<CDatamodel.Element> table = new TableView<>(FXCollections.observableArrayList(elements));
+                List<TableCell<CDatamodel.Element, Object>> cells = createCells(table, data, type);
+                // Every cell shows the value of its row
+                cells.getFirst().updateIndex(rows / 2);
+                assertSame(elements.get(rows / 2).AdditionalData.get("name"), cells.getFirst().getItem());
+                Random random = new Random(2);
+                return new long[] { (long)SCROLL_STEPS * cells.size(), CBenchmark.measure(() -> scroll(cells, rows, random)) };
+            });
+            CBenchmark.report("Update table cells, " + rows + " rows", (int)cellsAndNanos[0], cellsAndNanos[1]);
+            nanosPerCell.put(rows, (double)cellsAndNanos[1] / cellsAndNanos[0]);
+        }
+        System.out.printf("Per cell cost at %d rows relative to %d rows: %.2f%n", ROWS[ROWS.length - 1], ROWS[0], nanosPerCell.get(ROWS[ROWS.length - 1]) / nanosPerCell.get(ROWS[0]));
+    }
+}
@@ -0,0 +1,52 @@
+package net.liwuest.luyviewer.model;
+
+import net.liwuest.luyviewer.CBenchmark;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/** Memory and read cost of attributes in column stores compared to one map per element ({@code columnar_storage}). */
+@Tag("benchmark")
+class CColumnStoreBenchmark {
+  private final static int SYSTEMS = 100_000;
+  @TempDir Path m_Directory;
+
+  private static long usedMemory() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) System.gc();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  @Test
+  void memoryAndReads() throws IOException {
+    CTestData data = CTestData.random(SYSTEMS, 1);
+    for (boolean columnar : new boolean[] { false, true }) {
+      long before = usedMemory();
+      CDatamodel datamodel = data.load(m_Directory, columnar);
+      long memory = usedMemory() - before;
+      CMetamodel.SubstantialTypeExpression type = datamodel.Metamodel.getSubstantialTypeExpression(CTestData.SYSTEM);
+      CMetamodel.Feature users = type.getFeature("users"), name = type.getFeature("name");
+      List<CDatamodel.Element> elements = datamodel.Indexes.getElements(type);
+
+      long reads = CBenchmark.measure(() -> {
+        long sum = 0;
+        for (CDatamodel.Element<?> element : elements) {
+          if (element.getColumn(users) instanceof CColumnStore.IntegerColumn column) {
+            int row = element.getColumnRow();
+            if ((0 < column.size(row)) && !column.isNull(row, 0)) sum += column.getInt(row, 0);
+          } else if ((element.AdditionalData.get(users.persistentName) instanceof List<?> list) && !list.isEmpty() && (list.getFirst() instanceof Integer i)) sum += i;
+          if (element.AdditionalData.get(name.persistentName) instanceof String s) sum += s.length();
+        }
+        return sum;
+      });
+      System.out.printf("columnar_storage=%-5s retained %8.1f MB for %d systems%n", columnar, memory / 1e6, SYSTEMS);
+      CBenchmark.report("Read two attributes, columnar_storage=" + columnar, elements.size(), reads);
+      // Keep the data model reachable until its memory has been measured
+      if (datamodel.BuildingBlocks.isEmpty()) System.out.println();
+    }
+  }
+}
@@ -0,0 +1,149 @@
+package net.liwuest.luyviewer.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CDatamodelSnapshotTest {
+  @TempDir Path m_Directory;
+
+  /** Writes the data and its snapshot. */
+  private String writeSnapshot(CTestData Data) throws IOException {
+    String prefix = Data.write(m_Directory);
+    CDatamodelSnapshot.Sources sources = CDatamodelSnapshot.Sources.of(prefix);
+    CDatamodelSnapshot.write(CDatamodel.loadJson(prefix, CMetamodel.load(prefix)), prefix, sources, CDatamodelSnapshot.checksum(prefix));
+    assertTrue(Files.isRegularFile(CDatamodelSnapshot.getPath(prefix)));
+    return prefix;
+  }
+  private static CDatamodel readSnapshot(String Prefix) throws IOException {
+    return CDatamodelSnapshot.read(Prefix, CDatamodelSnapshot.Sources.of(Prefix), CMetamodel.load(Prefix));
+  }
+
+  /** Replaces the data file by one of the same size with other content, keeping its modification time. */
+  private static void changeDataKeepingSize(String Prefix) throws IOException {
+    Path data = Path.of(Prefix + "_data.json");
+    FileTime modified = Files.getLastModifiedTime(data);
+    Files.writeString(data, Files.readString(data).replace("Domain 1\"", "Domain 9\""));
+    Files.setLastModifiedTime(data, modified);
+  }
+
+  /** A value with elements replaced by their ids and literals by their persistent names, so values of different data models can be compared. */
+  private static Object comparable(Object Value) {
+    return switch (Value) {
+      case CDatamodel.Element<?> element -> "#" + element.id;
+      case CMetamodel.Literal literal -> "literal " + literal.persistentName;
+      case CMetamodel.Feature feature -> "feature " + feature.persistentName;
+      case List<?> list -> list.stream().map(CDatamodelSnapshotTest::comparable).toList();
+      case Map<?, ?> map -> {
+        Map<Object, Object> result = new HashMap<>();
+        map.forEach((key, value) -> result.put(comparable(key), comparable(value)));
+        yield result;
+      }
+      case null, default -> Value;
+    };
+  }
+
+  private static void assertSameElements(Collection<? extends CDatamodel.Element<?>> Expected, Collection<? extends CDatamodel.Element<?>> Actual) {
+    assertEquals(Expected.size(), Actual.size());
+    Iterator<? extends CDatamodel.Element<?>> actual = Actual.iterator();
+    for (CDatamodel.Element<?> expected : Expected) {
+      CDatamodel.Element<?> element = actual.next();
+      String message = expected.toString();
+      assertEquals(expected.getClass(), element.getClass(), message);
+      assertEquals(expected.metamodelType.persistentName, element.metamodelType.persistentName, message);
+      assertEquals(expected.id, element.id, message);
+      assertEquals(expected.elementURI, element.elementURI, message);
+      assertEquals(expected.lastModificationTime, element.lastModificationTime, message);
+      assertEquals(expected.lastModificationUser, element.lastModificationUser, message);
+      assertEquals(comparable(expected.AdditionalData), comparable(element.AdditionalData), message);
+      assertEquals(comparable(expected.Enumerations), comparable(element.Enumerations), message);
+      assertEquals(comparable(expected.Relationships), comparable(element.Relationships), message);
+      if (expected instanceof CDatamodel.BuildingBlock bb) {
+        CDatamodel.BuildingBlock other = (CDatamodel.BuildingBlock)element;
+        assertEquals(bb.name, other.name, message);
+        assertEquals(bb.description, other.description, message);
+        assertEquals(bb.position, other.position, message);
+        assertEquals(bb.hierarchy_level, other.hierarchy_level, message);
+      }
+    }
+  }
+
+  @Test
+  void readsWhatWasWritten() throws IOException {
+    String prefix = writeSnapshot(CTestData.random(300, 1));
+    CDatamodel expected = CDatamodel.loadJson(prefix, CMetamodel.load(prefix));
+    CDatamodel actual = readSnapshot(prefix);
+    assertNotNull(actual);
+
+    assertEquals(expected.BuildingBlocks.keySet().stream().map(type -> type.persistentName).toList(), actual.BuildingBlocks.keySet().stream().map(type -> type.persistentName).toList());
+    assertEquals(expected.Relationships.keySet().stream().map(type -> type.persistentName).toList(), actual.Relationships.keySet().stream().map(type -> type.persistentName).toList());
+    Iterator<Set<CDatamodel.BuildingBlock>> buildingBlocks = actual.BuildingBlocks.values().iterator();
+    for (Set<CDatamodel.BuildingBlock> elements : expected.BuildingBlocks.values()) assertSameElements(elements, buildingBlocks.next());
+    Iterator<Set<CDatamodel.Relationship>> relationships = actual.Relationships.values().iterator();
+    for (Set<CDatamodel.Relationship> elements : expected.Relationships.values()) assertSameElements(elements, relationships.next());
+
+    // Relationships refer to the elements of the snapshot's data model, not to copies
+    for (CDatamodel.BuildingBlock system : actual.BuildingBlocks.get(actual.Metamodel.getSubstantialTypeExpression(CTestData.SYSTEM))) {
+      system.Relationships.values().forEach(related -> related.forEach(element -> assertSame(actual.lookupById(element.id), element)));
+    }
+  }
+
+  @Test
+  void usesSnapshotWhileSizesAndModificationTimesMatch() throws IOException {
+    String prefix = writeSnapshot(CTestData.random(50, 2));
+    // The checksum is not computed, so even changed content goes unnoticed as long as size and modification time stay the same
+    changeDataKeepingSize(prefix);
+    assertNotNull(readSnapshot(prefix));
+  }
+
+  @Test
+  void usesSnapshotOfTouchedButUnchangedSources() throws IOException {
+    String prefix = writeSnapshot(CTestData.random(50, 3));
+    Path data = Path.of(prefix + "_data.json");
+    Files.setLastModifiedTime(data, FileTime.fromMillis(Files.getLastModifiedTime(data).toMillis() + 60_000));
+    assertNotNull(readSnapshot(prefix));
+
+    // The new modification time has been stored in the snapshot, so the checksum is not computed on the next load
+    ByteBuffer header = ByteBuffer.wrap(Files.readAllBytes(CDatamodelSnapshot.getPath(prefix)));
+    header.position(8);
+    assertEquals(CDatamodelSnapshot.Sources.of(prefix), new CDatamodelSnapshot.Sources(header.getLong(), header.getLong(), header.getLong(), header.getLong()));
+    changeDataKeepingSize(prefix);
+    assertNotNull(readSnapshot(prefix));
+  }
+
+  @Test
+  void ignoresSnapshotOfChangedSources() throws IOException {
+    String prefix = writeSnapshot(CTestData.random(50, 4));
+    Path data = Path.of(prefix + "_data.json");
+    // Same size, other content
+    FileTime modified = Files.getLastModifiedTime(data);
+    changeDataKeepingSize(prefix);
+    Files.setLastModifiedTime(data, FileTime.fromMillis(modified.toMillis() + 60_000));
+    assertNull(readSnapshot(prefix));
+
+    // Other size, same modification time
+    prefix = writeSnapshot(CTestData.random(50, 4));
+    modified = Files.getLastModifiedTime(data);
+    Files.writeString(data, Files.readString(data).replace("Domain 1\"", "Domain 10\""));
+    Files.setLastModifiedTime(data, modified);
+    assertNull(readSnapshot(prefix));
+  }
+
+  @Test
+  void ignoresSnapshotOfOtherFormat() throws IOException {
+    String prefix = writeSnapshot(CTestData.random(10, 5));
+    Path path = CDatamodelSnapshot.getPath(prefix);
+    byte[] bytes = Files.readAllBytes(path);
+    ByteBuffer.wrap(bytes).putInt(4, -1);
+    Files.write(path, bytes);
+    assertNull(readSnapshot(prefix));
+  }
+}
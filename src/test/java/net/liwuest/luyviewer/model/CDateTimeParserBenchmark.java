@@ -0,0 +1,31 @@
+package net.liwuest.luyviewer.model;
+
+import net.liwuest.luyviewer.CBenchmark;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Compares the fast path of {@link CDateTimeParser} to the formatters for the layouts LUY writes. */
+@Tag("benchmark")
+class CDateTimeParserBenchmark {
+  private final static int COUNT = 10_000;
+
+  private static String[] texts(String Format) {
+    String[] result = new String[COUNT];
+    for (int i = 0; i < COUNT; i++) result[i] = String.format(Format, 1990 + i % 40, 1 + i % 12, 1 + i % 28, i % 24, i % 60, (i / 60) % 60);
+    return result;
+  }
+
+  @Test
+  void parse() {
+    for (String format : new String[] { "%04d-%02d-%02d %02d:%02d:%02d", "%04d-%02d-%02dT%02d:%02d:%02dZ" }) {
+      String[] texts = texts(format);
+      long fast = CBenchmark.measure(() -> { long sum = 0; for (String text : texts) sum += CDateTimeParser.parse(text).getEpochSecond(); return sum; });
+      long formatters = CBenchmark.measure(() -> { long sum = 0; for (String text : texts) sum += CDateTimeParser.parseWithFormatters(text).getEpochSecond(); return sum; });
+      CBenchmark.report("CDateTimeParser.parse " + texts[0], COUNT, fast);
+      CBenchmark.report("CDateTimeParser.parseWithFormatters " + texts[0], COUNT, formatters);
+      assertTrue(fast < formatters, "Fast path not faster for " + texts[0]);
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package net.liwuest.luyviewer.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** The fast path of {@link CDateTimeParser} must give the same instants as the formatters it bypasses. */
+class CDateTimeParserTest {
+  /** The instant of the formatters, or the type of their exception. */
+  private static Object withFormatters(String Text) {
+    try { return CDateTimeParser.parseWithFormatters(Text); } catch (RuntimeException Ex) { return Ex.getClass(); }
+  }
+  private static Object withParser(String Text) {
+    try { return CDateTimeParser.parse(Text); } catch (RuntimeException Ex) { return Ex.getClass(); }
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {
+      "2023-01-15 14:30:00", "2023/01/15 14:30:00", "2023-01-15T14:30:00", "14:30:00 15-01-2023", "15.01.2023 14:30:00", "01-15-2023 14:30:00", "2023-01-15T14:30:00Z",
+      "1970-01-01 00:00:00", "1969-12-31 23:59:59", "0001-01-01 00:00:00", "9999-12-31 23:59:59", "1600-03-01T00:00:00Z",
+      // Leap days
+      "2024-02-29 12:00:00", "2000-02-29T12:00:00", "29.02.2024 00:00:00", "02-29-2024 23:59:59", "00:00:00 29-02-2000", "2024-02-29T23:59:59Z"
+  })
+  void fastLayoutsMatchFormatters(String Text) {
+    assertNotEquals(CDateTimeParser.NO_MATCH, CDateTimeParser.parseEpochSecond(Text), Text);
+    assertEquals(CDateTimeParser.parseWithFormatters(Text), CDateTimeParser.parse(Text), Text);
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {
+      // No leap day
+      "2023-02-29 12:00:00", "1900-02-29 12:00:00", "2100-02-29T00:00:00Z", "29.02.2023 00:00:00",
+      // Invalid days, months and times
+      "2023-04-31 12:00:00", "2023-01-32 12:00:00", "2023-01-00 12:00:00", "2023-13-01 12:00:00", "2023-00-01 12:00:00", "31.04.2023 00:00:00", "13-01-2023 00:00:00",
+      "2023-01-15 24:00:00", "2023-01-15T23:60:00", "2023-01-15 23:59:60", "24:00:00 15-01-2023", "0000-01-01 00:00:00",
+      // Offsets, fractions and other layouts
+      "2023-01-15T14:30:00+01:00", "2023-01-15T14:30:00-05:30", "2023-01-15T14:30:00+00:00", "2023-01-15T14:30:00.5Z", "2023-01-15T14:30:00.000000001Z", "2023-01-15T14:30",
+      // Malformed
+      "2023-01-15 14:30:0x", "2023-01-15X14:30:00", "2023/01-15 14:30:00", "2023/01/15T14:30:00", "15.01-2023 14:30:00", "14:30:00 15.01.2023", "2023-01-15 14-30-00",
+      "+023-01-15 14:30:00", "2023-01-15T14:30:00z", "yesterday", " "
+  })
+  void otherTextsMatchFormatters(String Text) {
+    assertEquals(withFormatters(Text), withParser(Text), Text);
+  }
+
+  @Test
+  void everyDayOfFourYearsMatchesFormatters() {
+    for (LocalDateTime time = LocalDateTime.of(2023, 1, 1, 0, 0, 1); time.getYear() < 2027; time = time.plusDays(1).plusSeconds(3607)) {
+      Instant expected = time.toInstant(ZoneOffset.UTC);
+      for (String text : new String[] {
+          String.format("%04d-%02d-%02d %02d:%02d:%02d", time.getYear(), time.getMonthValue(), time.getDayOfMonth(), time.getHour(), time.getMinute(), time.getSecond()),
+          String.format("%02d.%02d.%04d %02d:%02d:%02d", time.getDayOfMonth(), time.getMonthValue(), time.getYear(), time.getHour(), time.getMinute(), time.getSecond()),
+          String.format("%02d:%02d:%02d %02d-%02d-%04d", time.getHour(), time.getMinute(), time.getSecond(), time.getDayOfMonth(), time.getMonthValue(), time.getYear())
+      }) {
+        assertEquals(expected, CDateTimeParser.parse(text), text);
+        assertEquals(CDateTimeParser.parseWithFormatters(text), CDateTimeParser.parse(text), text);
+      }
+    }
+  }
+
+  @Test
+  void rejectsEmptyText() {
+    assertThrows(IllegalArgumentException.class, () -> CDateTimeParser.parse(""));
+    assertThrows(IllegalArgumentException.class, () -> CDateTimeParser.parse(null));
+  }
+}
@@ -0,0 +1,67 @@
+package net.liwuest.luyviewer.model;
+
+import net.liwuest.luyviewer.CBenchmark;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static net.liwuest.luyviewer.model.CFilteredAndSortedDatamodel.SortOrder.ASCENDING;
+import static net.liwuest.luyviewer.model.CFilteredAndSortedDatamodel.SortOrder.DESCENDING;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/** Compares {@link CElementSorter} to the previous sort, which sorted all elements again per feature with a comparator on the attribute maps. */
+@Tag("benchmark")
+class CElementSorterBenchmark {
+  private final static int SYSTEMS = 100_000;
+
+  /** The previous sort of {@code CFilteredAndSortedDatamodel}, for elements that have a value of every feature (it failed on missing values). */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static List<CDatamodel.Element> sortPerFeature(List<CDatamodel.Element> Elements, List<Map.Entry<CMetamodel.Feature, CFilteredAndSortedDatamodel.SortOrder>> Orderings) {
+    LinkedHashSet<CDatamodel.Element> result = new LinkedHashSet<>(Elements);
+    // Least significant first, each sort is stable
+    for (Map.Entry<CMetamodel.Feature, CFilteredAndSortedDatamodel.SortOrder> e : Orderings.reversed()) {
+      result = result.stream().sorted((bb1, bb2) -> {
+        int comparisonResult = 0;
+        Object o1 = bb1.AdditionalData.getOrDefault(e.getKey().persistentName, null);
+        Object o2 = bb2.AdditionalData.getOrDefault(e.getKey().persistentName, null);
+        if ((o1 instanceof Comparable c1) && (o2 instanceof Comparable c2)) comparisonResult = c1.compareTo(c2);
+        else if ((o1 instanceof List l1) && (o2 instanceof List l2)) {
+          comparisonResult = Integer.compare(l1.size(), l2.size());
+          if ((0 == comparisonResult) && !l1.isEmpty() && (l1.get(0) instanceof Comparable c1) && (l2.get(0) instanceof Comparable c2)) comparisonResult = c1.compareTo(c2);
+        }
+        return (ASCENDING == e.getValue()) ? comparisonResult : Math.negateExact(comparisonResult);
+      }).collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+    return new ArrayList<>(result);
+  }
+
+  @Test
+  void sortByThreeFeatures(@TempDir Path Directory) throws IOException {
+    Random random = new Random(1);
+    CTestData data = new CTestData();
+    for (int i = 1; i <= SYSTEMS; i++) data.add(CTestData.SYSTEM, i, "name", "System " + random.nextInt(1000), "users", random.nextInt(100), "cost", String.valueOf(random.nextInt(10_000) / 100.0));
+    CDatamodel datamodel = data.load(Directory, false);
+    CMetamodel.SubstantialTypeExpression type = datamodel.Metamodel.getSubstantialTypeExpression(CTestData.SYSTEM);
+    List<CDatamodel.Element> elements = new ArrayList<>(datamodel.Indexes.getElements(type));
+    Collections.shuffle(elements, random);
+    List<Map.Entry<CMetamodel.Feature, CFilteredAndSortedDatamodel.SortOrder>> orderings = List.of(
+        Map.entry(type.getFeature("users"), DESCENDING), Map.entry(type.getFeature("name"), ASCENDING), Map.entry(type.getFeature("cost"), ASCENDING));
+
+    List<CDatamodel.Element> expected = sortPerFeature(elements, orderings);
+    assertEquals(expected.stream().map(e -> e.id).toList(), CElementSorterTest.ids(elements, CElementSorter.sort(elements, orderings, null, type)));
+    assertEquals(expected.stream().map(e -> e.id).toList(), CElementSorterTest.ids(elements, CElementSorter.sort(elements, orderings, datamodel.Indexes, type)));
+
+    long perFeature = CBenchmark.measure(() -> sortPerFeature(elements, orderings).getFirst().id);
+    long sorter = CBenchmark.measure(() -> CElementSorter.sort(elements, orderings, null, type)[0]);
+    long sorterWithIndexes = CBenchmark.measure(() -> CElementSorter.sort(elements, orderings, datamodel.Indexes, type)[0]);
+    CBenchmark.report("Sort by 3 features, one comparator sort per feature", SYSTEMS, perFeature);
+    CBenchmark.report("Sort by 3 features, CElementSorter", SYSTEMS, sorter);
+    CBenchmark.report("Sort by 3 features, CElementSorter with range indexes", SYSTEMS, sorterWithIndexes);
+    System.out.printf("Speedup %.1fx, with range indexes %.1fx%n", (double)perFeature / sorter, (double)perFeature / sorterWithIndexes);
+  }
+}
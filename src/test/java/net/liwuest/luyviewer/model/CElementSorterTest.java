@@ -0,0 +1,142 @@
+package net.liwuest.luyviewer.model;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+import static net.liwuest.luyviewer.model.CFilteredAndSortedDatamodel.SortOrder.ASCENDING;
+import static net.liwuest.luyviewer.model.CFilteredAndSortedDatamodel.SortOrder.DESCENDING;
+import static net.liwuest.luyviewer.model.CFilteredAndSortedDatamodel.SortOrder.UNSORTED;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CElementSorterTest {
+  private static CDatamodel m_Data;
+  private static CMetamodel.SubstantialTypeExpression m_Systems;
+
+  @BeforeAll
+  static void load(@TempDir Path Directory) throws IOException {
+    m_Data = CTestData.random(600, 7).load(Directory, false);
+    m_Systems = m_Data.Metamodel.getSubstantialTypeExpression(CTestData.SYSTEM);
+  }
+
+  private static CMetamodel.Feature feature(String PersistentName) { return m_Systems.getFeature(PersistentName); }
+
+  /** The documented order of values: elements without a value first, then by list size, then by the first value ({@code null} first). */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  static int compareValues(Object First, Object Second) {
+    boolean firstPresent = (First instanceof List) || (First instanceof Comparable), secondPresent = (Second instanceof List) || (Second instanceof Comparable);
+    if (!firstPresent || !secondPresent) return Boolean.compare(firstPresent, secondPresent);
+    if ((First instanceof List<?> firstList) && (Second instanceof List<?> secondList)) {
+      int comparison = Integer.compare(firstList.size(), secondList.size());
+      if (0 != comparison) return comparison;
+      Object firstValue = firstList.isEmpty() ? null : firstList.getFirst(), secondValue = secondList.isEmpty() ? null : secondList.getFirst();
+      if (!(firstValue instanceof Comparable) || !(secondValue instanceof Comparable)) return Boolean.compare(firstValue instanceof Comparable, secondValue instanceof Comparable);
+      return ((Comparable)firstValue).compareTo(secondValue);
+    }
+    return ((Comparable)First).compareTo(Second);
+  }
+
+  /** Sorts by comparing the values of the elements again and again, in a stable sort. */
+  static int[] sortByComparator(List<? extends CDatamodel.Element> Elements, List<Map.Entry<CMetamodel.Feature, CFilteredAndSortedDatamodel.SortOrder>> Orderings) {
+    Comparator<Integer> comparator = (a, b) -> 0;
+    for (Map.Entry<CMetamodel.Feature, CFilteredAndSortedDatamodel.SortOrder> ordering : Orderings) {
+      if (UNSORTED == ordering.getValue()) continue;
+      String name = ordering.getKey().persistentName;
+      Comparator<Integer> byFeature = (a, b) -> compareValues(Elements.get(a).AdditionalData.get(name), Elements.get(b).AdditionalData.get(name));
+      comparator = comparator.thenComparing((DESCENDING == ordering.getValue()) ? byFeature.reversed() : byFeature);
+    }
+    List<Integer> indexes = new ArrayList<>();
+    for (int i = 0; i < Elements.size(); i++) indexes.add(i);
+    indexes.sort(comparator);
+    return indexes.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  private static List<Map.Entry<CMetamodel.Feature, CFilteredAndSortedDatamodel.SortOrder>> orderings(Object... FeaturesAndOrders) {
+    List<Map.Entry<CMetamodel.Feature, CFilteredAndSortedDatamodel.SortOrder>> result = new ArrayList<>();
+    for (int i = 0; i < FeaturesAndOrders.length; i += 2) result.add(Map.entry(feature((String)FeaturesAndOrders[i]), (CFilteredAndSortedDatamodel.SortOrder)FeaturesAndOrders[i + 1]));
+    return result;
+  }
+
+  /** The elements of the data set in a random order, so the result does not just follow the ids. */
+  private static List<CDatamodel.Element> shuffled(long Seed) {
+    List<CDatamodel.Element> result = new ArrayList<>(m_Data.Indexes.getElements(m_Systems));
+    Collections.shuffle(result, new Random(Seed));
+    return result;
+  }
+
+  @Test
+  void sortsByAllFeaturesLikeAComparator() {
+    List<CDatamodel.Element> elements = shuffled(1);
+    for (List<Map.Entry<CMetamodel.Feature, CFilteredAndSortedDatamodel.SortOrder>> orderings : List.of(
+        orderings("name", ASCENDING),
+        orderings("name", DESCENDING, "users", ASCENDING),
+        orderings("critical", ASCENDING, "cost", DESCENDING, "audit", ASCENDING),
+        orderings("status", DESCENDING, "goLive", ASCENDING, "name", DESCENDING),
+        orderings("tags", ASCENDING, "domains", DESCENDING, "users", DESCENDING),
+        orderings("parent", ASCENDING, "description", ASCENDING),
+        orderings("users", UNSORTED, "cost", ASCENDING))) {
+      assertArrayEquals(sortByComparator(elements, orderings), CElementSorter.sort(elements, orderings, null, m_Systems), orderings.toString());
+    }
+  }
+
+  @Test
+  void sortsByRanksOfRangeIndexesLikeAComparator() {
+    List<CDatamodel.Element> elements = shuffled(3);
+    // A part of the elements, so ordinals and positions in the list differ
+    List<CDatamodel.Element> part = elements.subList(0, elements.size() / 3);
+    for (List<Map.Entry<CMetamodel.Feature, CFilteredAndSortedDatamodel.SortOrder>> orderings : List.of(
+        orderings("cost", ASCENDING),
+        orderings("cost", DESCENDING, "users", ASCENDING),
+        orderings("audit", ASCENDING, "cost", ASCENDING),
+        orderings("audit", DESCENDING, "goLive", ASCENDING, "name", ASCENDING),
+        orderings("users", DESCENDING, "status", ASCENDING, "audit", DESCENDING))) {
+      for (List<CDatamodel.Element> list : List.of(elements, part)) {
+        int[] expected = sortByComparator(list, orderings);
+        assertArrayEquals(expected, CElementSorter.sort(list, orderings, m_Data.Indexes, m_Systems), orderings.toString());
+        assertArrayEquals(expected, CElementSorter.sort(list, orderings, null, m_Systems), orderings.toString());
+      }
+    }
+  }
+
+  @Test
+  void keepsOrderOfEqualElements() {
+    List<CDatamodel.Element> elements = shuffled(2);
+    int[] sorted = CElementSorter.sort(elements, orderings("critical", ASCENDING, "status", DESCENDING), null, m_Systems);
+    for (int i = 1; i < sorted.length; i++) {
+      CDatamodel.Element previous = elements.get(sorted[i - 1]), current = elements.get(sorted[i]);
+      boolean equal = (0 == compareValues(previous.AdditionalData.get("critical"), current.AdditionalData.get("critical")))
+          && (0 == compareValues(previous.AdditionalData.get("status"), current.AdditionalData.get("status")));
+      if (equal) assertTrue(sorted[i - 1] < sorted[i], "Equal elements swapped: " + previous + ", " + current);
+    }
+    // Without (sorted) features, nothing moves
+    assertArrayEquals(sortByComparator(elements, List.of()), CElementSorter.sort(elements, orderings("users", UNSORTED), null, m_Systems));
+  }
+
+  @Test
+  void sortsMissingValuesFirst(@TempDir Path Directory) throws IOException {
+    CDatamodel data = new CTestData()
+        .add(CTestData.SYSTEM, 1, "name", "b", "users", 5)
+        .add(CTestData.SYSTEM, 2, "name", "a")
+        .add(CTestData.SYSTEM, 3, "name", "b", "users", List.of())
+        .add(CTestData.SYSTEM, 4, "name", "a", "users", 3)
+        .add(CTestData.SYSTEM, 5, "name", "a", "users", 5)
+        .load(Directory, false);
+    CMetamodel.SubstantialTypeExpression type = data.Metamodel.getSubstantialTypeExpression(CTestData.SYSTEM);
+    List<CDatamodel.Element> elements = data.Indexes.getElements(type);
+    CMetamodel.Feature users = type.getFeature("users"), name = type.getFeature("name");
+
+    assertEquals(List.of(2, 3, 4, 1, 5), ids(elements, CElementSorter.sort(elements, List.of(Map.entry(users, ASCENDING)), null, type)));
+    assertEquals(List.of(1, 5, 4, 3, 2), ids(elements, CElementSorter.sort(elements, List.of(Map.entry(users, DESCENDING)), null, type)));
+    // The first ordering is the most significant one
+    assertEquals(List.of(5, 4, 2, 1, 3), ids(elements, CElementSorter.sort(elements, List.of(Map.entry(name, ASCENDING), Map.entry(users, DESCENDING)), null, type)));
+    assertEquals(List.of(2, 3, 4, 5, 1), ids(elements, CElementSorter.sort(elements, List.of(Map.entry(users, ASCENDING), Map.entry(name, ASCENDING)), null, type)));
+  }
+
+  static List<Integer> ids(List<? extends CDatamodel.Element> Elements, int[] Indexes) {
+    return Arrays.stream(Indexes).mapToObj(i -> Elements.get(i).id).toList();
+  }
+}
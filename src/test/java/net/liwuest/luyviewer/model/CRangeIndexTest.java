@@ -0,0 +1,142 @@
+package net.liwuest.luyviewer.model;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CRangeIndexTest {
+  /** Data models without (index 0) and with (index 1) column stores. */
+  private final static CDatamodel[] DATA = new CDatamodel[2];
+  private final static List<String> FEATURES = List.of("users", "cost", "goLive", "audit");
+
+  @BeforeAll
+  static void load(@TempDir Path Directory) throws IOException {
+    DATA[0] = CTestData.random(500, 5).load(Files.createDirectory(Directory.resolve("maps")), false);
+    DATA[1] = CTestData.random(500, 5).load(Files.createDirectory(Directory.resolve("columns")), true);
+  }
+
+  /** The first value of an element, as indexed. */
+  private static Object firstValue(CDatamodel.Element Element, CMetamodel.Feature Feature) {
+    Object value = Element.AdditionalData.get(Feature.persistentName);
+    if (value instanceof List<?> list) return list.isEmpty() ? null : list.getFirst();
+    return value;
+  }
+
+  /** Compares like the rule operators: decimals numerically ({@code NaN} is neither less nor greater, {@code -0.0} and {@code 0.0} are neither), everything else by its natural order. */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static boolean isLess(Object First, Object Second) {
+    if ((First instanceof Double d1) && (Second instanceof Double d2)) return d1 < d2;
+    return ((Comparable)First).compareTo(Second) < 0;
+  }
+
+  private static BitSet matching(List<CDatamodel.Element> Elements, CMetamodel.Feature Feature, Predicate<Object> Condition) {
+    BitSet result = new BitSet();
+    for (int ordinal = 0; ordinal < Elements.size(); ordinal++) {
+      Object value = firstValue(Elements.get(ordinal), Feature);
+      if ((null != value) && Condition.test(value)) result.set(ordinal);
+    }
+    return result;
+  }
+
+  /** All values of the feature in the data, and values in between and beyond them. */
+  private static List<Object> probes(List<CDatamodel.Element> Elements, CMetamodel.Feature Feature) {
+    Set<Object> result = new LinkedHashSet<>();
+    for (CDatamodel.Element element : Elements) {
+      Object value = firstValue(element, Feature);
+      if (null != value) result.add(value);
+    }
+    switch (Feature.featureType) {
+      case INTEGER -> result.addAll(List.of(-1, 7, 1000, Integer.MIN_VALUE, Integer.MAX_VALUE));
+      case DECIMAL -> result.addAll(List.of(0.0, -0.0, Double.NaN, 1.25, -1e9, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, Double.MIN_VALUE, -Double.MIN_VALUE));
+      default -> {
+        for (Object value : List.copyOf(result)) {
+          Instant instant = (Instant)value;
+          result.addAll(List.of(instant.plusNanos(1), instant.minusNanos(1), instant.plusSeconds(1)));
+        }
+        result.addAll(List.of(Instant.EPOCH, Instant.MIN, Instant.MAX));
+      }
+    }
+    return new ArrayList<>(result);
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = { 0, 1 })
+  void answersLikeComparisons(int Columnar) {
+    CDatamodel data = DATA[Columnar];
+    CMetamodel.SubstantialTypeExpression type = data.Metamodel.getSubstantialTypeExpression(CTestData.SYSTEM);
+    List<CDatamodel.Element> elements = data.Indexes.getElements(type);
+    for (String name : FEATURES) {
+      CMetamodel.Feature feature = type.getFeature(name);
+      CRangeIndex index = data.Indexes.getRangeIndex(type, feature);
+      assertNotNull(index, name);
+      assertEquals(elements.size(), index.size());
+      assertEquals(matching(elements, feature, value -> false), index.getLessThan(null), name);
+      BitSet withoutValue = new BitSet();
+      for (int ordinal = 0; ordinal < elements.size(); ordinal++) if (null == firstValue(elements.get(ordinal), feature)) withoutValue.set(ordinal);
+      assertFalse(withoutValue.isEmpty(), name + " has no missing values");
+      assertEquals(withoutValue, index.getWithoutValue(), name);
+
+      for (Object probe : probes(elements, feature)) {
+        String message = name + " " + probe;
+        assertEquals(matching(elements, feature, value -> isLess(value, probe)), index.getLessThan(probe), "less than " + message);
+        assertEquals(matching(elements, feature, value -> isLess(probe, value)), index.getGreaterThan(probe), "greater than " + message);
+        assertEquals(matching(elements, feature, probe::equals), index.getEqualTo(probe), "equal to " + message);
+      }
+    }
+  }
+
+  @Test
+  void distinguishesDecimalsAndInstantsByAllBits(@TempDir Path Directory) throws IOException {
+    CDatamodel data = new CTestData()
+        .add(CTestData.SYSTEM, 1, "cost", "0.0", "audit", "2023-01-15T14:30:00Z")
+        .add(CTestData.SYSTEM, 2, "cost", "-0.0", "audit", "2023-01-15T14:30:00.000000001Z")
+        .add(CTestData.SYSTEM, 3, "cost", "NaN", "audit", "2023-01-15T14:30:00.000000002Z")
+        .add(CTestData.SYSTEM, 4, "cost", "NaN", "audit", "2023-01-15T14:30:00.000000001Z")
+        .add(CTestData.SYSTEM, 5, "cost", "-0.0")
+        .add(CTestData.SYSTEM, 6, "cost", "1.5", "audit", "2023-01-15T14:29:59.999999999Z")
+        .add(CTestData.SYSTEM, 7)
+        .load(Directory, false);
+    CMetamodel.SubstantialTypeExpression type = data.Metamodel.getSubstantialTypeExpression(CTestData.SYSTEM);
+    CRangeIndex cost = data.Indexes.getRangeIndex(type, type.getFeature("cost"));
+    CRangeIndex audit = data.Indexes.getRangeIndex(type, type.getFeature("audit"));
+
+    assertEquals(BitSet.valueOf(new long[] { 0b0000001 }), cost.getEqualTo(0.0));
+    assertEquals(BitSet.valueOf(new long[] { 0b0010010 }), cost.getEqualTo(-0.0));
+    assertEquals(BitSet.valueOf(new long[] { 0b0001100 }), cost.getEqualTo(Double.NaN));
+    assertEquals(new BitSet(), cost.getLessThan(0.0));
+    assertEquals(BitSet.valueOf(new long[] { 0b0100000 }), cost.getGreaterThan(-0.0));
+    assertEquals(BitSet.valueOf(new long[] { 0b0110011 }), cost.getLessThan(2.0));
+    assertEquals(BitSet.valueOf(new long[] { 0b0100000 }), cost.getGreaterThan(0.0));
+    assertEquals(new BitSet(), cost.getGreaterThan(Double.NaN));
+    assertEquals(BitSet.valueOf(new long[] { 0b1000000 }), cost.getWithoutValue());
+    // Equal values share a rank, -0.0 is ranked before 0.0 and NaN last
+    assertEquals(cost.getRank(1), cost.getRank(4));
+    assertEquals(cost.getRank(2), cost.getRank(3));
+    assertTrue(cost.getRank(1) < cost.getRank(0));
+    assertTrue(cost.getRank(5) < cost.getRank(2));
+    assertEquals(-1, cost.getRank(6));
+    assertEquals(CRangeIndex.ABSENT, cost.getListSize(6));
+
+    Instant base = Instant.parse("2023-01-15T14:30:00Z");
+    assertEquals(BitSet.valueOf(new long[] { 0b0001010 }), audit.getEqualTo(base.plusNanos(1)));
+    assertEquals(BitSet.valueOf(new long[] { 0b0100001 }), audit.getLessThan(base.plusNanos(1)));
+    assertEquals(BitSet.valueOf(new long[] { 0b0000100 }), audit.getGreaterThan(base.plusNanos(1)));
+    assertEquals(BitSet.valueOf(new long[] { 0b0100000 }), audit.getLessThan(base));
+    assertEquals(BitSet.valueOf(new long[] { 0b1010000 }), audit.getWithoutValue());
+    assertTrue(audit.getRank(5) < audit.getRank(0));
+    assertTrue(audit.getRank(0) < audit.getRank(1));
+    assertEquals(audit.getRank(1), audit.getRank(3));
+    assertTrue(audit.getRank(3) < audit.getRank(2));
+  }
+}
@@ -0,0 +1,162 @@
+package net.liwuest.luyviewer.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Small LUY data sets for tests. Elements are added with their attribute values, written as LUY metamodel and data files
+ * and loaded through the same code as real LUY data.
+ * <p>
+ * The metamodel has building blocks of type {@link #SYSTEM} with attributes of every kind, {@link #DOMAIN}s referenced by systems,
+ * and {@link #INTERFACE}s between systems.
+ */
+public final class CTestData {
+  public final static String SYSTEM = "System";
+  public final static String DOMAIN = "BusinessDomain";
+  public final static String INTERFACE = "IS2IS";
+  public final static String STATUS = "io.luy.model.attribute.EnumAT.Status";
+  /** File name prefix of the written files; a number, as LUY uses the time stamp of the export. */
+  private final static String PREFIX = "1700000000";
+
+  private final static List<Map<String, Object>> METAMODEL = List.of(
+      Map.of("type", "EnumerationExpression", "persistentName", STATUS, "name", "Status", "literals", List.of(
+          literal("planned", 0), literal("active", 1), literal("retired", 2))),
+      Map.of("type", "SubstantialTypeExpression", "persistentName", SYSTEM, "name", "System", "features", List.of(
+          feature("id", "integer", false), feature("name", "string", false), feature("description", "richtext", false),
+          feature("critical", "boolean", false), feature("cost", "decimal", false), feature("users", "integer", false),
+          feature("goLive", "date", false), feature("audit", "date_time", false), feature("tags", "string", true),
+          feature("status", STATUS, false), feature("parent", SYSTEM, false), feature("domains", DOMAIN, true), feature("interfaces", INTERFACE, true))),
+      Map.of("type", "SubstantialTypeExpression", "persistentName", DOMAIN, "name", "Business Domain", "features", List.of(
+          feature("id", "integer", false), feature("name", "string", false), feature("owner", "string", false))),
+      Map.of("type", "RelationshipTypeExpression", "persistentName", INTERFACE, "name", "Interface", "features", List.of(
+          feature("direction", "io.luy.model.Direction", false), feature("protocol", "string", false), feature("source", SYSTEM, false))));
+
+  private final Map<String, List<Map<String, Object>>> m_Elements = new LinkedHashMap<>();
+
+  private static Map<String, Object> feature(String PersistentName, String Type, boolean Multiple) {
+    return Map.of("persistentName", PersistentName, "name", PersistentName, "type", Type, "multiple", Multiple);
+  }
+  private static Map<String, Object> literal(String PersistentName, int Index) {
+    return Map.of("persistentName", PersistentName, "name", PersistentName, "color", "rgb(0,0,0)", "index", Index);
+  }
+
+  /** A reference to the element with the given id, as value of a relation. */
+  public static Map<String, Object> ref(int Id) { return Map.of("id", Id); }
+
+  /**
+   * Adds an element.
+   *
+   * @param Type {@link #SYSTEM}, {@link #DOMAIN} or {@link #INTERFACE}.
+   * @param Id The id of the element.
+   * @param FeaturesAndValues Persistent names of features, each followed by its value. A value that is not a list is taken as a single value, {@code null} omits the feature.
+   * @return This.
+   */
+  public CTestData add(String Type, int Id, Object... FeaturesAndValues) {
+    Map<String, Object> data = new LinkedHashMap<>();
+    data.put("id", List.of(Id));
+    data.put("elementURI", "luy://" + Type + "/" + Id);
+    for (int i = 0; i < FeaturesAndValues.length; i += 2) {
+      Object value = FeaturesAndValues[i + 1];
+      if (null != value) data.put(FeaturesAndValues[i].toString(), (value instanceof List<?>) ? value : List.of(value));
+    }
+    m_Elements.computeIfAbsent(Type, type -> new ArrayList<>()).add(data);
+    return this;
+  }
+
+  /**
+   * Writes the LUY metamodel and data files.
+   *
+   * @param Directory The directory to write to.
+   * @return The file name prefix of the files, as expected by {@link CDatamodel#load(String)}.
+   */
+  public String write(Path Directory) throws IOException {
+    String result = Directory.resolve(PREFIX).toString();
+    List<Map<String, Object>> queries = new ArrayList<>();
+    m_Elements.forEach((type, elements) -> queries.add(Map.of("query", type, "result", elements)));
+    ObjectMapper objectMapper = new ObjectMapper();
+    objectMapper.writeValue(Files.newOutputStream(Path.of(result + "_metamodel.json")), METAMODEL);
+    objectMapper.writeValue(Files.newOutputStream(Path.of(result + "_data.json")), queries);
+    return result;
+  }
+
+  /**
+   * Writes and loads the data, without snapshot.
+   *
+   * @param Directory The directory to write to.
+   * @param Columnar Whether the attributes are moved into column stores.
+   * @return The data model.
+   */
+  public CDatamodel load(Path Directory, boolean Columnar) throws IOException {
+    String prefix = write(Directory);
+    CDatamodel result = CDatamodel.loadJson(prefix, CMetamodel.load(prefix));
+    result.Strings.endInterning();
+    if (Columnar) result.buildColumnStores();
+    return result;
+  }
+
+  /**
+   * Builds the text indexes of a data model, which are otherwise only built in the background by {@link CDatamodel#load(String)}.
+   *
+   * @param Data The data model.
+   * @return The data model.
+   */
+  public static CDatamodel withTextIndexes(CDatamodel Data) {
+    Data.Indexes.buildTextIndexes();
+    return Data;
+  }
+
+  /**
+   * Creates a data set with random values, including duplicates, missing values and edge cases of every kind of attribute.
+   *
+   * @param Systems The number of systems; there are a tenth as many domains and half as many interfaces.
+   * @param Seed The seed of the random values.
+   * @return The data set.
+   */
+  public static CTestData random(int Systems, long Seed) {
+    Random random = new Random(Seed);
+    String[] names = { "Alpha", "alpha", "ALPHA beta", "Beta", "Straße", "STRASSE", "ab", "a", "", "x😀y", "😀😀", "Gamma Alpha", "İstanbul", "gamma" };
+    String[] costs = { "1.5", "2", "-0.0", "0.0", "NaN", "100.25", "-3", "1e6", "1.5" };
+    String[] dates = { "2020-05-05 00:00:00", "05.05.2020 00:00:00", "2021-01-01T00:00:00Z", "1999-12-31 23:59:59" };
+    String[] audits = { "2023-01-15T14:30:00Z", "2023-01-15T14:30:00.000000001Z", "2023-01-15T14:30:00.000000002Z", "2023-01-15T14:30:01Z", "2022-06-30 08:00:00" };
+    String[] protocols = { "http", "HTTP", "soap", "ftp" };
+    String[] statuses = { "planned", "active", "retired" };
+    CTestData result = new CTestData();
+    int domains = Systems / 10 + 2, interfaces = Systems / 2 + 1;
+    for (int i = 0; i < domains; i++) {
+      result.add(DOMAIN, 10_000 + i, "name", "Domain " + i, "owner", random.nextBoolean() ? names[random.nextInt(names.length)] : null);
+    }
+    for (int i = 1; i <= Systems; i++) {
+      List<String> tags = new ArrayList<>();
+      for (int t = random.nextInt(4); 0 < t; t--) tags.add("t" + random.nextInt(6));
+      List<Map<String, Object>> domainRefs = new ArrayList<>(), interfaceRefs = new ArrayList<>();
+      for (int d = random.nextInt(3); 0 < d; d--) domainRefs.add(ref(10_000 + random.nextInt(domains)));
+      for (int d = random.nextInt(3); 0 < d; d--) interfaceRefs.add(ref(20_000 + random.nextInt(interfaces)));
+      result.add(SYSTEM, i,
+          "name", names[random.nextInt(names.length)],
+          "description", (0 == random.nextInt(3)) ? null : "Runs " + names[random.nextInt(names.length)],
+          "critical", (0 == random.nextInt(3)) ? null : String.valueOf(random.nextBoolean()),
+          "cost", (0 == random.nextInt(5)) ? null : costs[random.nextInt(costs.length)],
+          "users", (0 == random.nextInt(5)) ? null : random.nextInt(20),
+          "goLive", (0 == random.nextInt(3)) ? null : dates[random.nextInt(dates.length)],
+          "audit", (0 == random.nextInt(3)) ? null : audits[random.nextInt(audits.length)],
+          "tags", tags,
+          "status", (0 == random.nextInt(4)) ? null : statuses[random.nextInt(statuses.length)],
+          "parent", ((1 < i) && random.nextBoolean()) ? ref(1 + random.nextInt(i - 1)) : null,
+          "domains", domainRefs,
+          "interfaces", interfaceRefs,
+          "lastModificationTime", audits[random.nextInt(audits.length)],
+          "lastModificationUser", names[random.nextInt(names.length)]);
+    }
+    for (int i = 0; i < interfaces; i++) {
+      result.add(INTERFACE, 20_000 + i,
+          "direction", CMetamodel.INTERFACE_DIRECTIONS.values()[random.nextInt(CMetamodel.INTERFACE_DIRECTIONS.values().length)].name(),
+          "protocol", (0 == random.nextInt(4)) ? null : protocols[random.nextInt(protocols.length)],
+          "source", ref(1 + random.nextInt(Systems)));
+    }
+    return result;
+  }
+}
@@ -0,0 +1,80 @@
+package net.liwuest.luyviewer.rule;
+
+import net.liwuest.luyviewer.model.CDatamodel;
+import net.liwuest.luyviewer.model.CMetamodel;
+import net.liwuest.luyviewer.model.CTestData;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Complex rules select the elements whose referenced elements pass a filter either backwards through a reverse index or, if only a small part
+ * of the referenced type is referenced and the filter needs to be evaluated per element, forwards like the compiled rule.
+ */
+class CComplexSelectionTest {
+  /**
+   * Systems referencing the domains 0 to 5, of which 0 to 4 pass the filters: without references (1, 5), only passing ones (2, 6),
+   * passing and failing ones (3), only a failing one (4). System 7 references all domains if {@code ManyReferenced}, only domain 3 otherwise.
+   */
+  private static CDatamodel load(Path Directory, boolean ManyReferenced) throws IOException {
+    int domains = ManyReferenced ? 8 : 100;
+    CTestData data = new CTestData();
+    for (int i = 0; i < domains; i++) data.add(CTestData.DOMAIN, 10_000 + i, "name", ((i < 5) ? "Pass " : "Fail ") + i);
+    List<Map<String, Object>> all = new ArrayList<>();
+    for (int i = 0; i < domains; i++) all.add(CTestData.ref(10_000 + i));
+    data.add(CTestData.SYSTEM, 1)
+        .add(CTestData.SYSTEM, 2, "domains", List.of(CTestData.ref(10_000), CTestData.ref(10_001)))
+        .add(CTestData.SYSTEM, 3, "domains", List.of(CTestData.ref(10_000), CTestData.ref(10_005)))
+        .add(CTestData.SYSTEM, 4, "domains", List.of(CTestData.ref(10_005)))
+        .add(CTestData.SYSTEM, 5, "domains", List.of())
+        .add(CTestData.SYSTEM, 6, "domains", List.of(CTestData.ref(10_002)))
+        .add(CTestData.SYSTEM, 7, "domains", ManyReferenced ? all : List.of(CTestData.ref(10_003)));
+    return data.load(Directory, false);
+  }
+
+  @ParameterizedTest
+  @CsvSource({
+      // Referenced domains, filter, any, reverse index used, expected systems
+      "false, indexed, true, true, 2 3 6 7",
+      "false, indexed, false, true, 2 6 7",
+      "false, residual, true, false, 2 3 6 7",
+      "false, residual, false, false, 2 6 7",
+      "true, indexed, true, true, 2 3 6 7",
+      "true, indexed, false, true, 2 6",
+      "true, residual, true, true, 2 3 6 7",
+      "true, residual, false, true, 2 6"
+  })
+  void selectsLikeCompiledRule(boolean ManyReferenced, String Filter, boolean Any, boolean ReverseIndexUsed, String Expected, @TempDir Path Directory) throws IOException {
+    CDatamodel data = load(Directory, ManyReferenced);
+    CMetamodel.TypeExpression systems = CFilterSelectionTest.type(data, CTestData.SYSTEM), domains = CFilterSelectionTest.type(data, CTestData.DOMAIN);
+    // Ids are answered by a range index, prefixes need to be evaluated per element without text index
+    CRule passing = "indexed".equals(Filter)
+        ? CFilterSelectionTest.rule(domains, "id", Operators.INTEGER_LESS_OR_EQUAL, 10_005)
+        : CFilterSelectionTest.rule(domains, "name", Operators.STRING_STARTS_WITH, "Pass");
+    CFilter against = new CFilter(Filter, domains, CFilterSelectionTest.group(CGroup.GroupOperator.AND, passing));
+    Operators.IOperator<CFilter> operator = Any ? Operators.SUBSTANTIALTYPE_COMPLEX_ANY : Operators.SUBSTANTIALTYPE_COMPLEX_ALL;
+    CRule rule = new CRule(systems.getFeature("domains"), operator, against);
+
+    CFilter.Selection selection = rule.select(data.Indexes, systems);
+    assertEquals(ReverseIndexUsed, null != selection.Candidates());
+    assertEquals(ReverseIndexUsed, null == selection.Residual());
+
+    List<CDatamodel.Element> elements = data.Indexes.getElements(systems);
+    BitSet selected = selection.evaluate(elements);
+    assertEquals(Arrays.stream(Expected.split(" ")).map(Integer::valueOf).toList(), selected.stream().mapToObj(ordinal -> elements.get(ordinal).id).toList());
+    // The same as the compiled rule, with and without remembering the results of the domains
+    for (Predicate<CDatamodel.Element> compiled : List.of(operator.compile(rule.getFeature(), against), rule.compile(data.Indexes))) {
+      BitSet expected = new BitSet();
+      for (int ordinal = 0; ordinal < elements.size(); ordinal++) if (compiled.test(elements.get(ordinal))) expected.set(ordinal);
+      assertEquals(expected, selected);
+    }
+    CFilterSelectionTest.assertSelectsAsEvaluated(data, systems, rule, Filter);
+  }
+}
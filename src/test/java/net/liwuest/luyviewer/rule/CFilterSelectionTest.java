@@ -0,0 +1,214 @@
+package net.liwuest.luyviewer.rule;
+
+import net.liwuest.luyviewer.model.CDatamodel;
+import net.liwuest.luyviewer.model.CMetamodel;
+import net.liwuest.luyviewer.model.CTestData;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Selecting elements by indexes ({@link AEvaluatable#select}) must give exactly the elements passing {@link AEvaluatable#evaluate(CDatamodel.Element)},
+ * for every operator and for nested groups, with and without column stores.
+ */
+class CFilterSelectionTest {
+  /** Data models without (index 0) and with (index 1) column stores. */
+  private final static CDatamodel[] DATA = new CDatamodel[2];
+
+  @BeforeAll
+  static void load(@TempDir Path Directory) throws IOException {
+    DATA[0] = CTestData.random(400, 11).load(Files.createDirectory(Directory.resolve("maps")), false);
+    DATA[1] = CTestData.random(400, 11).load(Files.createDirectory(Directory.resolve("columns")), true);
+  }
+
+  static CMetamodel.TypeExpression type(CDatamodel Data, String PersistentName) {
+    CMetamodel.TypeExpression result = Data.Metamodel.getSubstantialTypeExpression(PersistentName);
+    return (null != result) ? result : Data.Metamodel.getRelationshipTypeExpression(PersistentName);
+  }
+
+  static CRule rule(CMetamodel.TypeExpression Type, String Feature, Operators.IOperator Operator, Object Value) {
+    return new CRule(Type.getFeature(Feature), Operator, Value);
+  }
+
+  static CGroup group(CGroup.GroupOperator Operator, AEvaluatable... Rules) {
+    CGroup result = new CGroup(Operator);
+    for (AEvaluatable rule : Rules) result.addRule(rule);
+    return result;
+  }
+
+  /** Checks that the selection of an evaluatable gives the same elements as evaluating it per element. */
+  static void assertSelectsAsEvaluated(CDatamodel Data, CMetamodel.TypeExpression Type, AEvaluatable Evaluatable, String Description) {
+    List<CDatamodel.Element> elements = Data.Indexes.getElements(Type);
+    BitSet expected = new BitSet();
+    for (int ordinal = 0; ordinal < elements.size(); ordinal++) if (Evaluatable.evaluate(elements.get(ordinal))) expected.set(ordinal);
+    assertEquals(expected, Evaluatable.select(Data.Indexes, Type).evaluate(elements), Description);
+    if (Evaluatable.isValid()) {
+      // Without and with the results of complex rules remembered during the pass
+      for (var predicate : List.of(Evaluatable.compile(), Evaluatable.compile(Data.Indexes))) {
+        BitSet compiled = new BitSet();
+        for (int ordinal = 0; ordinal < elements.size(); ordinal++) if (predicate.test(elements.get(ordinal))) compiled.set(ordinal);
+        assertEquals(expected, compiled, "compiled " + Description);
+      }
+    }
+  }
+
+  /** Comparison values for the operators, including {@code null} (which selects elements without value) and edge cases. */
+  static List<Object> valuesFor(CDatamodel Data, CMetamodel.Feature Feature, Operators.IOperator Operator) {
+    List<Object> result = new ArrayList<>();
+    result.add(null);
+    switch (Feature.featureType) {
+      case BOOLEAN -> result.addAll(List.of(true, false));
+      case DATE -> result.addAll(List.of(new Date(0), new Date(1588636800000L)));
+      case DATE_TIME -> result.addAll(List.of(Instant.parse("2023-01-15T14:30:00Z"), Instant.parse("2023-01-15T14:30:00.000000001Z"), Instant.parse("2023-01-15T14:30:00.000000002Z"),
+          Instant.parse("2022-06-30T08:00:00Z"), Instant.EPOCH, Instant.parse("2030-01-01T00:00:00Z")));
+      case DECIMAL -> result.addAll(List.of(1.5, 0.0, -0.0, Double.NaN, 1e6, -3.0, 2.0, 100.25, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, 1.25));
+      case INTEGER -> result.addAll(List.of(0, 5, 19, 20, -1, Integer.MAX_VALUE, Integer.MIN_VALUE));
+      case STRING, RICHTEXT -> result.addAll(List.of("Alpha", "alpha", "a", "", "ALPHA beta", "Straße", "😀", "x😀y", "ss", "Runs ", "Domain 1", "http", "nope"));
+      case ENUMERATION -> {
+        CMetamodel.EnumerationExpression enumeration = Data.Metamodel.getEnumerationExpression(Feature.type);
+        CMetamodel.Literal active = enumeration.getLiteral("active"), retired = enumeration.getLiteral("retired");
+        result.addAll(List.of(Set.of(), Set.of(active), Set.of(active, retired), new HashSet<>(enumeration.literals)));
+      }
+      case INTERFACE_DIRECTION -> result.addAll(List.of(Set.of(), Set.of(CMetamodel.INTERFACE_DIRECTIONS.FIRST_TO_SECOND),
+          EnumSet.of(CMetamodel.INTERFACE_DIRECTIONS.NO_DIRECTION, CMetamodel.INTERFACE_DIRECTIONS.BOTH_DIRECTIONS), EnumSet.allOf(CMetamodel.INTERFACE_DIRECTIONS.class)));
+      case SELF_RELATION, RELATION -> {
+        if ((Operators.SELF_RELATION_EQUALS == Operator) || (Operators.SELF_RELATION_CONTAINS == Operator)) result.add(Set.of());
+        else result.addAll(filtersOn(Data, type(Data, Feature.type)));
+      }
+      default -> fail("No values for " + Feature.featureType);
+    }
+    return result;
+  }
+
+  /** Filters on the elements referenced by a relation: empty, answered by indexes, and with rules evaluated per element. */
+  static List<CFilter> filtersOn(CDatamodel Data, CMetamodel.TypeExpression Target) {
+    List<CFilter> result = new ArrayList<>();
+    result.add(new CFilter("empty", Target));
+    switch (Target.persistentName) {
+      case CTestData.SYSTEM -> {
+        result.add(new CFilter("indexed", Target, group(CGroup.GroupOperator.AND, rule(Target, "critical", Operators.BOOLEAN_EQUALS, true))));
+        result.add(new CFilter("residual", Target, group(CGroup.GroupOperator.AND, rule(Target, "name", Operators.STRING_STARTS_WITH, "a"))));
+        result.add(new CFilter("mixed", Target, group(CGroup.GroupOperator.OR, rule(Target, "users", Operators.INTEGER_LESS_OR_EQUAL, 10), rule(Target, "name", Operators.STRING_ANY, null))));
+      }
+      case CTestData.DOMAIN -> {
+        result.add(new CFilter("residual", Target, group(CGroup.GroupOperator.AND, rule(Target, "name", Operators.STRING_EQUALS, "Domain 1"))));
+        result.add(new CFilter("owner", Target, group(CGroup.GroupOperator.NOT, rule(Target, "owner", Operators.STRING_CONTAINS, "a"))));
+      }
+      case CTestData.INTERFACE -> {
+        result.add(new CFilter("indexed", Target, group(CGroup.GroupOperator.AND, rule(Target, "direction", Operators.INTERFACE_DIRECTION_CONTAINS, Set.of(CMetamodel.INTERFACE_DIRECTIONS.FIRST_TO_SECOND)))));
+        result.add(new CFilter("residual", Target, group(CGroup.GroupOperator.AND, rule(Target, "protocol", Operators.STRING_EQUALS, "http"))));
+      }
+      default -> fail("No filters on " + Target.persistentName);
+    }
+    return result;
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = { 0, 1 })
+  void everyOperatorSelectsAsEvaluated(int Columnar) {
+    CDatamodel data = DATA[Columnar];
+    Set<Operators.IOperator> tested = new HashSet<>();
+    for (String typeName : List.of(CTestData.SYSTEM, CTestData.DOMAIN, CTestData.INTERFACE)) {
+      CMetamodel.TypeExpression type = type(data, typeName);
+      for (CMetamodel.Feature feature : type.features) {
+        for (Operators.IOperator operator : Operators.getSupportedOperators(feature)) {
+          for (Object value : valuesFor(data, feature, operator)) {
+            assertSelectsAsEvaluated(data, type, new CRule(feature, operator, value), typeName + "." + feature.persistentName + " " + operator + " " + value);
+          }
+          tested.add(operator);
+        }
+      }
+    }
+    // All operators with a select or preselect are covered
+    for (Operators.IOperator operator : List.of(Operators.BOOLEAN_EQUALS, Operators.BOOLEAN_ANY, Operators.DATE_TIME_EQUALS, Operators.DATE_TIME_BEFORE, Operators.DATE_TIME_AFTER,
+        Operators.DECIMAL_EQUALS, Operators.DECIMAL_LESS_OR_EQUAL, Operators.DECIMAL_MORE_OR_EQUAL, Operators.INTEGER_EQUALS, Operators.INTEGER_LESS_OR_EQUAL, Operators.INTEGER_MORE_OR_EQUAL,
+        Operators.INTERFACE_DIRECTION_CONTAINS, Operators.STRING_EQUALS, Operators.STRING_CONTAINS, Operators.STRING_STARTS_WITH, Operators.STRING_ENDS_WITH, Operators.ENUM_EQUALS,
+        Operators.ENUM_CONTAINS, Operators.SUBSTANTIALTYPE_COMPLEX_ANY, Operators.SUBSTANTIALTYPE_COMPLEX_ALL, Operators.RELATION_COMPLEX_ANY, Operators.RELATION_COMPLEX_ALL)) {
+      assertTrue(tested.contains(operator), operator + " not tested");
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = { 0, 1 })
+  void nullValuesSelectElementsWithoutValue(int Columnar) {
+    CDatamodel data = DATA[Columnar];
+    CMetamodel.TypeExpression systems = type(data, CTestData.SYSTEM);
+    for (CRule rule : List.of(rule(systems, "critical", Operators.BOOLEAN_EQUALS, null), rule(systems, "users", Operators.INTEGER_EQUALS, null),
+        rule(systems, "cost", Operators.DECIMAL_MORE_OR_EQUAL, null), rule(systems, "audit", Operators.DATE_TIME_BEFORE, null), rule(systems, "status", Operators.ENUM_EQUALS, null))) {
+      // Answered by the index alone
+      CFilter.Selection selection = rule.select(data.Indexes, systems);
+      assertNotNull(selection.Candidates(), rule.getOperator().toString());
+      assertNull(selection.Residual(), rule.getOperator().toString());
+      assertFalse(selection.Candidates().isEmpty(), rule.getOperator() + " selects no element without value");
+      assertSelectsAsEvaluated(data, systems, rule, rule.getFeature().persistentName + " " + rule.getOperator() + " null");
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = { 0, 1 })
+  void groupsSelectAsEvaluated(int Columnar) {
+    CDatamodel data = DATA[Columnar];
+    CMetamodel.TypeExpression systems = type(data, CTestData.SYSTEM);
+    CRule critical = rule(systems, "critical", Operators.BOOLEAN_EQUALS, true);
+    CRule fewUsers = rule(systems, "users", Operators.INTEGER_LESS_OR_EQUAL, 8);
+    CRule cheap = rule(systems, "cost", Operators.DECIMAL_LESS_OR_EQUAL, 50.0);
+    CRule active = rule(systems, "status", Operators.ENUM_CONTAINS, Set.of(data.Metamodel.getEnumerationExpression(CTestData.STATUS).getLiteral("active")));
+    CRule alpha = rule(systems, "name", Operators.STRING_CONTAINS, "lpha");
+    CRule anyName = rule(systems, "name", Operators.STRING_ANY, null);
+    CRule audited = rule(systems, "audit", Operators.DATE_TIME_AFTER, Instant.parse("2023-01-01T00:00:00Z"));
+
+    Map<String, AEvaluatable> groups = new LinkedHashMap<>();
+    groups.put("AND of indexed rules", group(CGroup.GroupOperator.AND, critical.copy(), fewUsers.copy()));
+    groups.put("AND with residual", group(CGroup.GroupOperator.AND, critical.copy(), alpha.copy(), cheap.copy()));
+    groups.put("OR of indexed rules", group(CGroup.GroupOperator.OR, critical.copy(), active.copy(), audited.copy()));
+    groups.put("OR with residual", group(CGroup.GroupOperator.OR, critical.copy(), alpha.copy()));
+    groups.put("OR with rule without index", group(CGroup.GroupOperator.OR, fewUsers.copy(), anyName.copy()));
+    groups.put("NOT of indexed rule", group(CGroup.GroupOperator.NOT, cheap.copy()));
+    groups.put("NOT of residual", group(CGroup.GroupOperator.NOT, alpha.copy()));
+    groups.put("NOT of empty group", group(CGroup.GroupOperator.NOT, new CGroup(CGroup.GroupOperator.AND)));
+    groups.put("NOT of NOT", group(CGroup.GroupOperator.NOT, group(CGroup.GroupOperator.NOT, active.copy())));
+    groups.put("empty group", new CGroup(CGroup.GroupOperator.OR));
+    groups.put("AND(OR, NOT)", group(CGroup.GroupOperator.AND, group(CGroup.GroupOperator.OR, critical.copy(), fewUsers.copy()), group(CGroup.GroupOperator.NOT, active.copy())));
+    groups.put("OR(AND with residual, NOT(OR))", group(CGroup.GroupOperator.OR, group(CGroup.GroupOperator.AND, cheap.copy(), alpha.copy()),
+        group(CGroup.GroupOperator.NOT, group(CGroup.GroupOperator.OR, critical.copy(), audited.copy()))));
+    groups.put("AND(NOT(AND), OR with rule without index)", group(CGroup.GroupOperator.AND, group(CGroup.GroupOperator.NOT, group(CGroup.GroupOperator.AND, fewUsers.copy(), active.copy())),
+        group(CGroup.GroupOperator.OR, cheap.copy(), anyName.copy())));
+    groups.put("filter", new CFilter("filter", systems, group(CGroup.GroupOperator.AND, group(CGroup.GroupOperator.OR, critical.copy(), alpha.copy()), audited.copy())));
+    groups.put("invalid filter", new CFilter("invalid", systems, group(CGroup.GroupOperator.AND, fewUsers.copy(), rule(systems, "name", Operators.STRING_EQUALS, null))));
+    groups.forEach((description, group) -> assertSelectsAsEvaluated(data, systems, group, description));
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = { 0, 1 })
+  void groupsUseIndexesWherePossible(int Columnar) {
+    CDatamodel data = DATA[Columnar];
+    CMetamodel.TypeExpression systems = type(data, CTestData.SYSTEM);
+    CRule critical = rule(systems, "critical", Operators.BOOLEAN_EQUALS, true);
+    CRule fewUsers = rule(systems, "users", Operators.INTEGER_LESS_OR_EQUAL, 8);
+    CRule anyName = rule(systems, "name", Operators.STRING_ANY, null);
+
+    CFilter.Selection and = group(CGroup.GroupOperator.AND, critical.copy(), fewUsers.copy(), anyName.copy()).select(data.Indexes, systems);
+    assertNotNull(and.Candidates());
+    assertNotNull(and.Residual());
+    CFilter.Selection exactOr = group(CGroup.GroupOperator.OR, critical.copy(), fewUsers.copy()).select(data.Indexes, systems);
+    assertNotNull(exactOr.Candidates());
+    assertNull(exactOr.Residual());
+    // A rule of an OR group without index makes the whole group fall back to evaluating its compiled rules on all elements
+    CFilter.Selection fallbackOr = group(CGroup.GroupOperator.OR, critical.copy(), anyName.copy()).select(data.Indexes, systems);
+    assertNull(fallbackOr.Candidates());
+    assertNotNull(fallbackOr.Residual());
+    CFilter.Selection notOfEmpty = group(CGroup.GroupOperator.NOT, new CGroup(CGroup.GroupOperator.AND)).select(data.Indexes, systems);
+    assertNotNull(notOfEmpty.Candidates());
+    assertTrue(notOfEmpty.Candidates().isEmpty());
+    assertNull(notOfEmpty.Residual());
+  }
+}
@@ -0,0 +1,113 @@
+package net.liwuest.luyviewer.rule;
+
+import net.liwuest.luyviewer.model.CDatamodel;
+import net.liwuest.luyviewer.model.CMetamodel;
+import net.liwuest.luyviewer.model.CTestData;
+import net.liwuest.luyviewer.model.CTrigramIndex;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The candidates of a trigram index ({@link CTrigramIndex#getCandidates(String, boolean, boolean)}) must include every element matched by
+ * the text operators, whether they ignore case or not.
+ */
+class CTextPreselectionTest {
+  private static CDatamodel m_Data;
+
+  @BeforeAll
+  static void load(@TempDir Path Directory) throws IOException {
+    CTestData data = CTestData.random(300, 13);
+    // Texts that fold to other lengths, or whose case only differs outside of the basic multilingual plane
+    String[] texts = { "ß", "SS", "ſ", "ﬃ", "İ", "ı", "i̇", "Σ", "ς", "σ", "𐐀𐐨", "𐐨", "😀", "\uD83D", "\uDE00", "a😀", "😀B", "K", "K", "Å", "Å", "ǅ", "ǆ", "Ǆ" };
+    for (int i = 0; i < texts.length; i++) data.add(CTestData.SYSTEM, 1_000 + i, "name", texts[i], "description", "x" + texts[i] + texts[(i + 1) % texts.length]);
+    m_Data = CTestData.withTextIndexes(data.load(Directory, false));
+  }
+
+  private static String firstValue(CDatamodel.Element Element, CMetamodel.Feature Feature) {
+    Object value = Element.AdditionalData.get(Feature.persistentName);
+    Object first = (value instanceof List<?> list) ? (list.isEmpty() ? null : list.getFirst()) : value;
+    return (first instanceof String text) ? text : null;
+  }
+
+  /** All searched texts: every part of up to four characters of every value (also splitting surrogate pairs), in their own, upper and lower case. */
+  private static Set<String> searchedTexts(List<CDatamodel.Element> Elements, CMetamodel.Feature Feature) {
+    Set<String> result = new TreeSet<>(List.of("", "a", "ab", "abc", "ALPHA", "straße", "STRASSE", "istanbul", "İSTANBUL", "😀😀", "x😀", "😀y", "nope"));
+    for (CDatamodel.Element element : Elements) {
+      String value = firstValue(element, Feature);
+      if (null == value) continue;
+      for (int from = 0; from < value.length(); from++) {
+        for (int to = from + 1; (to <= value.length()) && (to <= from + 4); to++) {
+          String part = value.substring(from, to);
+          result.addAll(List.of(part, part.toUpperCase(Locale.ROOT), part.toLowerCase(Locale.ROOT)));
+        }
+      }
+    }
+    return result;
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = { false, true })
+  void candidatesIncludeAllMatches(boolean IgnoreCase) {
+    for (String typeName : List.of(CTestData.SYSTEM, CTestData.DOMAIN, CTestData.INTERFACE)) {
+      CMetamodel.TypeExpression type = CFilterSelectionTest.type(m_Data, typeName);
+      List<CDatamodel.Element> elements = m_Data.Indexes.getElements(type);
+      for (CMetamodel.Feature feature : type.features) {
+        if (!CTrigramIndex.supports(feature)) continue;
+        CTrigramIndex index = m_Data.Indexes.getTextIndex(type, feature);
+        assertNotNull(index, feature.persistentName);
+        for (String text : searchedTexts(elements, feature)) {
+          BitSet contains = index.getCandidates(text, false, false), startsWith = index.getCandidates(text, true, false), endsWith = index.getCandidates(text, false, true);
+          for (int ordinal = 0; ordinal < elements.size(); ordinal++) {
+            String value = firstValue(elements.get(ordinal), feature);
+            if (null == value) continue;
+            String message = typeName + "." + feature.persistentName + " '" + value + "' / '" + text + "'";
+            if (Operators.containsText(value, text, IgnoreCase)) assertTrue(contains.get(ordinal), "contains " + message);
+            if (Operators.startsWithText(value, text, IgnoreCase)) assertTrue(startsWith.get(ordinal), "starts with " + message);
+            if (Operators.endsWithText(value, text, IgnoreCase)) assertTrue(endsWith.get(ordinal), "ends with " + message);
+          }
+          // Candidates always have a value
+          assertFalse(contains.intersects(invert(index.getWithValue(), elements.size())), typeName + "." + feature.persistentName + " '" + text + "'");
+        }
+      }
+    }
+  }
+
+  private static BitSet invert(BitSet Bits, int Size) {
+    BitSet result = (BitSet)Bits.clone();
+    result.flip(0, Size);
+    return result;
+  }
+
+  @Test
+  void shortTextsSelectAllElementsWithValue() {
+    CMetamodel.TypeExpression type = CFilterSelectionTest.type(m_Data, CTestData.SYSTEM);
+    CTrigramIndex index = m_Data.Indexes.getTextIndex(type, type.getFeature("name"));
+    for (String text : List.of("", "a", "ab", "😀")) assertEquals(index.getWithValue(), index.getCandidates(text, false, false), text);
+    // With the start or end marker, two characters form a trigram
+    assertNotEquals(index.getWithValue(), index.getCandidates("ab", true, false));
+    assertNotEquals(index.getWithValue(), index.getCandidates("ab", false, true));
+  }
+
+  @Test
+  void textRulesSelectAsEvaluated() {
+    CMetamodel.TypeExpression type = CFilterSelectionTest.type(m_Data, CTestData.SYSTEM);
+    for (Operators.IOperator operator : List.of(Operators.STRING_CONTAINS, Operators.STRING_STARTS_WITH, Operators.STRING_ENDS_WITH)) {
+      for (String text : List.of("", "a", "lph", "ALPHA", "ß", "ss", "😀", "x😀", "runs a", "Alpha", "İ", "i")) {
+        CRule rule = CFilterSelectionTest.rule(type, "name", operator, text);
+        CFilter.Selection selection = rule.select(m_Data.Indexes, type);
+        assertNotNull(selection.Candidates(), operator + " '" + text + "' is not preselected");
+        CFilterSelectionTest.assertSelectsAsEvaluated(m_Data, type, rule, operator + " '" + text + "'");
+        CFilterSelectionTest.assertSelectsAsEvaluated(m_Data, type, CFilterSelectionTest.rule(type, "description", operator, text), operator + " '" + text + "'");
+      }
+    }
+  }
+}